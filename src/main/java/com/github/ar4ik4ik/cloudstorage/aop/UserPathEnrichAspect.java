@@ -14,6 +14,7 @@ import org.springframework.stereotype.Component;
 
 import java.lang.annotation.Annotation;
 import java.util.Arrays;
+import java.util.List;
 
 @Aspect
 @Component
@@ -54,6 +55,14 @@ public class UserPathEnrichAspect {
                         log.debug("Enriching path from '{}' to '{}'", originalPath, fullPath);
                         args[i] = fullPath;
                         pathWasEnriched = true;
+                    } else if (args[i] instanceof List<?> originalPaths) {
+                        List<String> fullPaths = originalPaths.stream()
+                                .map(originalPath -> PathUtils.getFullPathFromRootAndDestination(userRootDirectory,
+                                        (String) originalPath))
+                                .toList();
+                        log.debug("Enriching paths from '{}' to '{}'", originalPaths, fullPaths);
+                        args[i] = fullPaths;
+                        pathWasEnriched = true;
                     } else {
                         log.warn("Parameter annotated with @PathEnrich is not instance of String, type is: {}\n" +
                                         "Next processing is skipped",
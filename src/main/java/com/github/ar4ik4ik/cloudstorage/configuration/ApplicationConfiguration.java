@@ -1,6 +1,13 @@
 package com.github.ar4ik4ik.cloudstorage.configuration;
 
 import com.github.ar4ik4ik.cloudstorage.props.MinioProperties;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.utils.ArchiveDiskCache;
+import com.github.ar4ik4ik.cloudstorage.utils.ObjectInfoCache;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelDeflater;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelOperationRunner;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelPrefetcher;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -14,6 +21,7 @@ import org.springframework.session.web.http.DefaultCookieSerializer;
 public class ApplicationConfiguration {
 
     private final MinioProperties minioProperties;
+    private final StorageProperties storageProperties;
 
     @Bean
     public MinioClient minioClient() {
@@ -23,6 +31,52 @@ public class ApplicationConfiguration {
                 .build();
     }
 
+    // Асинхронный клиент нужен для параллельной multipart-загрузки, синхронный клиент не дает доступа к частям
+    @Bean
+    public MinioAsyncClient minioAsyncClient() {
+        return MinioAsyncClient.builder()
+                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .endpoint(minioProperties.getUrl())
+                .build();
+    }
+
+    @Bean
+    public ParallelOperationRunner copyOperationRunner() {
+        var copy = storageProperties.getCopy();
+        return new ParallelOperationRunner("storage-copy", copy.getParallelism(), copy.getTimeout());
+    }
+
+    @Bean
+    public ParallelOperationRunner deleteOperationRunner() {
+        var delete = storageProperties.getDelete();
+        return new ParallelOperationRunner("storage-delete", delete.getParallelism(), delete.getTimeout());
+    }
+
+    @Bean
+    public ParallelPrefetcher downloadPrefetcher() {
+        var download = storageProperties.getDownload();
+        return new ParallelPrefetcher("storage-prefetch", download.getPrefetchParallelism(), download.getPrefetchWindow());
+    }
+
+    @Bean
+    public ParallelDeflater archiveDeflater() {
+        return new ParallelDeflater("storage-deflate", storageProperties.getDownload().getDeflateParallelism());
+    }
+
+    @Bean
+    public ArchiveDiskCache archiveDiskCache() {
+        var archiveCache = storageProperties.getArchiveCache();
+        return new ArchiveDiskCache(archiveCache.isEnabled(), archiveCache.getDirectory(),
+                archiveCache.getMaximumSize().toBytes());
+    }
+
+    @Bean
+    public ObjectInfoCache objectInfoCache() {
+        var cache = storageProperties.getCache();
+        return new ObjectInfoCache(cache.isEnabled(), cache.getTtl(), cache.getNegativeTtl(),
+                cache.getMaximumSize());
+    }
+
     @Bean
     public CookieSerializer cookieSerializer() {
         DefaultCookieSerializer serializer = new DefaultCookieSerializer();
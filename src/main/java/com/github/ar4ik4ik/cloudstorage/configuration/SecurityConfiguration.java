@@ -1,12 +1,14 @@
 package com.github.ar4ik4ik.cloudstorage.configuration;
 
 
+import com.github.ar4ik4ik.cloudstorage.controller.DirectoryController;
 import com.github.ar4ik4ik.cloudstorage.security.filter.JsonLoginFormAuthenticationFilter;
 import com.github.ar4ik4ik.cloudstorage.service.impl.DatabaseUserDetailsServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
@@ -65,6 +67,8 @@ public class SecurityConfiguration {
                                 "/openapi.yaml",
                                 "/swagger-ui.html",
                                 "/webjars/**").permitAll()
+                        // Метрики раскрывают внутреннюю нагрузку и доступны только администраторам
+                        .requestMatchers("/actuator/metrics", "/actuator/metrics/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED)
@@ -86,6 +90,8 @@ public class SecurityConfiguration {
             config.setAllowedOriginPatterns(List.of("*"));
             config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
             config.setAllowedHeaders(List.of("*"));
+            config.setExposedHeaders(List.of(DirectoryController.NEXT_CURSOR_HEADER,
+                    HttpHeaders.ACCEPT_RANGES, HttpHeaders.CONTENT_RANGE));
             config.setAllowCredentials(true);
             return config;
         };
@@ -7,12 +7,15 @@ import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
 import com.github.ar4ik4ik.cloudstorage.service.StorageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -32,18 +35,28 @@ import java.util.List;
 @SecurityRequirement(name = "cookieAuth")
 public class DirectoryController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final StorageService service;
 
     @Operation(
             summary = "Получение информации о содержимом папки",
-            description = "Возвращает список ресурсов (файлов и папок), находящихся непосредственно в указанной папке (без рекурсии).",
+            description = "Возвращает список ресурсов (файлов и папок), находящихся непосредственно в указанной папке (без рекурсии). "
+                    + "При передаче limit или cursor возвращается одна страница, курсор следующей страницы передается в заголовке X-Next-Cursor.",
             parameters = {
                     @Parameter(name = "path", description = "Полный путь к папке, URL-encoded. Обязательно должен заканчиваться на '/'.",
                             required = true, example = "my_folder/", schema = @Schema(implementation = String.class),
-                            allowEmptyValue = true)
+                            allowEmptyValue = true),
+                    @Parameter(name = "limit", description = "Максимальное количество ресурсов на странице (от 1 до 1000, по умолчанию 100).",
+                            example = "100", schema = @Schema(implementation = Integer.class)),
+                    @Parameter(name = "cursor", description = "Курсор из заголовка X-Next-Cursor предыдущей страницы.",
+                            schema = @Schema(implementation = String.class))
             },
             responses = {
                     @ApiResponse(responseCode = "200", description = "Успешное получение содержимого папки",
+                            headers = @Header(name = NEXT_CURSOR_HEADER, description = "Курсор следующей страницы, отсутствует на последней странице"),
                             content = @Content(mediaType = "application/json",
                                     schema = @Schema(implementation = ResourceInfoResponseDto[].class))),
                     @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь",
@@ -62,9 +75,20 @@ public class DirectoryController {
     )
     @GetMapping
     public ResponseEntity<List<ResourceInfoResponseDto>> getDirectoryInfo(
-            @RequestParam(name = "path") @Valid DirectoryInfoRequestDto path) {
+            @RequestParam(name = "path") @Valid DirectoryInfoRequestDto path,
+            @RequestParam(name = "limit", required = false) @Min(1) @Max(MAX_PAGE_SIZE) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor) {
         log.info("DirectoryController.getDirectoryInfo called. Resolved path: '{}'", path.path());
-        return ResponseEntity.ok(service.getDirectoryInfo(path.path()));
+        if (limit == null && cursor == null) {
+            return ResponseEntity.ok(service.getDirectoryInfo(path.path()));
+        }
+
+        var page = service.getDirectoryPage(path.path(), cursor, limit != null ? limit : DEFAULT_PAGE_SIZE);
+        var response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
     }
 
     @Operation(
@@ -0,0 +1,111 @@
+package com.github.ar4ik4ik.cloudstorage.controller;
+
+import com.github.ar4ik4ik.cloudstorage.model.dto.MessageDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.PresignedUrlDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.ResourcePathRequestDto;
+import com.github.ar4ik4ik.cloudstorage.service.impl.StorageServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/resource/presigned-uploads")
+@Validated
+@ConditionalOnProperty(prefix = "storage.presigned", name = "enabled", havingValue = "true")
+@Tag(name = "Загрузка по подписанным ссылкам", description = "API для загрузки файлов напрямую в хранилище, минуя приложение")
+@SecurityRequirement(name = "cookieAuth")
+public class PresignedUploadController {
+
+    private final StorageServiceImpl service;
+
+    @Operation(
+            summary = "Получение ссылки для загрузки",
+            description = "Возвращает временную ссылку, по которой файл загружается в хранилище запросом PUT. " +
+                    "После загрузки ее нужно подтвердить, иначе файл не появится в хранилище пользователя.",
+            parameters = {
+                    @Parameter(name = "path", description = "Полный путь к загружаемому файлу, URL-encoded.",
+                            required = true, example = "my_folder/video.mp4", schema = @Schema(implementation = String.class))
+            },
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Ссылка создана",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = PresignedUrlDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Невалидный путь",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Неавторизованный доступ",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Родительская папка не существует",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "409", description = "Файл по указанному пути уже существует",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @PostMapping
+    public ResponseEntity<PresignedUrlDto> createUpload(
+            @RequestParam(name = "path") @Valid ResourcePathRequestDto path) {
+        var upload = service.createPresignedUpload(path.path());
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentRequestUri()
+                .path("/{id}")
+                .buildAndExpand(upload.uploadId())
+                .toUri();
+        return ResponseEntity.created(location).body(upload);
+    }
+
+    @Operation(
+            summary = "Подтверждение загрузки",
+            description = "Проверяет, что файл загружен по ссылке, и добавляет его в хранилище пользователя.",
+            parameters = {
+                    @Parameter(name = "path", description = "Путь, для которого была получена ссылка, URL-encoded.",
+                            required = true, example = "my_folder/video.mp4", schema = @Schema(implementation = String.class))
+            },
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Файл загружен",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResourceInfoResponseDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Загруженный файл больше максимального размера и удален",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Неавторизованный доступ",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Загрузка не найдена, истекла или файл еще не загружен",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "409", description = "Файл по указанному пути уже существует",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<ResourceInfoResponseDto> completeUpload(
+            @PathVariable("id") String uploadId,
+            @RequestParam(name = "path") @Valid ResourcePathRequestDto path) {
+        var resource = service.completePresignedUpload(path.path(), uploadId);
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/resource")
+                .queryParam("path", resource.path() + resource.name())
+                .build().toUri();
+        return ResponseEntity.created(location).body(resource);
+    }
+}
@@ -1,33 +1,51 @@
 package com.github.ar4ik4ik.cloudstorage.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ar4ik4ik.cloudstorage.model.ArchiveFormat;
+import com.github.ar4ik4ik.cloudstorage.model.FileDownload;
+import com.github.ar4ik4ik.cloudstorage.model.ResourceVersion;
+import com.github.ar4ik4ik.cloudstorage.model.SearchMode;
 import com.github.ar4ik4ik.cloudstorage.model.StorageUserDetails;
 import com.github.ar4ik4ik.cloudstorage.model.dto.MessageDto;
 import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
 import com.github.ar4ik4ik.cloudstorage.model.dto.ResourcePathRequestDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceSelectionRequestDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.StorageJobDto;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
 import com.github.ar4ik4ik.cloudstorage.service.impl.StorageServiceImpl;
 import com.github.ar4ik4ik.cloudstorage.utils.PathUtils;
+import com.github.ar4ik4ik.cloudstorage.utils.StoredZipLayout;
 import com.github.ar4ik4ik.cloudstorage.validation.ValidFiles;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Optional;
 
 import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.getParentPath;
 
@@ -39,12 +57,19 @@ import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.getParentPath;
 @SecurityRequirement(name = "cookieAuth")
 public class ResourceController {
 
+    private static final String SELECTION_ARCHIVE_NAME = "download";
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+    private static final int MAX_SEARCH_LIMIT = 1000;
+
     private final StorageServiceImpl service;
+    private final StorageProperties storageProperties;
+    private final ObjectMapper objectMapper;
 
     @Operation(
             summary = "Получение информации о ресурсе",
             description = "Возвращает метаданные (путь, имя, размер, тип) файла или папки. " +
-                    "Путь к папке должен заканчиваться на `/` для корректного различения.",
+                    "Путь к папке должен заканчиваться на `/` для корректного различения. " +
+                    "Поддерживаются условные запросы через `If-None-Match` и `If-Modified-Since`.",
             parameters = {
                     @Parameter(name = "path", description = "Полный путь к ресурсу, URL-encoded. Путь к папке должен заканчиваться на '/'.",
                             required = true, example = "folder1/file.txt", schema = @Schema(implementation = String.class))
@@ -53,6 +78,7 @@ public class ResourceController {
                     @ApiResponse(responseCode = "200", description = "Успешное получение информации о ресурсе",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = ResourceInfoResponseDto.class))),
+                    @ApiResponse(responseCode = "304", description = "Ресурс не изменился с момента предыдущего запроса"),
                     @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = MessageDto.class))),
@@ -69,19 +95,30 @@ public class ResourceController {
     )
     @GetMapping
     public ResponseEntity<ResourceInfoResponseDto> getResourceInfo(
-            @RequestParam(name = "path") @Valid ResourcePathRequestDto path) {
+            @RequestParam(name = "path") @Valid ResourcePathRequestDto path,
+            WebRequest webRequest) {
+        ResourceVersion version = service.getResourceVersion(path.path());
+        if (webRequest.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         return ResponseEntity.ok(service.getResourceInfo(path.path()));
     }
 
     @Operation(
             summary = "Удаление ресурса",
-            description = "Удаляет файл или пустую папку по указанному пути. Непустые папки не могут быть удалены напрямую.",
+            description = "Удаляет файл или пустую папку по указанному пути. Непустые папки не могут быть удалены напрямую. " +
+                    "С параметром `async` удаление выполняется в фоне: возвращается фоновая операция, " +
+                    "ее состояние доступно по адресу из заголовка `Location`.",
             parameters = {
                     @Parameter(name = "path", description = "Полный путь к ресурсу, URL-encoded. Путь к папке должен заканчиваться на '/'.",
-                            required = true, example = "folder1/file.txt", schema = @Schema(implementation = String.class))
+                            required = true, example = "folder1/file.txt", schema = @Schema(implementation = String.class)),
+                    @Parameter(name = "async", description = "Выполнить удаление в фоне.", example = "true")
             },
             responses = {
                     @ApiResponse(responseCode = "204", description = "Ресурс успешно удален (без содержимого)"),
+                    @ApiResponse(responseCode = "202", description = "Фоновая операция удаления создана",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = StorageJobDto.class))),
                     @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = MessageDto.class))),
@@ -97,21 +134,45 @@ public class ResourceController {
             }
     )
     @DeleteMapping
-    public ResponseEntity<?> deleteResource(@RequestParam(name = "path") @Valid ResourcePathRequestDto path) {
+    public ResponseEntity<?> deleteResource(
+            @RequestParam(name = "path") @Valid ResourcePathRequestDto path,
+            @RequestParam(name = "async", defaultValue = "false") boolean async) {
+        if (async) {
+            return toJobResponse(service.submitDeleteJob(path.path()));
+        }
         service.deleteResource(path.path());
         return ResponseEntity.noContent().build();
     }
 
     @Operation(
             summary = "Скачивание ресурса",
-            description = "Скачивает файл или папку. Папка архивируется в ZIP перед скачиванием.",
+            description = "Скачивает файл или папку. Папка архивируется перед скачиванием в формате из параметра " +
+                    "`format`: `zip` (по умолчанию), `tar` или `tar.zst`. " +
+                    "Для файлов поддерживается заголовок `Range`: один диапазон возвращается с кодом 206, " +
+                    "несколько - как `multipart/byteranges`. Для файлов также поддерживаются условные запросы " +
+                    "(`If-None-Match`, `If-Modified-Since`, `If-Range`). В режиме подписанных ссылок для файла " +
+                    "возвращается перенаправление на временную ссылку MinIO. С параметром `seekable` папка в формате zip " +
+                    "отдается как ZIP без сжатия с заранее известным размером, поддерживающий `Range` и `If-Range` " +
+                    "для докачки. Если контрольные суммы части файлов еще не посчитаны, папка отдается " +
+                    "обычным архивом.",
             parameters = {
                     @Parameter(name = "path", description = "Полный путь к ресурсу, URL-encoded. Путь к папке должен заканчиваться на '/'.",
-                            required = true, example = "folder1/file.txt", schema = @Schema(implementation = String.class))
+                            required = true, example = "folder1/file.txt", schema = @Schema(implementation = String.class)),
+                    @Parameter(name = "format", description = "Формат архива для папки: zip, tar или tar.zst",
+                            example = "tar", schema = @Schema(implementation = String.class)),
+                    @Parameter(name = "seekable", description = "Скачать папку как ZIP без сжатия с поддержкой докачки",
+                            example = "true", schema = @Schema(implementation = Boolean.class)),
+                    @Parameter(name = HttpHeaders.RANGE, in = ParameterIn.HEADER, description = "Запрашиваемые диапазоны байт файла",
+                            example = "bytes=0-1023", schema = @Schema(implementation = String.class))
             },
             responses = {
                     @ApiResponse(responseCode = "200", description = "Успешное скачивание ресурса",
                             content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+                    @ApiResponse(responseCode = "206", description = "Успешное скачивание запрошенных диапазонов файла",
+                            content = {@Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE),
+                                    @Content(mediaType = "multipart/byteranges")}),
+                    @ApiResponse(responseCode = "302", description = "Перенаправление на подписанную ссылку для скачивания файла"),
+                    @ApiResponse(responseCode = "304", description = "Файл не изменился с момента предыдущего скачивания"),
                     @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = MessageDto.class))),
@@ -121,6 +182,9 @@ public class ResourceController {
                     @ApiResponse(responseCode = "404", description = "Ресурс не найден",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "416", description = "Запрошенные диапазоны выходят за пределы файла",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
                     @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = MessageDto.class)))
@@ -128,29 +192,124 @@ public class ResourceController {
     )
     @GetMapping(path = "download")
     public ResponseEntity<StreamingResponseBody> downloadResource(
-            @RequestParam(name = "path") @Valid ResourcePathRequestDto path) {
-        String filename = PathUtils.getFilenameForDownload(path.path());
+            @RequestParam(name = "path") @Valid ResourcePathRequestDto path,
+            @RequestParam(name = "format", defaultValue = "zip") String format,
+            @RequestParam(name = "seekable", defaultValue = "false") boolean seekable,
+            @RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(name = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            WebRequest webRequest) {
+        ArchiveFormat archiveFormat = ArchiveFormat.fromExtension(format);
+        String filename = PathUtils.getFilenameForDownload(path.path(), archiveFormat.getExtension());
+        // Пока CRC части файлов не посчитаны, папка отдается обычным потоковым архивом
+        Optional<StoredZipLayout> storedLayout = PathUtils.isFolder(path.path()) && seekable
+                && archiveFormat == ArchiveFormat.ZIP
+                ? service.getStoredArchiveLayout(path.path())
+                : Optional.empty();
+        if (storedLayout.isPresent()) {
+            // Версия архива - хэш его разметки, она меняется при любом изменении содержимого папки
+            StoredZipLayout layout = storedLayout.get();
+            var version = new ResourceVersion(layout.fingerprint(), null);
+            if (webRequest.checkNotModified(version.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            if (ifRange != null && !matchesIfRange(ifRange, version)) {
+                range = null;
+            }
+            return toDownloadResponse(service.downloadStoredArchive(layout, range), filename);
+        }
+        if (PathUtils.isFolder(path.path())) {
+            return ResponseEntity
+                    .ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''%s"
+                            .formatted(filename))
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(service.downloadResource(path.path(), archiveFormat));
+        }
+
+        // В режиме подписанных ссылок содержимое отдает MinIO, приложение только проверяет доступ
+        if (storageProperties.getPresigned().isEnabled()) {
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(service.getPresignedDownloadUrl(path.path())))
+                    .build();
+        }
+
+        // Проверка валидаторов делается по метаданным, объект в хранилище при 304 не открывается
+        ResourceVersion version = service.getResourceVersion(path.path());
+        if (webRequest.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        // Если файл изменился с момента, указанного в If-Range, Range игнорируется и отдается весь файл
+        if (ifRange != null && !matchesIfRange(ifRange, version)) {
+            range = null;
+        }
+
+        return toDownloadResponse(service.downloadFile(path.path(), range), filename);
+    }
+
+    @Operation(
+            summary = "Скачивание нескольких ресурсов одним архивом",
+            description = "Архивирует выбранные файлы и папки в один архив формата из параметра `format`: " +
+                    "`zip` (по умолчанию), `tar` или `tar.zst`. Пути внутри архива строятся относительно общей " +
+                    "родительской папки выбранных ресурсов. Ресурсы внутри выбранных папок повторно не добавляются.",
+            parameters = {
+                    @Parameter(name = "format", description = "Формат архива: zip, tar или tar.zst",
+                            example = "zip", schema = @Schema(implementation = String.class))
+            },
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Полные пути к выбранным ресурсам. Пути к папкам должны заканчиваться на '/'.",
+                    required = true,
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ResourceSelectionRequestDto.class))
+            ),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешное скачивание архива",
+                            content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+                    @ApiResponse(responseCode = "400", description = "Невалидный или пустой список путей",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Неавторизованный доступ",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Часть выбранных ресурсов не найдена",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @PostMapping(path = "download", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> downloadSelection(
+            @RequestBody @Valid ResourceSelectionRequestDto selection,
+            @RequestParam(name = "format", defaultValue = "zip") String format) {
+        ArchiveFormat archiveFormat = ArchiveFormat.fromExtension(format);
         return ResponseEntity
                 .ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''%s"
-                        .formatted(filename))
+                        .formatted(SELECTION_ARCHIVE_NAME + "." + archiveFormat.getExtension()))
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(service.downloadResource(path.path()));
+                .body(service.downloadSelection(selection.paths(), archiveFormat));
     }
 
     @Operation(
             summary = "Перемещение/переименование ресурса",
-            description = "Перемещает файл или папку из одного места в другое. Если 'to' совпадает с родительской папкой 'from', происходит переименование.",
+            description = "Перемещает файл или папку из одного места в другое. Если 'to' совпадает с родительской папкой 'from', происходит переименование. " +
+                    "С параметром `async` перемещение выполняется в фоне: возвращается фоновая операция, " +
+                    "ее состояние доступно по адресу из заголовка `Location`.",
             parameters = {
                     @Parameter(name = "from", description = "Полный путь к исходному ресурсу, URL-encoded.",
                             required = true, example = "folder1/old_name.txt", schema = @Schema(implementation = String.class)),
                     @Parameter(name = "to", description = "Полный путь к целевому месту/имени ресурса, URL-encoded. Путь к папке должен заканчиваться на '/'.",
-                            required = true, example = "new_folder/new_name.txt", schema = @Schema(implementation = String.class))
+                            required = true, example = "new_folder/new_name.txt", schema = @Schema(implementation = String.class)),
+                    @Parameter(name = "async", description = "Выполнить перемещение в фоне.", example = "true")
             },
             responses = {
                     @ApiResponse(responseCode = "200", description = "Ресурс успешно перемещен/переименован",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = ResourceInfoResponseDto.class))),
+                    @ApiResponse(responseCode = "202", description = "Фоновая операция перемещения создана",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = StorageJobDto.class))),
                     @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = MessageDto.class))),
@@ -169,26 +328,76 @@ public class ResourceController {
             }
     )
     @GetMapping(path = "move")
-    public ResponseEntity<ResourceInfoResponseDto> moveResource(
+    public ResponseEntity<?> moveResource(
             @RequestParam(name = "from") @Valid ResourcePathRequestDto sourcePath,
-            @RequestParam(name = "to") @Valid ResourcePathRequestDto targetPath) {
+            @RequestParam(name = "to") @Valid ResourcePathRequestDto targetPath,
+            @RequestParam(name = "async", defaultValue = "false") boolean async) {
+        if (async) {
+            return toJobResponse(service.submitMoveJob(sourcePath.path(), targetPath.path()));
+        }
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(service.moveResource(sourcePath.path(), targetPath.path()));
     }
 
+    @Operation(
+            summary = "Копирование ресурса",
+            description = "Копирует файл или папку со всем содержимым. Копирование выполняется на стороне хранилища.",
+            parameters = {
+                    @Parameter(name = "from", description = "Полный путь к исходному ресурсу, URL-encoded.",
+                            required = true, example = "folder1/file.txt", schema = @Schema(implementation = String.class)),
+                    @Parameter(name = "to", description = "Полный путь к копии ресурса, URL-encoded. Путь к папке должен заканчиваться на '/'.",
+                            required = true, example = "folder2/file.txt", schema = @Schema(implementation = String.class))
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Ресурс успешно скопирован",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = ResourceInfoResponseDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Неавторизованный доступ",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Исходный ресурс не найден",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "409", description = "Ресурс, лежащий по пути 'to', уже существует",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @GetMapping(path = "copy")
+    public ResponseEntity<ResourceInfoResponseDto> copyResource(
+            @RequestParam(name = "from") @Valid ResourcePathRequestDto sourcePath,
+            @RequestParam(name = "to") @Valid ResourcePathRequestDto targetPath) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service.copyResource(sourcePath.path(), targetPath.path()));
+    }
+
     @Operation(
             summary = "Поиск ресурсов",
-            description = "Ищет файлы и папки по части имени или полному совпадению в пределах директории пользователя.",
+            description = "Ищет файлы и папки по части имени или полному совпадению в пределах директории пользователя. "
+                    + "Первыми идут ресурсы, имя которых начинается с запроса, затем наиболее похожие на запрос. "
+                    + "В режиме `content` ищет текстовые файлы по содержимому, результаты упорядочены по релевантности. "
+                    + "Поиск по содержимому доступен только при включенном индексе объектов.",
             parameters = {
                     @Parameter(name = "query", description = "Поисковый запрос (URL-encoded). Может быть частью имени файла/папки.",
-                            required = true, example = "document", schema = @Schema(implementation = String.class))
+                            required = true, example = "document", schema = @Schema(implementation = String.class)),
+                    @Parameter(name = "mode", description = "Режим поиска: name (по имени, по умолчанию) или content (по содержимому).",
+                            example = "name", schema = @Schema(implementation = String.class)),
+                    @Parameter(name = "limit", description = "Максимальное количество результатов (от 1 до 1000, по умолчанию 50).",
+                            example = "50", schema = @Schema(implementation = Integer.class))
             },
             responses = {
                     @ApiResponse(responseCode = "200", description = "Успешное получение списка найденных ресурсов",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = ResourceInfoResponseDto[].class))),
-                    @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий поисковый запрос",
+                    @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий поисковый запрос либо поиск по содержимому не включен",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = MessageDto.class))),
                     @ApiResponse(responseCode = "401", description = "Неавторизованный доступ",
@@ -202,9 +411,63 @@ public class ResourceController {
     @GetMapping(path = "search")
     public ResponseEntity<?> searchResource(
             @RequestParam(name = "query") @Valid ResourcePathRequestDto searchQuery,
+            @RequestParam(name = "mode", defaultValue = "name") String mode,
+            @RequestParam(name = "limit", required = false) @Min(1) @Max(MAX_SEARCH_LIMIT) Integer limit,
             @AuthenticationPrincipal StorageUserDetails userDetails) {
-        return ResponseEntity.ok(service.searchResourcesByQuery(
-                searchQuery.path(), userDetails.getUserRootDirectory()));
+        int resultLimit = limit != null ? limit : DEFAULT_SEARCH_LIMIT;
+        return ResponseEntity.ok(switch (SearchMode.fromValue(mode)) {
+            case NAME -> service.searchResourcesByQuery(
+                    searchQuery.path(), userDetails.getUserRootDirectory(), resultLimit);
+            case CONTENT -> service.searchResourcesByContent(
+                    searchQuery.path(), userDetails.getUserRootDirectory(), resultLimit);
+        });
+    }
+
+    @Operation(
+            summary = "Потоковый поиск ресурсов",
+            description = "Ищет файлы и папки по части имени и отдает результаты в формате NDJSON по мере их нахождения, "
+                    + "не дожидаясь обхода всей директории пользователя. Поиск останавливается после limit результатов "
+                    + "или при разрыве соединения клиентом.",
+            parameters = {
+                    @Parameter(name = "query", description = "Поисковый запрос (URL-encoded). Может быть частью имени файла/папки.",
+                            required = true, example = "document", schema = @Schema(implementation = String.class)),
+                    @Parameter(name = "limit", description = "Максимальное количество результатов (от 1 до 1000, по умолчанию 50).",
+                            example = "50", schema = @Schema(implementation = Integer.class))
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Найденные ресурсы, по одному JSON-объекту в строке",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = ResourceInfoResponseDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий поисковый запрос",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Неавторизованный доступ",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @GetMapping(path = "search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchResults(
+            @RequestParam(name = "query") @Valid ResourcePathRequestDto searchQuery,
+            @RequestParam(name = "limit", required = false) @Min(1) @Max(MAX_SEARCH_LIMIT) Integer limit,
+            @AuthenticationPrincipal StorageUserDetails userDetails) {
+        String rootPath = userDetails.getUserRootDirectory();
+        int resultLimit = limit != null ? limit : DEFAULT_SEARCH_LIMIT;
+        // Каждый результат отправляется клиенту сразу. Если клиент отключился, запись падает с ошибкой,
+        // поток результатов закрывается и листинг дальше не читается
+        StreamingResponseBody body = out -> {
+            try (var results = service.streamSearchResults(searchQuery.path(), rootPath, resultLimit)) {
+                var iterator = results.iterator();
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                    out.flush();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @Operation(
@@ -253,4 +516,44 @@ public class ResourceController {
         return ResponseEntity.created(location)
                 .body(service.uploadResource(files, path.path()));
     }
+
+    private ResponseEntity<StreamingResponseBody> toDownloadResponse(FileDownload download, String filename) {
+        var response = ResponseEntity
+                .status(download.isPartial() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''%s"
+                        .formatted(filename))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(download.contentType());
+        // Длина multipart/byteranges заранее не считается, такой ответ отдается чанками
+        if (!download.isPartial()) {
+            response.contentLength(download.size());
+        } else if (download.ranges().size() == 1) {
+            var byteRange = download.ranges().getFirst();
+            response.header(HttpHeaders.CONTENT_RANGE, byteRange.toContentRange(download.size()))
+                    .contentLength(byteRange.length());
+        }
+        return response.body(download.body());
+    }
+
+    private ResponseEntity<StorageJobDto> toJobResponse(StorageJobDto job) {
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/jobs/{id}")
+                .buildAndExpand(job.id())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    private boolean matchesIfRange(String ifRange, ResourceVersion version) {
+        if (ifRange.startsWith("\"")) {
+            // If-Range допускает только сильное сравнение ETag
+            return version.etag() != null && ifRange.equals("\"" + version.etag() + "\"");
+        }
+        try {
+            long ifRangeMillis = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return version.lastModifiedMillis() / 1000 == ifRangeMillis / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
 }
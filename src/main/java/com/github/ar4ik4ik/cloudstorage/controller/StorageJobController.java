@@ -0,0 +1,74 @@
+package com.github.ar4ik4ik.cloudstorage.controller;
+
+import com.github.ar4ik4ik.cloudstorage.model.StorageUserDetails;
+import com.github.ar4ik4ik.cloudstorage.model.dto.MessageDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.StorageJobDto;
+import com.github.ar4ik4ik.cloudstorage.service.StorageJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/jobs")
+@Tag(name = "Фоновые операции", description = "API для отслеживания и отмены долгих операций с ресурсами")
+@SecurityRequirement(name = "cookieAuth")
+public class StorageJobController {
+
+    private final StorageJobService service;
+
+    @Operation(
+            summary = "Состояние фоновой операции",
+            description = "Возвращает статус операции и счетчики обработанных объектов и байт. " +
+                    "Состояние хранится ограниченное время после создания операции.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Состояние операции",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = StorageJobDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Неавторизованный доступ",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Операция не найдена или истекла",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @GetMapping("/{id}")
+    public ResponseEntity<StorageJobDto> getJob(
+            @PathVariable("id") String jobId,
+            @AuthenticationPrincipal StorageUserDetails userDetails) {
+        return ResponseEntity.ok(service.getJob(userDetails.getUserRootDirectory(), jobId));
+    }
+
+    @Operation(
+            summary = "Отмена фоновой операции",
+            description = "Запрашивает отмену операции. Операция останавливается на ближайшей проверке, " +
+                    "поэтому часть объектов может быть уже обработана. Прерванное перемещение удаляет частичную копию. " +
+                    "Отмена завершенной операции ничего не меняет.",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Отмена запрошена",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = StorageJobDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Неавторизованный доступ",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Операция не найдена или истекла",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @DeleteMapping("/{id}")
+    public ResponseEntity<StorageJobDto> cancelJob(
+            @PathVariable("id") String jobId,
+            @AuthenticationPrincipal StorageUserDetails userDetails) {
+        return ResponseEntity.accepted().body(service.cancelJob(userDetails.getUserRootDirectory(), jobId));
+    }
+}
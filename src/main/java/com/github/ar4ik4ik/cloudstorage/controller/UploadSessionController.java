@@ -0,0 +1,182 @@
+package com.github.ar4ik4ik.cloudstorage.controller;
+
+import com.github.ar4ik4ik.cloudstorage.model.StorageUserDetails;
+import com.github.ar4ik4ik.cloudstorage.model.dto.MessageDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.ResourcePathRequestDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.UploadSessionDto;
+import com.github.ar4ik4ik.cloudstorage.service.UploadSessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.InputStream;
+import java.net.URI;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/resource/uploads")
+@Validated
+@Slf4j
+@Tag(name = "Загрузка по частям", description = "API для загрузки больших файлов частями с возможностью продолжения после обрыва")
+@SecurityRequirement(name = "cookieAuth")
+public class UploadSessionController {
+
+    private final UploadSessionService service;
+
+    @Operation(
+            summary = "Создание сессии загрузки",
+            description = "Создает сессию загрузки файла по частям. Размер части возвращается в поле chunkSize. " +
+                    "Родительская папка должна существовать, а файла по указанному пути быть не должно.",
+            parameters = {
+                    @Parameter(name = "path", description = "Полный путь к загружаемому файлу, URL-encoded.",
+                            required = true, example = "my_folder/video.mp4", schema = @Schema(implementation = String.class)),
+                    @Parameter(name = "size", description = "Размер файла в байтах.", required = true, example = "1073741824"),
+                    @Parameter(name = "contentType", description = "MIME-тип файла.", example = "video/mp4")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Сессия создана",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = UploadSessionDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Невалидный путь или размер, либо размер больше максимального",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Неавторизованный доступ",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Родительская папка не существует",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "409", description = "Файл по указанному пути уже существует",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @PostMapping
+    public ResponseEntity<UploadSessionDto> createSession(
+            @RequestParam(name = "path") @Valid ResourcePathRequestDto path,
+            @RequestParam(name = "size") @Positive long size,
+            @RequestParam(name = "contentType", defaultValue = MediaType.APPLICATION_OCTET_STREAM_VALUE) String contentType,
+            @AuthenticationPrincipal StorageUserDetails userDetails) {
+        var session = service.createSession(userDetails.getUserRootDirectory(), path.path(), contentType, size);
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentRequestUri()
+                .path("/{id}")
+                .buildAndExpand(session.id())
+                .toUri();
+        return ResponseEntity.created(location).body(session);
+    }
+
+    @Operation(
+            summary = "Состояние сессии загрузки",
+            description = "Возвращает диапазоны уже полученных байт, по ним клиент определяет, какие части нужно отправить повторно.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Состояние сессии",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = UploadSessionDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Сессия не найдена или истекла",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDto> getSession(
+            @PathVariable("id") String sessionId,
+            @AuthenticationPrincipal StorageUserDetails userDetails) {
+        return ResponseEntity.ok(service.getSession(userDetails.getUserRootDirectory(), sessionId));
+    }
+
+    @Operation(
+            summary = "Отправка части файла",
+            description = "Принимает часть файла в теле запроса. Смещение должно быть кратно chunkSize, " +
+                    "а размер части равен chunkSize, кроме последней. Повторная отправка части перезаписывает ее.",
+            parameters = {
+                    @Parameter(name = "offset", description = "Смещение части от начала файла в байтах.", required = true, example = "0")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Часть принята",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = UploadSessionDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Смещение или размер части не совпадают с границами частей",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Сессия не найдена или истекла",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionDto> uploadChunk(
+            @PathVariable("id") String sessionId,
+            @RequestParam(name = "offset") @PositiveOrZero long offset,
+            @RequestHeader(HttpHeaders.CONTENT_LENGTH) long contentLength,
+            InputStream body,
+            @AuthenticationPrincipal StorageUserDetails userDetails) {
+        return ResponseEntity.ok(service.uploadChunk(userDetails.getUserRootDirectory(), sessionId, offset, body, contentLength));
+    }
+
+    @Operation(
+            summary = "Завершение загрузки",
+            description = "Собирает файл из полученных частей. Все части должны быть отправлены.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Файл загружен",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResourceInfoResponseDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Получены не все части",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Сессия не найдена или истекла",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class))),
+                    @ApiResponse(responseCode = "409", description = "Файл по указанному пути уже существует",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<ResourceInfoResponseDto> completeSession(
+            @PathVariable("id") String sessionId,
+            @AuthenticationPrincipal StorageUserDetails userDetails) {
+        var resource = service.completeSession(userDetails.getUserRootDirectory(), sessionId);
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/resource")
+                .queryParam("path", resource.path() + resource.name())
+                .build().toUri();
+        return ResponseEntity.created(location).body(resource);
+    }
+
+    @Operation(
+            summary = "Отмена загрузки",
+            description = "Отменяет сессию и удаляет уже полученные части.",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Сессия отменена"),
+                    @ApiResponse(responseCode = "404", description = "Сессия не найдена или истекла",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDto.class)))
+            }
+    )
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> abortSession(
+            @PathVariable("id") String sessionId,
+            @AuthenticationPrincipal StorageUserDetails userDetails) {
+        service.abortSession(userDetails.getUserRootDirectory(), sessionId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,12 +2,15 @@ package com.github.ar4ik4ik.cloudstorage.controller.advice;
 
 import com.github.ar4ik4ik.cloudstorage.exception.ObjectAlreadyExistException;
 import com.github.ar4ik4ik.cloudstorage.exception.ObjectNotFoundException;
+import com.github.ar4ik4ik.cloudstorage.exception.RangeNotSatisfiableException;
 import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
 import com.github.ar4ik4ik.cloudstorage.exception.UserAlreadyExistsException;
 import com.github.ar4ik4ik.cloudstorage.model.dto.MessageDto;
 import io.swagger.v3.oas.annotations.Hidden;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authorization.AuthorizationDeniedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
@@ -32,6 +35,13 @@ public class GlobalControllerAdvice {
         return new MessageDto("Target path not found");
     }
 
+    @ExceptionHandler(RangeNotSatisfiableException.class)
+    public ResponseEntity<MessageDto> handleRangeNotSatisfiable(RangeNotSatisfiableException ex) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */%d".formatted(ex.getResourceSize()))
+                .body(new MessageDto(ex.getMessage()));
+    }
+
     @ExceptionHandler(StorageException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public MessageDto handleInternalException(StorageException ex) {
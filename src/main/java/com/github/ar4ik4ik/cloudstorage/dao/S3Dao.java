@@ -1,29 +1,97 @@
 package com.github.ar4ik4ik.cloudstorage.dao;
 
 import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.DeleteBatchResult;
+import com.github.ar4ik4ik.cloudstorage.model.FolderUsage;
+import com.github.ar4ik4ik.cloudstorage.model.MultipartUploadHandle;
+import com.github.ar4ik4ik.cloudstorage.model.PresignedUploadHandle;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
 import io.minio.GetObjectResponse;
-import io.minio.messages.Item;
 
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface S3Dao {
 
-    void uploadObject (String path, String contentType, InputStream inputStream, long objectSize) throws StorageException;
+    StorageObject uploadObject (String path, String contentType, InputStream inputStream, long objectSize) throws StorageException;
 
     GetObjectResponse getObject(String path) throws StorageException;
 
+    GetObjectResponse getObject(String path, long offset, long length) throws StorageException;
+
+    StorageObject getObjectInfo(String path) throws StorageException;
+
+    // Читает объект целиком, нужна для объектов, CRC32 которых не был посчитан при загрузке
+    long computeCrc32(String path) throws StorageException;
+
+    // Сумма хранится только в индексе и сохраняется, только если файл не был перезаписан после версии с этим etag
+    void saveCrc32(String path, String etag, long crc32) throws StorageException;
+
+    MultipartUploadHandle createMultipartUpload(String path, String contentType) throws StorageException;
+
+    // Тело части читается из data потоком, длина известна заранее
+    String uploadPart(MultipartUploadHandle upload, int partNumber, InputStream data, long length) throws StorageException;
+
+    StorageObject completeMultipartUpload(String path, MultipartUploadHandle upload, Map<Integer, String> partEtags) throws StorageException;
+
+    void abortMultipartUpload(MultipartUploadHandle upload) throws StorageException;
+
+    String getPresignedDownloadUrl(String path, String filename) throws StorageException;
+
+    PresignedUploadHandle createPresignedUpload(String path) throws StorageException;
+
+    // Проверяет, что клиент загрузил объект по подписанной ссылке не больше maxSize байт, и регистрирует его по пути path.
+    // Подписанная ссылка PUT не ограничивает размер, поэтому слишком большой объект удаляется при подтверждении
+    StorageObject completePresignedUpload(String path, String key, long maxSize) throws StorageException;
+
     void createEmptyDirectory(String path) throws StorageException;
 
-    List<Item> getListObjectsByPath(String path, boolean recursive) throws StorageException;
+    List<StorageObject> getListObjectsByPath(String path, boolean recursive) throws StorageException;
+
+    // Рекурсивный листинг, который читается по мере потребления. Поток нужно закрыть после использования
+    Stream<StorageObject> streamObjectsByPath(String path) throws StorageException;
+
+    List<StorageObject> getListObjectsPage(String path, String startAfter, int limit) throws StorageException;
+
+    // Объекты внутри папки path, имя которых содержит query без учета регистра, не больше limit
+    List<StorageObject> searchByName(String path, String query, int limit) throws StorageException;
+
+    // То же, но результаты читаются по мере потребления. Поток нужно закрыть после использования
+    Stream<StorageObject> streamByName(String path, String query, int limit) throws StorageException;
+
+    // Полнотекстовый индекс содержимого ведется только индексом, без него оба метода не поддерживаются.
+    // Текст сохраняется, только если файл не был перезаписан после загрузки версии с этим etag
+    void indexContent(String path, String etag, String text) throws StorageException;
+
+    List<StorageObject> searchByContent(String path, String query, int limit) throws StorageException;
 
     boolean isObjectExists(String path);
 
+    Set<String> findExistingPaths(Collection<String> paths) throws StorageException;
+
+    // Счетчики папок поддерживаются только индексом, без него результат пуст
+    Map<String, FolderUsage> getFolderUsage(Collection<String> paths) throws StorageException;
+
     void removeFile(String path) throws StorageException;
 
     void removeFolder(String path) throws StorageException;
 
+    // progress вызывается после каждой пачки удаления, в том числе из разных потоков
+    void removeFolder(String path, Consumer<DeleteBatchResult> progress) throws StorageException;
+
     void copyFile(String from, String to) throws StorageException;
 
     void copyFolder(String from, String to) throws StorageException;
+
+    void moveFile(String from, String to) throws StorageException;
+
+    void moveFolder(String from, String to) throws StorageException;
+
+    // progress вызывается для каждого скопированного объекта источника, в том числе из разных потоков
+    void moveFolder(String from, String to, Consumer<StorageObject> progress) throws StorageException;
 }
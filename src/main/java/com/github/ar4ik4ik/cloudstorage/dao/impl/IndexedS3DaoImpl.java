@@ -0,0 +1,637 @@
+package com.github.ar4ik4ik.cloudstorage.dao.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.exception.IncompleteMoveException;
+import com.github.ar4ik4ik.cloudstorage.exception.ObjectAlreadyExistException;
+import com.github.ar4ik4ik.cloudstorage.exception.ObjectNotFoundException;
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.DeleteBatchResult;
+import com.github.ar4ik4ik.cloudstorage.model.FolderUsage;
+import com.github.ar4ik4ik.cloudstorage.model.MultipartUploadHandle;
+import com.github.ar4ik4ik.cloudstorage.model.PresignedUploadHandle;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.model.entity.ObjectMetadata;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.repository.ObjectMetadataRepository;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelOperationRunner;
+import com.google.common.collect.Iterables;
+import io.minio.GetObjectResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto.ResourceType.DIRECTORY;
+import static com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto.ResourceType.FILE;
+import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.*;
+
+// Листинг и проверки существования обслуживаются индексом в Postgres, MinIO используется только для данных.
+// Индекс обновляется после успешной операции записи в MinIO.
+// При включенном маппинге ключей файлы хранятся под неизменяемыми физическими ключами, а пользовательский путь
+// существует только в индексе, поэтому переименование и перемещение сводятся к обновлению метаданных.
+@Slf4j
+@Primary
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "storage.index", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IndexedS3DaoImpl implements S3Dao {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String PHYSICAL_KEY_PREFIX = "objects/";
+
+    private final MinioDaoImpl delegate;
+    private final ObjectMetadataRepository repository;
+    private final StorageProperties storageProperties;
+    private final ParallelOperationRunner copyOperationRunner;
+
+    @Override
+    public StorageObject uploadObject(String path, String contentType, InputStream inputStream, long objectSize) throws StorageException {
+        if (!isKeyMapping()) {
+            StorageObject uploaded = delegate.uploadObject(path, contentType, inputStream, objectSize);
+            saveMetadata(uploaded);
+            return uploaded;
+        }
+
+        if (repository.existsByPath(path)) {
+            throw new ObjectAlreadyExistException("Object %s already exists".formatted(path));
+        }
+        String physicalKey = newPhysicalKey();
+        StorageObject uploaded = delegate.uploadObject(physicalKey, contentType, inputStream, objectSize);
+        try {
+            var metadata = buildMetadata(path, physicalKey, uploaded.size(), uploaded.etag(), OffsetDateTime.now());
+            metadata.setCrc32(uploaded.crc32());
+            repository.save(metadata);
+        } catch (DataIntegrityViolationException e) {
+            // Путь успели занять параллельно, загруженный объект больше ни на что не ссылается
+            delegate.removeFile(physicalKey);
+            throw new ObjectAlreadyExistException("Object %s already exists".formatted(path), e);
+        }
+        addFolderUsage(path, uploaded.size(), 1);
+        return new StorageObject(path, uploaded.size(), uploaded.etag(), uploaded.lastModified(), uploaded.crc32());
+    }
+
+    @Override
+    public GetObjectResponse getObject(String path) throws StorageException {
+        return delegate.getObject(resolvePhysicalKey(path));
+    }
+
+    @Override
+    public GetObjectResponse getObject(String path, long offset, long length) throws StorageException {
+        return delegate.getObject(resolvePhysicalKey(path), offset, length);
+    }
+
+    @Override
+    public StorageObject getObjectInfo(String path) throws StorageException {
+        return repository.findByPath(path)
+                .map(this::toStorageObject)
+                .orElseThrow(() -> new ObjectNotFoundException("Object %s is missing in index".formatted(path)));
+    }
+
+    @Override
+    public long computeCrc32(String path) throws StorageException {
+        return delegate.computeCrc32(resolvePhysicalKey(path));
+    }
+
+    @Override
+    public void saveCrc32(String path, String etag, long crc32) throws StorageException {
+        repository.updateCrc32(path, etag, crc32);
+    }
+
+    @Override
+    public MultipartUploadHandle createMultipartUpload(String path, String contentType) throws StorageException {
+        return delegate.createMultipartUpload(isKeyMapping() ? newPhysicalKey() : path, contentType);
+    }
+
+    @Override
+    public String uploadPart(MultipartUploadHandle upload, int partNumber, InputStream data, long length) throws StorageException {
+        return delegate.uploadPart(upload, partNumber, data, length);
+    }
+
+    @Override
+    public StorageObject completeMultipartUpload(String path, MultipartUploadHandle upload, Map<Integer, String> partEtags) throws StorageException {
+        if (!isKeyMapping()) {
+            StorageObject uploaded = delegate.completeMultipartUpload(path, upload, partEtags);
+            saveMetadata(uploaded);
+            return uploaded;
+        }
+
+        if (repository.existsByPath(path)) {
+            throw new ObjectAlreadyExistException("Object %s already exists".formatted(path));
+        }
+        StorageObject uploaded = delegate.completeMultipartUpload(path, upload, partEtags);
+        try {
+            repository.save(buildMetadata(path, upload.key(), uploaded.size(), uploaded.etag(), OffsetDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            delegate.removeFile(upload.key());
+            throw new ObjectAlreadyExistException("Object %s already exists".formatted(path), e);
+        }
+        addFolderUsage(path, uploaded.size(), 1);
+        return uploaded;
+    }
+
+    @Override
+    public void abortMultipartUpload(MultipartUploadHandle upload) throws StorageException {
+        delegate.abortMultipartUpload(upload);
+    }
+
+    @Override
+    public String getPresignedDownloadUrl(String path, String filename) throws StorageException {
+        return delegate.getPresignedDownloadUrl(resolvePhysicalKey(path), filename);
+    }
+
+    @Override
+    public PresignedUploadHandle createPresignedUpload(String path) throws StorageException {
+        return delegate.createPresignedUpload(path);
+    }
+
+    @Override
+    public StorageObject completePresignedUpload(String path, String key, long maxSize) throws StorageException {
+        if (!isKeyMapping()) {
+            StorageObject uploaded = delegate.completePresignedUpload(path, key, maxSize);
+            saveMetadata(uploaded);
+            return uploaded;
+        }
+
+        if (repository.existsByPath(path)) {
+            delegate.removeFile(key);
+            throw new ObjectAlreadyExistException("Object %s already exists".formatted(path));
+        }
+        // Промежуточный объект переносится под новый физический ключ, на который ссылок у клиента нет
+        String physicalKey = newPhysicalKey();
+        StorageObject uploaded = delegate.completePresignedUpload(physicalKey, key, maxSize);
+        try {
+            repository.save(buildMetadata(path, physicalKey, uploaded.size(), uploaded.etag(), OffsetDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            delegate.removeFile(physicalKey);
+            throw new ObjectAlreadyExistException("Object %s already exists".formatted(path), e);
+        }
+        addFolderUsage(path, uploaded.size(), 1);
+        return new StorageObject(path, uploaded.size(), uploaded.etag(), uploaded.lastModified());
+    }
+
+    @Override
+    public void createEmptyDirectory(String path) throws StorageException {
+        if (!isKeyMapping()) {
+            delegate.createEmptyDirectory(path);
+            saveMetadata(new StorageObject(path, 0, null, null));
+            return;
+        }
+
+        // Директории в режиме маппинга существуют только в индексе
+        try {
+            repository.save(buildMetadata(path, null, 0, null, OffsetDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            throw new ObjectAlreadyExistException("Object %s already exists".formatted(path), e);
+        }
+    }
+
+    @Override
+    public List<StorageObject> getListObjectsByPath(String path, boolean recursive) throws StorageException {
+        var objects = recursive
+                ? repository.findSubtree(path, getPrefixUpperBound(path))
+                : repository.findAllByParentPathOrderByPath(path);
+        return objects.stream()
+                .map(this::toStorageObject)
+                .toList();
+    }
+
+    @Override
+    public Stream<StorageObject> streamObjectsByPath(String path) throws StorageException {
+        return streamSubtree(path).map(this::toStorageObject);
+    }
+
+    @Override
+    public List<StorageObject> getListObjectsPage(String path, String startAfter, int limit) throws StorageException {
+        // Keyset по индексу (parent_path, path), без курсора начинаем с первого потомка папки
+        return repository.findAllByParentPathAndPathGreaterThanOrderByPath(path,
+                        startAfter != null ? startAfter : path, Limit.of(limit)).stream()
+                .map(this::toStorageObject)
+                .toList();
+    }
+
+    @Override
+    public List<StorageObject> searchByName(String path, String query, int limit) throws StorageException {
+        String name = trimTrailingSlash(query);
+        return repository.searchByName(path, getPrefixUpperBound(path), name, toContainsPattern(name), limit).stream()
+                .map(this::toStorageObject)
+                .toList();
+    }
+
+    // Запрос по индексу уже ограничен limit, поэтому результат читается целиком
+    @Override
+    public Stream<StorageObject> streamByName(String path, String query, int limit) throws StorageException {
+        return searchByName(path, query, limit).stream();
+    }
+
+    @Override
+    public void indexContent(String path, String etag, String text) throws StorageException {
+        repository.updateContent(path, etag, storageProperties.getContentSearch().getLanguage(), text);
+    }
+
+    @Override
+    public List<StorageObject> searchByContent(String path, String query, int limit) throws StorageException {
+        return repository.searchByContent(path, getPrefixUpperBound(path),
+                        storageProperties.getContentSearch().getLanguage(), query, limit).stream()
+                .map(this::toStorageObject)
+                .toList();
+    }
+
+    @Override
+    public boolean isObjectExists(String path) {
+        return repository.existsByPath(path);
+    }
+
+    @Override
+    public Set<String> findExistingPaths(Collection<String> paths) throws StorageException {
+        Set<String> existingPaths = new HashSet<>();
+        for (List<String> batch : Iterables.partition(new HashSet<>(paths), BATCH_SIZE)) {
+            existingPaths.addAll(repository.findExistingPaths(batch));
+        }
+        return existingPaths;
+    }
+
+    @Override
+    public Map<String, FolderUsage> getFolderUsage(Collection<String> paths) throws StorageException {
+        Map<String, FolderUsage> usage = new HashMap<>();
+        for (List<String> batch : Iterables.partition(new HashSet<>(paths), BATCH_SIZE)) {
+            repository.findAllByPathIn(batch)
+                    .forEach(metadata -> usage.put(metadata.getPath(), toFolderUsage(metadata)));
+        }
+        return usage;
+    }
+
+    @Override
+    public void removeFile(String path) throws StorageException {
+        var metadata = repository.findByPath(path);
+        delegate.removeFile(isKeyMapping()
+                ? metadata.map(ObjectMetadata::getPhysicalKey)
+                        .orElseThrow(() -> new ObjectNotFoundException("Object %s is missing in index".formatted(path)))
+                : path);
+        if (repository.deleteByPath(path) > 0) {
+            metadata.ifPresent(removed -> addFolderUsage(path, -removed.getSize(), -1));
+        }
+    }
+
+    @Override
+    public void removeFolder(String path) throws StorageException {
+        removeFolder(path, batch -> {});
+    }
+
+    // Записи удаляются из индекса после каждой пачки, поэтому прерванное или частично неудачное удаление
+    // оставляет в индексе ровно то, что осталось в хранилище, и папку можно удалить повторно
+    @Override
+    public void removeFolder(String path, Consumer<DeleteBatchResult> progress) throws StorageException {
+        LongAdder removedBytes = new LongAdder();
+        LongAdder removedFiles = new LongAdder();
+        Consumer<DeleteBatchResult> indexedProgress = batch -> {
+            if (!batch.deletedKeys().isEmpty()) {
+                var removed = repository.deleteByPhysicalKeys(batch.deletedKeys());
+                removedBytes.add(removed.getTotalSize());
+                removedFiles.add(removed.getObjectCount());
+            }
+            progress.accept(batch);
+        };
+        try {
+            if (isKeyMapping()) {
+                try (var subtree = streamSubtree(path)) {
+                    delegate.removeObjects(path, subtree
+                            .map(ObjectMetadata::getPhysicalKey)
+                            .filter(Objects::nonNull), indexedProgress);
+                }
+            } else {
+                delegate.removeFolder(path, indexedProgress);
+            }
+        } catch (RuntimeException e) {
+            // Счетчики оставшихся папок поддерева пересчитываются по уцелевшим записям
+            addFolderUsage(path, -removedBytes.sum(), -removedFiles.sum());
+            repository.recomputeFolderUsage(path, getPrefixUpperBound(path));
+            throw e;
+        }
+        // Предки уменьшаются ровно на удаленные записи, загруженное параллельно не теряется
+        var removed = repository.deleteSubtree(path, getPrefixUpperBound(path));
+        addFolderUsage(path, -removedBytes.sum() - removed.getTotalSize(), -removedFiles.sum() - removed.getObjectCount());
+        log.debug("Removed {} files from index under {}", removedFiles.sum() + removed.getObjectCount(), path);
+    }
+
+    @Override
+    public void copyFile(String from, String to) throws StorageException {
+        var source = repository.findByPath(from)
+                .orElseThrow(() -> new ObjectNotFoundException("Object %s is missing in index".formatted(from)));
+        if (!isKeyMapping()) {
+            delegate.copyFile(from, to);
+            var metadata = buildMetadata(to, to, source.getSize(), source.getEtag(), OffsetDateTime.now());
+            metadata.setCrc32(source.getCrc32());
+            repository.save(metadata);
+        } else {
+            Queue<ObjectMetadata> created = new ConcurrentLinkedQueue<>();
+            try {
+                copyMappedObject(source, to, created);
+            } catch (RuntimeException e) {
+                rollbackMappedCopy(to, created, e);
+                // Уцелевшая после отката запись учитывается в предках
+                if (!created.isEmpty() && repository.existsByPath(to)) {
+                    addFolderUsage(to, source.getSize(), 1);
+                }
+                throw e;
+            }
+        }
+        repository.copyContent(from, to);
+        addFolderUsage(to, source.getSize(), 1);
+    }
+
+    @Override
+    public void copyFolder(String from, String to) throws StorageException {
+        if (!isKeyMapping()) {
+            delegate.copyFolder(from, to);
+            int copied = repository.copySubtree(from, getPrefixUpperBound(from), to,
+                    getParentPath(to, false), extractNameFromPath(to), extractRootDirectory(to));
+            log.debug("Copied {} index entries from {} to {}", copied, from, to);
+            // Счетчики папок скопированы вместе с записями, остается учесть копию в предках
+            repository.findByPath(to).ifPresent(copy -> addFolderUsage(to, copy.getTotalSize(), copy.getObjectCount()));
+            return;
+        }
+
+        // Запись индекса сохраняется до копирования объекта, поэтому при сбое или отмене по дедлайну
+        // откат находит физические ключи всех начатых копий. Удаляются только созданные записи:
+        // объекты, загруженные в целевую папку параллельно, остаются
+        Queue<ObjectMetadata> created = new ConcurrentLinkedQueue<>();
+        try (var subtree = streamSubtree(from)) {
+            var copyTasks = subtree
+                    .map(source -> (Runnable) () -> copyMappedObject(source,
+                            to.concat(getRelativePath(source.getPath(), from)), created))
+                    .iterator();
+            copyOperationRunner.runAll(copyTasks);
+        } catch (RuntimeException e) {
+            rollbackMappedCopy(to, created, e);
+            addCopiedFolderUsage(to);
+            throw e;
+        }
+        repository.copySubtreeContent(from, getPrefixUpperBound(from), to);
+        addCopiedFolderUsage(to);
+    }
+
+    @Override
+    public void moveFile(String from, String to) throws StorageException {
+        var metadata = repository.findByPath(from)
+                .orElseThrow(() -> new ObjectNotFoundException("Object %s is missing in index".formatted(from)));
+        if (!isKeyMapping()) {
+            delegate.moveFile(from, to);
+            metadata.setPhysicalKey(to);
+        }
+        metadata.setPath(to);
+        metadata.setParentPath(getParentPath(to, false));
+        metadata.setName(extractNameFromPath(to));
+        metadata.setOwner(extractRootDirectory(to));
+        repository.save(metadata);
+        addFolderUsage(from, -metadata.getSize(), -1);
+        addFolderUsage(to, metadata.getSize(), 1);
+    }
+
+    @Override
+    public void moveFolder(String from, String to) throws StorageException {
+        moveFolder(from, to, object -> {});
+    }
+
+    // С отображением ключей объекты не копируются, меняются только пути в индексе, поэтому прогресса нет
+    @Override
+    public void moveFolder(String from, String to, Consumer<StorageObject> progress) throws StorageException {
+        if (!isKeyMapping()) {
+            try {
+                delegate.moveFolder(from, to, progress);
+            } catch (IncompleteMoveException e) {
+                // Копия полная, поэтому индекс переносится как при успехе, а уцелевшие объекты источника
+                // индексируются заново по листингу
+                moveIndexedSubtree(from, to);
+                var remaining = indexMissing(from);
+                repository.recomputeFolderUsage(from, getPrefixUpperBound(from));
+                addFolderUsage(from, remaining.size(), remaining.objectCount());
+                throw e;
+            }
+        }
+        moveIndexedSubtree(from, to);
+    }
+
+    // Полная переиндексация бакета, нужна при включении индекса на уже заполненном хранилище
+    public void rebuildIndex() {
+        if (isKeyMapping()) {
+            log.warn("Index rebuild is not supported with key mapping enabled: paths are stored only in the index");
+            return;
+        }
+        log.info("Rebuilding object metadata index from storage");
+        indexMissing("");
+        repository.recomputeFolderUsage("", MAX_PATH);
+        log.info("Object metadata index rebuilt");
+    }
+
+    // Добавляет в индекс объекты поддерева, которых в нем нет, и возвращает суммарный размер добавленных файлов
+    private FolderUsage indexMissing(String path) {
+        List<ObjectMetadata> batch = new ArrayList<>(BATCH_SIZE);
+        LongAdder indexedBytes = new LongAdder();
+        LongAdder indexedFiles = new LongAdder();
+        try (var storageObjects = delegate.streamObjectsByPath(path)) {
+            storageObjects
+                    .filter(object -> !object.objectName().startsWith(MinioDaoImpl.PRESIGNED_STAGING_PREFIX))
+                    .filter(object -> !repository.existsByPath(object.objectName()))
+                    .forEach(object -> {
+                        batch.add(buildMetadata(object));
+                        if (!isFolder(object.objectName())) {
+                            indexedBytes.add(object.size());
+                            indexedFiles.increment();
+                        }
+                        if (batch.size() == BATCH_SIZE) {
+                            repository.saveAll(batch);
+                            batch.clear();
+                        }
+                    });
+        }
+        repository.saveAll(batch);
+        return new FolderUsage(indexedBytes.sum(), indexedFiles.sum());
+    }
+
+    private void moveIndexedSubtree(String from, String to) {
+        var moved = repository.moveSubtree(from, getPrefixUpperBound(from), to,
+                getParentPath(to, false), extractNameFromPath(to), extractRootDirectory(to), !isKeyMapping());
+        log.debug("Moved {} files in index from {} to {}", moved.getObjectCount(), from, to);
+        addFolderUsage(from, -moved.getTotalSize(), -moved.getObjectCount());
+        addFolderUsage(to, moved.getTotalSize(), moved.getObjectCount());
+    }
+
+    private void saveMetadata(StorageObject object) {
+        var existing = repository.findByPath(object.objectName());
+        long previousSize = existing.map(ObjectMetadata::getSize).orElse(0L);
+        var metadata = existing
+                .map(indexed -> {
+                    // Сумму без новой не затираем, пока содержимое файла не изменилось
+                    if (object.crc32() != null || !Objects.equals(indexed.getEtag(), object.etag())) {
+                        indexed.setCrc32(object.crc32());
+                    }
+                    indexed.setSize(object.size());
+                    indexed.setEtag(object.etag());
+                    indexed.setLastModified(OffsetDateTime.now());
+                    return indexed;
+                })
+                .orElseGet(() -> buildMetadata(object));
+        repository.save(metadata);
+        if (!isFolder(object.objectName())) {
+            addFolderUsage(object.objectName(), object.size() - previousSize, existing.isPresent() ? 0 : 1);
+        }
+    }
+
+    // Спецсимволы like в запросе экранируются, чтобы искались буквально
+    private String toContainsPattern(String query) {
+        return "%" + query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    // Изменение поддерева учитывается во всех папках-предках пути
+    private void addFolderUsage(String path, long bytes, long objects) {
+        var ancestors = getAncestorPaths(path);
+        if (!ancestors.isEmpty() && (bytes != 0 || objects != 0)) {
+            repository.addFolderUsage(ancestors, bytes, objects);
+        }
+    }
+
+    private FolderUsage toFolderUsage(ObjectMetadata metadata) {
+        return new FolderUsage(metadata.getTotalSize(), metadata.getObjectCount());
+    }
+
+    private ObjectMetadata buildMetadata(StorageObject object) {
+        OffsetDateTime lastModified = object.lastModified() != null
+                ? object.lastModified().toOffsetDateTime()
+                : OffsetDateTime.now();
+        var metadata = buildMetadata(object.objectName(), object.objectName(), object.size(), object.etag(), lastModified);
+        metadata.setCrc32(object.crc32());
+        return metadata;
+    }
+
+    private ObjectMetadata buildMetadata(String path, String physicalKey, long size, String etag, OffsetDateTime lastModified) {
+        return ObjectMetadata.builder()
+                .path(path)
+                .physicalKey(physicalKey)
+                .parentPath(getParentPath(path, false))
+                .name(extractNameFromPath(path))
+                .size(size)
+                .type(isFolder(path) ? DIRECTORY : FILE)
+                .etag(etag)
+                .lastModified(lastModified)
+                .owner(extractRootDirectory(path))
+                .build();
+    }
+
+    // Папки копии создаются параллельно с файлами, поэтому их счетчики считаются после копирования
+    private void addCopiedFolderUsage(String to) {
+        repository.recomputeFolderUsage(to, getPrefixUpperBound(to));
+        repository.findByPath(to).ifPresent(copy -> addFolderUsage(to, copy.getTotalSize(), copy.getObjectCount()));
+    }
+
+    // Физический ключ попадает в индекс до копирования: объект, докопированный прерванной задачей,
+    // не остается в хранилище без ссылки на него
+    private void copyMappedObject(ObjectMetadata source, String to, Queue<ObjectMetadata> created) {
+        if (source.getPhysicalKey() == null) {
+            var folder = buildMetadata(to, null, 0, null, OffsetDateTime.now());
+            repository.save(folder);
+            created.add(folder);
+            return;
+        }
+
+        String physicalKey = newPhysicalKey();
+        var metadata = buildMetadata(to, physicalKey, source.getSize(), source.getEtag(), OffsetDateTime.now());
+        metadata.setCrc32(source.getCrc32());
+        try {
+            repository.save(metadata);
+            created.add(metadata);
+        } catch (DataIntegrityViolationException e) {
+            throw new ObjectAlreadyExistException("Object %s already exists".formatted(to), e);
+        }
+        try {
+            delegate.copyObject(source.getPhysicalKey(), physicalKey, source.getSize(), null);
+        } catch (RuntimeException e) {
+            // Если убрать копию не удалось, запись остается и ключ удаляется вместе с ней при откате
+            try {
+                delegate.removeFile(physicalKey);
+                repository.delete(metadata);
+                created.remove(metadata);
+            } catch (RuntimeException cleanupException) {
+                e.addSuppressed(cleanupException);
+            }
+            throw e;
+        }
+    }
+
+    // Записи файлов удаляются по мере удаления их ключей, записи папок - только если удалились все файлы
+    private void rollbackMappedCopy(String to, Queue<ObjectMetadata> created, RuntimeException cause) {
+        if (created.isEmpty()) {
+            return;
+        }
+        log.error("Error copying to {}, removing {} created index entries", to, created.size(), cause);
+        try {
+            delegate.removeObjects(to, created.stream()
+                    .map(ObjectMetadata::getPhysicalKey)
+                    .filter(Objects::nonNull), batch -> {
+                if (!batch.deletedKeys().isEmpty()) {
+                    repository.deleteByPhysicalKeys(batch.deletedKeys());
+                }
+            });
+            repository.deleteAll(created.stream()
+                    .filter(metadata -> metadata.getPhysicalKey() == null)
+                    .toList());
+        } catch (RuntimeException cleanupException) {
+            cause.addSuppressed(cleanupException);
+        }
+    }
+
+    // Постраничное чтение поддерева по индексу, следующая страница запрашивается после последнего пути предыдущей
+    private Stream<ObjectMetadata> streamSubtree(String path) {
+        String upperBound = getPrefixUpperBound(path);
+        var firstPage = repository.findAllByPathGreaterThanEqualAndPathLessThanOrderByPath(path, upperBound, Limit.of(BATCH_SIZE));
+        return Stream.iterate(firstPage,
+                        page -> !page.isEmpty(),
+                        page -> page.size() < BATCH_SIZE
+                                ? List.of()
+                                : repository.findAllByPathGreaterThanAndPathLessThanOrderByPath(
+                                        page.getLast().getPath(), upperBound, Limit.of(BATCH_SIZE)))
+                .flatMap(List::stream);
+    }
+
+    // Без маппинга физический ключ совпадает с путем, в том числе для объектов, еще не попавших в индекс
+    private String resolvePhysicalKey(String path) {
+        if (!isKeyMapping()) {
+            return path;
+        }
+        return repository.findByPath(path)
+                .map(ObjectMetadata::getPhysicalKey)
+                .orElseThrow(() -> new ObjectNotFoundException("Object %s is missing in index".formatted(path)));
+    }
+
+    private String newPhysicalKey() {
+        return PHYSICAL_KEY_PREFIX + UUID.randomUUID();
+    }
+
+    private boolean isKeyMapping() {
+        return storageProperties.getIndex().isKeyMapping();
+    }
+
+    private StorageObject toStorageObject(ObjectMetadata metadata) {
+        return new StorageObject(metadata.getPath(), metadata.getSize(), metadata.getEtag(),
+                metadata.getLastModified().toZonedDateTime(), metadata.getCrc32());
+    }
+}
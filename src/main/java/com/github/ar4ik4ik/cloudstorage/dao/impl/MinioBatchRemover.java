@@ -0,0 +1,87 @@
+package com.github.ar4ik4ik.cloudstorage.dao.impl;
+
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.DeleteBatchResult;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelOperationRunner;
+import com.google.common.collect.Iterators;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Удаление большого числа объектов: ключи читаются лениво и отправляются пачками не больше лимита DeleteObjects,
+// одновременно выполняется не больше parallelism запросов. В памяти находится не больше parallelism пачек
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MinioBatchRemover {
+
+    // Ограничение S3 на количество ключей в одном запросе DeleteObjects
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    @Value("${minio.bucket}")
+    private String bucket;
+
+    private final MinioClient minioClient;
+    private final ParallelOperationRunner deleteOperationRunner;
+    private final StorageProperties storageProperties;
+
+    // Ошибки удаления отдельных ключей не прерывают остальные пачки, а собираются и пробрасываются в конце
+    public void removeAll(String operationPath, Iterator<String> keys, Consumer<DeleteBatchResult> progress) throws StorageException {
+        int batchSize = Math.clamp(storageProperties.getDelete().getBatchSize(), 1, MAX_BATCH_SIZE);
+        AtomicInteger batchCounter = new AtomicInteger();
+        AtomicLong deleted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        var deleteTasks = Iterators.transform(Iterators.partition(keys, batchSize),
+                batch -> {
+                    // Номер присваивается в порядке чтения ключей, а не завершения запросов
+                    int batchNumber = batchCounter.incrementAndGet();
+                    return (Runnable) () -> {
+                        var result = removeBatch(batchNumber, batch);
+                        deleted.addAndGet(result.deleted());
+                        failed.addAndGet(result.failures().size());
+                        progress.accept(result);
+                    };
+                });
+        deleteOperationRunner.runAll(deleteTasks);
+
+        log.debug("Deleted {} objects in {} batches under {}", deleted.get(), batchCounter.get(), operationPath);
+        if (failed.get() > 0) {
+            throw new StorageException("Failed to delete %d of %d objects under %s"
+                    .formatted(failed.get(), deleted.get() + failed.get(), operationPath));
+        }
+    }
+
+    private DeleteBatchResult removeBatch(int batchNumber, List<String> keys) {
+        var deleteResults = minioClient.removeObjects(RemoveObjectsArgs.builder()
+                .bucket(bucket)
+                .objects(keys.stream().map(DeleteObject::new).toList())
+                .build());
+        List<DeleteBatchResult.Failure> failures = new ArrayList<>();
+        for (Result<DeleteError> result : deleteResults) {
+            try {
+                DeleteError deleteError = result.get();
+                log.warn("Failed to delete object {} in bucket {}: {}",
+                        deleteError.objectName(), deleteError.bucketName(), deleteError.message());
+                failures.add(new DeleteBatchResult.Failure(deleteError.objectName(), deleteError.code(), deleteError.message()));
+            } catch (Exception e) {
+                throw new StorageException("Failed to delete batch %d of %d objects".formatted(batchNumber, keys.size()), e);
+            }
+        }
+        return new DeleteBatchResult(batchNumber, keys, failures);
+    }
+}
@@ -2,15 +2,22 @@ package com.github.ar4ik4ik.cloudstorage.dao.impl;
 
 import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
 import com.github.ar4ik4ik.cloudstorage.exception.*;
+import com.github.ar4ik4ik.cloudstorage.model.DeleteBatchResult;
+import com.github.ar4ik4ik.cloudstorage.model.FolderUsage;
+import com.github.ar4ik4ik.cloudstorage.model.MultipartUploadHandle;
+import com.github.ar4ik4ik.cloudstorage.model.PresignedUploadHandle;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.utils.ObjectInfoCache;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelOperationRunner;
 import com.github.ar4ik4ik.cloudstorage.utils.PathUtils;
 import io.minio.*;
 import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
 import io.minio.errors.InternalException;
 import io.minio.errors.MinioException;
 import io.minio.errors.ServerException;
-import io.minio.messages.DeleteError;
-import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import io.minio.messages.Part;
 import io.minio.messages.Tags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,13 +27,29 @@ import org.springframework.stereotype.Repository;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import static com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto.ResourceType.DIRECTORY;
 import static com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto.ResourceType.FILE;
@@ -36,39 +59,195 @@ import static com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto
 @Repository
 public class MinioDaoImpl implements S3Dao {
 
+    // Ограничение S3 на размер источника для CopyObject, объекты больше копируются через multipart compose
+    private static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+    // Суффикс, который в порядке ключей S3 идет после любого ключа с тем же началом
+    private static final String MAX_KEY_SUFFIX = Character.toString(Character.MAX_CODE_POINT);
+    // До этого числа путей существование проверяется отдельными statObject, а не листингом
+    private static final int STAT_LOOKUP_LIMIT = 16;
+    // Промежуточные ключи загрузок по подписанным ссылкам, вне корневых папок пользователей
+    public static final String PRESIGNED_STAGING_PREFIX = "tmp/";
+
     @Value("${minio.bucket}")
     private String bucket;
 
     private final MinioClient minioClient;
+    private final ParallelOperationRunner copyOperationRunner;
+    private final ObjectInfoCache objectInfoCache;
+    private final MinioMultipartUploader multipartUploader;
+    private final MinioPresigner presigner;
+    private final MinioBatchRemover batchRemover;
 
     @Override
-    public void uploadObject(String path, String contentType, InputStream inputStream, long objectSize) throws StorageException {
+    public StorageObject uploadObject(String path, String contentType, InputStream inputStream, long objectSize) throws StorageException {
+        // Контрольная сумма считается по ходу загрузки, содержимое читается один раз
+        var checkedStream = new CheckedInputStream(inputStream, new CRC32());
         try {
-            minioClient.putObject(PutObjectArgs.builder()
+            var response = multipartUploader.isMultipart(objectSize)
+                    ? multipartUploader.upload(path, contentType, checkedStream, objectSize)
+                    : minioClient.putObject(PutObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(path)
+                            .contentType(contentType)
+                            .headers(Map.of("If-None-Match", "*"))
+                            .stream(checkedStream, objectSize, -1)
+                            .tags(Map.of("type", FILE.name()))
+                            .build());
+            objectInfoCache.invalidate(path);
+            return new StorageObject(path, objectSize, normalizeEtag(response.etag()), ZonedDateTime.now(),
+                    checkedStream.getChecksum().getValue());
+        } catch (Exception e) {
+            throw mapExceptionToDomain("uploadObject", path, e);
+        }
+    }
+
+    @Override
+    public GetObjectResponse getObject(String path) throws StorageException {
+        try {
+            return minioClient.getObject(GetObjectArgs.builder()
                     .bucket(bucket)
                     .object(path)
-                    .contentType(contentType)
-                    .headers(Map.of("If-None-Match", "*"))
-                    .stream(inputStream, objectSize, -1)
-                    .tags(Map.of("type", FILE.name()))
                     .build());
         } catch (Exception e) {
-            throw mapExceptionToDomain("uploadObject", path, e);
+            throw mapExceptionToDomain("getObject", path, e);
         }
     }
 
     @Override
-    public GetObjectResponse getObject(String path) throws StorageException {
+    public GetObjectResponse getObject(String path, long offset, long length) throws StorageException {
         try {
             return minioClient.getObject(GetObjectArgs.builder()
                     .bucket(bucket)
                     .object(path)
+                    .offset(offset)
+                    .length(length)
                     .build());
         } catch (Exception e) {
             throw mapExceptionToDomain("getObject", path, e);
         }
     }
 
+    @Override
+    public long computeCrc32(String path) throws StorageException {
+        try (var checkedStream = new CheckedInputStream(getObject(path), new CRC32())) {
+            checkedStream.transferTo(OutputStream.nullOutputStream());
+            return checkedStream.getChecksum().getValue();
+        } catch (IOException e) {
+            throw mapExceptionToDomain("computeCrc32", path, e);
+        }
+    }
+
+    @Override
+    public void saveCrc32(String path, String etag, long crc32) throws StorageException {
+    }
+
+    @Override
+    public StorageObject getObjectInfo(String path) throws StorageException {
+        return objectInfoCache.get(path, this::statObject)
+                .orElseThrow(ObjectNotFoundException::new);
+    }
+
+    @Override
+    public MultipartUploadHandle createMultipartUpload(String path, String contentType) throws StorageException {
+        try {
+            return new MultipartUploadHandle(path, multipartUploader.createUpload(path, contentType));
+        } catch (Exception e) {
+            throw mapExceptionToDomain("createMultipartUpload", path, e);
+        }
+    }
+
+    @Override
+    public String uploadPart(MultipartUploadHandle upload, int partNumber, InputStream data, long length) throws StorageException {
+        try {
+            return multipartUploader.uploadPart(upload.key(), upload.uploadId(), partNumber, data, length);
+        } catch (InsufficientDataException e) {
+            throw new IllegalArgumentException("Part body is shorter than declared length %d".formatted(length), e);
+        } catch (Exception e) {
+            throw mapExceptionToDomain("uploadPart", upload.key(), e);
+        }
+    }
+
+    @Override
+    public StorageObject completeMultipartUpload(String path, MultipartUploadHandle upload, Map<Integer, String> partEtags) throws StorageException {
+        Part[] parts = new TreeMap<>(partEtags).entrySet().stream()
+                .map(part -> new Part(part.getKey(), part.getValue()))
+                .toArray(Part[]::new);
+        try {
+            multipartUploader.completeUpload(upload.key(), upload.uploadId(), parts);
+        } catch (Exception e) {
+            throw mapExceptionToDomain("completeMultipartUpload", upload.key(), e);
+        }
+        objectInfoCache.invalidate(upload.key());
+        var uploaded = getObjectInfo(upload.key());
+        return new StorageObject(path, uploaded.size(), uploaded.etag(), uploaded.lastModified());
+    }
+
+    @Override
+    public void abortMultipartUpload(MultipartUploadHandle upload) throws StorageException {
+        try {
+            multipartUploader.abortUpload(upload.key(), upload.uploadId());
+        } catch (Exception e) {
+            throw mapExceptionToDomain("abortMultipartUpload", upload.key(), e);
+        }
+    }
+
+    @Override
+    public String getPresignedDownloadUrl(String path, String filename) throws StorageException {
+        try {
+            return presigner.presignDownload(path, filename);
+        } catch (Exception e) {
+            throw mapExceptionToDomain("getPresignedDownloadUrl", path, e);
+        }
+    }
+
+    // Ссылка подписывается на новый промежуточный ключ, а не на итоговый путь: ссылкой можно пользоваться
+    // до истечения срока, и иначе ею можно было бы перезаписать существующий или уже подтвержденный файл
+    @Override
+    public PresignedUploadHandle createPresignedUpload(String path) throws StorageException {
+        String key = PRESIGNED_STAGING_PREFIX + UUID.randomUUID();
+        try {
+            return new PresignedUploadHandle(key, presigner.presignUpload(key));
+        } catch (Exception e) {
+            throw mapExceptionToDomain("createPresignedUpload", key, e);
+        }
+    }
+
+    // Загруженный объект копируется на итоговый путь с If-None-Match, промежуточный ключ после этого удаляется.
+    // Повторная загрузка по той же ссылке создаст только новый промежуточный объект, его уберет AbandonedUploadSweeper
+    @Override
+    public StorageObject completePresignedUpload(String path, String key, long maxSize) throws StorageException {
+        var staged = statObject(key)
+                .orElseThrow(() -> new ObjectNotFoundException("Object %s was not uploaded".formatted(key)));
+        if (staged.size() > maxSize) {
+            removeFile(key);
+            throw new IllegalArgumentException("Uploaded object size %d exceeds the maximum of %d bytes"
+                    .formatted(staged.size(), maxSize));
+        }
+        try {
+            copyObject(key, path, staged.size(), staged.contentType());
+        } catch (ObjectAlreadyExistException e) {
+            removeFile(key);
+            throw e;
+        }
+        removeFile(key);
+        var uploaded = getObjectInfo(path);
+        return new StorageObject(path, uploaded.size(), uploaded.etag(), uploaded.lastModified());
+    }
+
+    // Промежуточные объекты старше abandonedBefore уже не могут быть подтверждены
+    public int removeAbandonedPresignedUploads(ZonedDateTime abandonedBefore) throws StorageException {
+        try (var staged = listObjects(PRESIGNED_STAGING_PREFIX, true)) {
+            var abandoned = staged
+                    .filter(object -> object.lastModified().isBefore(abandonedBefore))
+                    .map(StorageObject::objectName)
+                    .toList();
+            if (!abandoned.isEmpty()) {
+                removeObjects(PRESIGNED_STAGING_PREFIX, abandoned.stream(), batch -> {});
+            }
+            return abandoned.size();
+        }
+    }
+
     @Override
     public void createEmptyDirectory(String path) throws StorageException {
         try {
@@ -80,43 +259,117 @@ public class MinioDaoImpl implements S3Dao {
                     .tags(Tags.newObjectTags(Map.of("type", DIRECTORY.name())))
                     .stream(new ByteArrayInputStream(new byte[0]), 0, -1)
                     .build());
+            objectInfoCache.invalidate(path);
         } catch (Exception e) {
             throw mapExceptionToDomain("createEmptyDirectory", path, e);
         }
     }
 
     @Override
-    public List<Item> getListObjectsByPath(String path, boolean recursive) throws StorageException {
-        var storageObjectsIterator = minioClient.listObjects(ListObjectsArgs.builder()
+    public List<StorageObject> getListObjectsByPath(String path, boolean recursive) throws StorageException {
+        try (var storageObjects = listObjects(path, recursive)) {
+            return storageObjects.toList();
+        }
+    }
+
+    @Override
+    public Stream<StorageObject> streamObjectsByPath(String path) throws StorageException {
+        return listObjects(path, true);
+    }
+
+    // Без индекса поиск сводится к полному рекурсивному листингу папки
+    @Override
+    public List<StorageObject> searchByName(String path, String query, int limit) throws StorageException {
+        try (var found = streamByName(path, query, limit)) {
+            return found.toList();
+        }
+    }
+
+    // Страницы листинга запрашиваются по мере чтения, поэтому после limit совпадений или закрытия потока
+    // оставшаяся часть дерева не читается
+    @Override
+    public Stream<StorageObject> streamByName(String path, String query, int limit) throws StorageException {
+        var normalizedQuery = PathUtils.trimTrailingSlash(query).toLowerCase();
+        return listObjects(path, true)
+                .filter(object -> !object.objectName().equals(path))
+                .filter(object -> PathUtils.trimTrailingSlash(PathUtils.extractNameFromPath(object.objectName()))
+                        .toLowerCase().contains(normalizedQuery))
+                .limit(limit);
+    }
+
+    @Override
+    public void indexContent(String path, String etag, String text) throws StorageException {
+        throw new UnsupportedOperationException("Content index requires storage.index.enabled");
+    }
+
+    @Override
+    public List<StorageObject> searchByContent(String path, String query, int limit) throws StorageException {
+        throw new UnsupportedOperationException("Content search requires storage.index.enabled");
+    }
+
+    @Override
+    public List<StorageObject> getListObjectsPage(String path, String startAfter, int limit) throws StorageException {
+        var storageObjects = minioClient.listObjects(ListObjectsArgs.builder()
                 .bucket(bucket)
                 .prefix(path)
-                .recursive(recursive)
                 .delimiter("/")
-                .build()).iterator();
-        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(storageObjectsIterator, Spliterator.ORDERED), false)
-                .map(item -> {
-                    try {
-                        return item.get();
-                    } catch (Exception e) {
-                        throw mapExceptionToDomain("getListObjectsByPath", path, e);
-                    }
-                })
-                .toList();
+                .startAfter(toListingStartAfter(path, startAfter))
+                .maxKeys(limit)
+                .build());
+        List<StorageObject> page = new ArrayList<>(limit);
+        for (Result<Item> item : storageObjects) {
+            if (page.size() == limit) {
+                break;
+            }
+            try {
+                page.add(toStorageObject(item.get()));
+            } catch (Exception e) {
+                throw mapExceptionToDomain("getListObjectsPage", path, e);
+            }
+        }
+        return page;
     }
 
     @Override
     public boolean isObjectExists(String path) {
         try {
-            minioClient.statObject(StatObjectArgs.builder()
-                            .bucket(bucket)
-                            .object(path)
-                    .build());
-            return true;
-        } catch (Exception e) {
+            return objectInfoCache.get(path, this::statObject).isPresent();
+        } catch (StorageException e) {
             return false;
         }
     }
 
+    // Немного путей проверяется через кэш метаданных. Для большого набора каждая родительская папка читается
+    // одним нерекурсивным листингом: рекурсивное чтение общей папки обошло бы все ее поддерево
+    @Override
+    public Set<String> findExistingPaths(Collection<String> paths) throws StorageException {
+        Set<String> requestedPaths = new HashSet<>(paths);
+        if (requestedPaths.size() <= STAT_LOOKUP_LIMIT) {
+            return requestedPaths.stream()
+                    .filter(path -> objectInfoCache.get(path, this::statObject).isPresent())
+                    .collect(Collectors.toSet());
+        }
+        Set<String> parents = requestedPaths.stream()
+                .map(path -> PathUtils.getParentPath(path, false))
+                .collect(Collectors.toSet());
+        Set<String> existingPaths = new HashSet<>();
+        for (String parent : parents) {
+            try (var storageObjects = listObjects(parent, false)) {
+                storageObjects
+                        .map(StorageObject::objectName)
+                        .filter(requestedPaths::contains)
+                        .forEach(existingPaths::add);
+            }
+        }
+        return existingPaths;
+    }
+
+    // В бакете размер папки можно узнать только полным обходом поддерева, поэтому счетчиков нет
+    @Override
+    public Map<String, FolderUsage> getFolderUsage(Collection<String> paths) throws StorageException {
+        return Map.of();
+    }
+
     @Override
     public void removeFile(String path) throws StorageException {
         try {
@@ -124,6 +377,7 @@ public class MinioDaoImpl implements S3Dao {
                     .bucket(bucket)
                     .object(path)
                     .build());
+            objectInfoCache.invalidate(path);
         } catch (Exception e) {
             throw mapExceptionToDomain("removeFile", path, e);
         }
@@ -132,64 +386,202 @@ public class MinioDaoImpl implements S3Dao {
 
     @Override
     public void removeFolder(String path) throws StorageException {
-        List<DeleteObject> storageObjectsToRemove = getListObjectsByPath(path, true).stream()
-                .map(object -> new DeleteObject(object.objectName()))
-                .toList();
-        if (storageObjectsToRemove.isEmpty()) {
-            log.info("No objects found to remove from folder: {}", path);
-            return;
+        removeFolder(path, batch -> {});
+    }
+
+    @Override
+    public void removeFolder(String path, Consumer<DeleteBatchResult> progress) throws StorageException {
+        try (var storageObjects = streamObjectsByPath(path)) {
+            removeObjects(path, storageObjects.map(StorageObject::objectName), progress);
+        } finally {
+            objectInfoCache.invalidatePrefix(path);
         }
+    }
 
-        var deleteResults = minioClient.removeObjects(RemoveObjectsArgs.builder()
-                .bucket(bucket)
-                .objects(storageObjectsToRemove)
-                .build());
-        for (Result<DeleteError> result : deleteResults) {
-            try {
-                DeleteError deleteError = result.get();
-                log.warn("Failed to delete object: {}\nIn bucket: {}:{}",
-                        deleteError.objectName(), deleteError.bucketName(), deleteError.message());
-            } catch (Exception e) {
-                throw mapExceptionToDomain("removeFolder", path, e);
-            }
+    // Ключи вычитываются лениво по мере отправки пачек, весь листинг в памяти не собирается
+    public void removeObjects(String operationPath, Stream<String> keys, Consumer<DeleteBatchResult> progress) throws StorageException {
+        try {
+            batchRemover.removeAll(operationPath, keys.peek(objectInfoCache::invalidate).iterator(), progress);
+        } catch (StorageException e) {
+            throw e;
+        } catch (Exception e) {
+            throw mapExceptionToDomain("removeObjects", operationPath, e);
         }
     }
 
     @Override
     public void copyFile(String from, String to) throws StorageException {
+        var source = getObjectInfo(from);
+        copyObject(from, to, source.size(), source.contentType());
+    }
+
+    @Override
+    public void copyFolder(String from, String to) throws StorageException {
+        // Откат удаляет только созданные этим копированием ключи, чужие объекты в целевой папке не трогаются
+        Set<String> copiedKeys = ConcurrentHashMap.newKeySet();
         try {
-            minioClient.copyObject(CopyObjectArgs.builder()
-                    .bucket(bucket)
-                    .object(to)
-                    .source(CopySource.builder()
-                            .bucket(bucket)
-                            .object(from)
-                            .build())
-                    .headers(Map.of("If-None-Match", "*"))
-                    .build());
-        } catch (Exception e) {
-            throw mapExceptionToDomain("copyFile", from, e);
+            copyFolder(from, to, object -> {}, copiedKeys);
+        } catch (StorageException e) {
+            log.error("Error copying folder from {} to {}, removing {} copied objects", from, to, copiedKeys.size(), e);
+            rollbackCopy(to, copiedKeys, e);
+            throw e;
+        }
+    }
+
+    // Ключ попадает в copiedKeys до копирования, чтобы откат учел и копии, прерванные по дедлайну уже после
+    // выполнения запроса. Ключ, который уже занят другим объектом, из набора убирается и при откате не удаляется
+    private void copyFolder(String from, String to, Consumer<StorageObject> progress, Set<String> copiedKeys) throws StorageException {
+        try (var storageObjects = streamObjectsByPath(from)) {
+            var copyTasks = storageObjects
+                    .map(object -> (Runnable) () -> {
+                        String target = to.concat(PathUtils.getRelativePath(object.objectName(), from));
+                        copiedKeys.add(target);
+                        try {
+                            copyObject(object.objectName(), target, object.size(), object.contentType());
+                        } catch (ObjectAlreadyExistException e) {
+                            copiedKeys.remove(target);
+                            throw e;
+                        }
+                        progress.accept(object);
+                    })
+                    .iterator();
+            copyOperationRunner.runAll(copyTasks);
         }
     }
 
     @Override
-    public void copyFolder(String from, String to) throws StorageException {
-        List<Item> storageObjects = getListObjectsByPath(from, true);
-        storageObjects.forEach(object -> {
-            try {
+    public void moveFile(String from, String to) throws StorageException {
+        copyFile(from, to);
+        try {
+            removeFile(from);
+        } catch (StorageException e) {
+            // Попытка ручного отката, если не удалось удалить источник
+            removeFile(to);
+            log.error("Error moving file, rolling back", e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void moveFolder(String from, String to) throws StorageException {
+        moveFolder(from, to, object -> {});
+    }
+
+    @Override
+    public void moveFolder(String from, String to, Consumer<StorageObject> progress) throws StorageException {
+        // Откат удаляет только скопированные этим перемещением ключи: пока операция ждала в очереди,
+        // в целевой папке могли появиться чужие объекты
+        Set<String> copiedKeys = ConcurrentHashMap.newKeySet();
+        try {
+            copyFolder(from, to, progress, copiedKeys);
+        } catch (StorageException e) {
+            // Копирование прервано, источник не тронут, убираем частичную копию. При конфликте занятый ключ
+            // в copiedKeys не попадает, поэтому удаляются только уже скопированные объекты
+            rollbackCopy(to, copiedKeys, e);
+            throw e;
+        }
+        // После начала удаления источника копия не откатывается: пачки удаляются параллельно, и к моменту ошибки
+        // часть объектов источника может существовать только в целевой папке
+        List<String> undeletedKeys = Collections.synchronizedList(new ArrayList<>());
+        try {
+            removeFolder(from, batch -> batch.failures().forEach(failure -> undeletedKeys.add(failure.key())));
+        } catch (StorageException e) {
+            log.error("Folder {} was copied to {}, but its source was only partly removed, undeleted keys: {}",
+                    from, to, undeletedKeys, e);
+            throw new IncompleteMoveException("Folder %s was copied to %s, but its source was only partly removed (%d keys failed to delete)"
+                    .formatted(from, to, undeletedKeys.size()), List.copyOf(undeletedKeys), e);
+        }
+    }
+
+    private void rollbackCopy(String to, Set<String> copiedKeys, StorageException cause) {
+        if (copiedKeys.isEmpty()) {
+            return;
+        }
+        try {
+            removeObjects(to, copiedKeys.stream(), batch -> {});
+        } catch (StorageException cleanupException) {
+            cause.addSuppressed(cleanupException);
+        }
+    }
+
+    public void copyObject(String from, String to, long size, String contentType) throws StorageException {
+        try {
+            if (size > MAX_COPY_OBJECT_SIZE) {
+                // Листинг не содержит типа содержимого, тогда он берется из кэша метаданных
+                multipartUploader.copy(from, to, size,
+                        contentType != null ? contentType : getObjectInfo(from).contentType());
+            } else {
                 minioClient.copyObject(CopyObjectArgs.builder()
                         .bucket(bucket)
-                        .object(to.concat(PathUtils.getRelativePath(object.objectName(), from)))
+                        .object(to)
                         .source(CopySource.builder()
                                 .bucket(bucket)
-                                .object(object.objectName())
+                                .object(from)
                                 .build())
                         .headers(Map.of("If-None-Match", "*"))
                         .build());
-            } catch (Exception e) {
-                throw mapExceptionToDomain("copyFolder", from, e);
             }
-        });
+            objectInfoCache.invalidate(to);
+        } catch (StorageException e) {
+            throw e;
+        } catch (Exception e) {
+            throw mapExceptionToDomain("copyObject", from, e);
+        }
+    }
+
+    // Отсутствие объекта - ожидаемый результат, который тоже кэшируется, остальные ошибки пробрасываются
+    private Optional<StorageObject> statObject(String path) {
+        try {
+            var stat = minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(path)
+                    .build());
+            return Optional.of(new StorageObject(path, stat.size(), normalizeEtag(stat.etag()), stat.lastModified(),
+                    null, stat.contentType()));
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            throw mapExceptionToDomain("statObject", path, e);
+        } catch (Exception e) {
+            throw mapExceptionToDomain("statObject", path, e);
+        }
+    }
+
+    // Страницы листинга запрашиваются клиентом MinIO по мере чтения потока
+    private Stream<StorageObject> listObjects(String path, boolean recursive) {
+        var storageObjectsIterator = minioClient.listObjects(ListObjectsArgs.builder()
+                .bucket(bucket)
+                .prefix(path)
+                .recursive(recursive)
+                .delimiter("/")
+                .build()).iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(storageObjectsIterator, Spliterator.ORDERED), false)
+                .map(item -> {
+                    try {
+                        return toStorageObject(item.get());
+                    } catch (Exception e) {
+                        throw mapExceptionToDomain("listObjects", path, e);
+                    }
+                });
+    }
+
+    // Без курсора начинаем сразу после маркера самой папки. Вложенная папка в листинге с разделителем
+    // возвращается одним префиксом, поэтому курсор на ней сдвигается за все ключи внутри нее
+    private String toListingStartAfter(String path, String startAfter) {
+        if (startAfter == null) {
+            return path;
+        }
+        return PathUtils.isFolder(startAfter) ? startAfter + MAX_KEY_SUFFIX : startAfter;
+    }
+
+    private StorageObject toStorageObject(Item item) {
+        return new StorageObject(item.objectName(), item.size(), normalizeEtag(item.etag()), item.lastModified());
+    }
+
+    // MinIO отдает ETag в кавычках в листинге и без них в ответах на запись
+    private String normalizeEtag(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
     }
 
     private StorageException mapExceptionToDomain(String operation, String path, Exception e) {
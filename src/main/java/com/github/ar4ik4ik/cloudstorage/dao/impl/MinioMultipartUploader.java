@@ -0,0 +1,188 @@
+package com.github.ar4ik4ik.cloudstorage.dao.impl;
+
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.google.common.collect.ImmutableMultimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.S3Escaper;
+import io.minio.messages.ListMultipartUploadsResult;
+import io.minio.messages.Part;
+import io.minio.messages.Upload;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto.ResourceType.FILE;
+
+// Multipart-загрузка больших файлов: части читаются из потока последовательно и отправляются параллельно.
+// Одновременно в памяти находится не больше parallelism частей.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MinioMultipartUploader {
+
+    // Ограничения S3 на количество частей и минимальный размер части (кроме последней)
+    private static final int MAX_PARTS_COUNT = 10_000;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    // Максимальный размер части, копируемой на стороне сервера
+    private static final long MAX_COPY_PART_SIZE = 5L * 1024 * 1024 * 1024;
+
+    @Value("${minio.bucket}")
+    private String bucket;
+
+    private final MinioAsyncClient minioAsyncClient;
+    private final StorageProperties storageProperties;
+
+    public boolean isMultipart(long objectSize) {
+        return objectSize > storageProperties.getUpload().getMultipartThreshold().toBytes();
+    }
+
+    public ObjectWriteResponse upload(String path, String contentType, InputStream inputStream, long objectSize) throws Exception {
+        String uploadId = createUpload(path, contentType);
+        try {
+            Part[] parts = uploadParts(path, uploadId, inputStream, objectSize);
+            return completeUpload(path, uploadId, parts);
+        } catch (Exception e) {
+            abort(path, uploadId, e);
+            throw e;
+        }
+    }
+
+    // Копирование объекта больше 5 ГБ частями на стороне сервера. В отличие от composeObject завершается
+    // с If-None-Match, а тип содержимого передается вызывающим, поэтому источник повторно не запрашивается
+    public ObjectWriteResponse copy(String from, String to, long objectSize, String contentType) throws Exception {
+        String uploadId = createUpload(to, contentType);
+        try {
+            int partsCount = (int) ((objectSize + MAX_COPY_PART_SIZE - 1) / MAX_COPY_PART_SIZE);
+            Part[] parts = new Part[partsCount];
+            for (int partNumber = 1; partNumber <= partsCount; partNumber++) {
+                long start = (partNumber - 1) * MAX_COPY_PART_SIZE;
+                long end = Math.min(start + MAX_COPY_PART_SIZE, objectSize) - 1;
+                var response = join(minioAsyncClient.uploadPartCopyAsync(bucket, null, to, uploadId, partNumber,
+                        ImmutableMultimap.of("x-amz-copy-source", "/" + bucket + "/" + S3Escaper.encodePath(from),
+                                "x-amz-copy-source-range", "bytes=%d-%d".formatted(start, end)), null));
+                parts[partNumber - 1] = new Part(partNumber, response.result().etag());
+            }
+            return completeUpload(to, uploadId, parts);
+        } catch (Exception e) {
+            abort(to, uploadId, e);
+            throw e;
+        }
+    }
+
+    public String createUpload(String key, String contentType) throws Exception {
+        return join(minioAsyncClient.createMultipartUploadAsync(bucket, null, key,
+                ImmutableMultimap.of("Content-Type", contentType, "x-amz-tagging", "type=" + FILE.name()), null))
+                .result().uploadId();
+    }
+
+    // Клиент MinIO вычитывает ровно length байт из потока и сообщает о нехватке данных InsufficientDataException
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream data, long length) throws Exception {
+        return join(minioAsyncClient.uploadPartAsync(bucket, null, key, data, length, uploadId, partNumber, null, null))
+                .etag();
+    }
+
+    // If-None-Match сохраняет семантику putObject: существующий объект не перезаписывается
+    public ObjectWriteResponse completeUpload(String key, String uploadId, Part[] parts) throws Exception {
+        return join(minioAsyncClient.completeMultipartUploadAsync(bucket, null, key, uploadId, parts,
+                ImmutableMultimap.of("If-None-Match", "*"), null));
+    }
+
+    public void abortUpload(String key, String uploadId) throws Exception {
+        join(minioAsyncClient.abortMultipartUploadAsync(bucket, null, key, uploadId, null, null));
+    }
+
+    public List<Upload> listUploads() throws Exception {
+        List<Upload> uploads = new ArrayList<>();
+        String keyMarker = null;
+        String uploadIdMarker = null;
+        ListMultipartUploadsResult result;
+        do {
+            result = join(minioAsyncClient.listMultipartUploadsAsync(bucket, null, null, null,
+                    keyMarker, null, null, uploadIdMarker, null, null)).result();
+            if (result.uploads() != null) {
+                uploads.addAll(result.uploads());
+            }
+            keyMarker = result.nextKeyMarker();
+            uploadIdMarker = result.nextUploadIdMarker();
+        } while (result.isTruncated());
+        return uploads;
+    }
+
+    private Part[] uploadParts(String path, String uploadId, InputStream inputStream, long objectSize) throws Exception {
+        var upload = storageProperties.getUpload();
+        long partSize = Math.max(Math.max(upload.getPartSize().toBytes(), MIN_PART_SIZE),
+                (objectSize + MAX_PARTS_COUNT - 1) / MAX_PARTS_COUNT);
+        int partsCount = (int) Math.max(1, (objectSize + partSize - 1) / partSize);
+
+        Part[] parts = new Part[partsCount];
+        Semaphore permits = new Semaphore(upload.getParallelism());
+        List<CompletableFuture<?>> inFlight = new ArrayList<>(partsCount);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        try {
+            for (int partNumber = 1; partNumber <= partsCount && failure.get() == null; partNumber++) {
+                permits.acquire();
+                long expectedLength = Math.min(partSize, objectSize - (partNumber - 1) * partSize);
+                byte[] data = inputStream.readNBytes((int) expectedLength);
+                if (data.length != expectedLength) {
+                    permits.release();
+                    throw new IOException("Unexpected end of stream at part %d of %s".formatted(partNumber, path));
+                }
+
+                int number = partNumber;
+                inFlight.add(minioAsyncClient.uploadPartAsync(bucket, null, path, data, data.length, uploadId, number, null, null)
+                        .whenComplete((response, error) -> {
+                            if (error != null) {
+                                failure.compareAndSet(null, error);
+                            } else {
+                                parts[number - 1] = new Part(number, response.etag());
+                            }
+                            permits.release();
+                        }));
+            }
+        } finally {
+            // Дожидаемся отправленных частей в любом случае, чтобы abort не обогнал их загрузку
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new))
+                    .handle((result, error) -> null)
+                    .join();
+        }
+
+        if (failure.get() != null) {
+            throw unwrap(failure.get());
+        }
+        return parts;
+    }
+
+    private void abort(String path, String uploadId, Exception cause) {
+        log.warn("Aborting multipart upload {} for path {}", uploadId, path);
+        try {
+            abortUpload(path, uploadId);
+        } catch (Exception e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception exception ? exception : new RuntimeException(cause);
+    }
+}
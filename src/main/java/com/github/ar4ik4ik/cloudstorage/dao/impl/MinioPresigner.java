@@ -0,0 +1,59 @@
+package com.github.ar4ik4ik.cloudstorage.dao.impl;
+
+import com.github.ar4ik4ik.cloudstorage.props.MinioProperties;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.http.Method;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+// Подписывает ссылки отдельным клиентом: подпись включает хост, поэтому он должен совпадать с адресом,
+// по которому к MinIO обращается клиент, а не приложение
+@Component
+public class MinioPresigner {
+
+    private final String bucket;
+    private final MinioClient presigningClient;
+    private final Duration expiry;
+
+    public MinioPresigner(MinioProperties minioProperties, StorageProperties storageProperties) {
+        var presigned = storageProperties.getPresigned();
+        this.bucket = minioProperties.getBucket();
+        this.expiry = presigned.getExpiry();
+        this.presigningClient = MinioClient.builder()
+                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .endpoint(StringUtils.hasText(presigned.getEndpoint()) ? presigned.getEndpoint() : minioProperties.getUrl())
+                .region(presigned.getRegion())
+                .build();
+    }
+
+    public Duration getExpiry() {
+        return expiry;
+    }
+
+    public String presignDownload(String key, String filename) throws Exception {
+        return presigningClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                .method(Method.GET)
+                .bucket(bucket)
+                .object(key)
+                .expiry((int) expiry.toSeconds())
+                .extraQueryParams(Map.of("response-content-disposition",
+                        "attachment; filename*=UTF-8''" + UriUtils.encode(filename, StandardCharsets.UTF_8)))
+                .build());
+    }
+
+    public String presignUpload(String key) throws Exception {
+        return presigningClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                .method(Method.PUT)
+                .bucket(bucket)
+                .object(key)
+                .expiry((int) expiry.toSeconds())
+                .build());
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.ar4ik4ik.cloudstorage.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+// Публикуется после успешной загрузки файла, etag позволяет отличить эту версию файла от последующих.
+// crc32 равен null, если сумма не считалась при загрузке
+@Getter
+public class ResourceUploadedEvent extends ApplicationEvent {
+    private final String path;
+    private final String contentType;
+    private final long size;
+    private final String etag;
+    private final Long crc32;
+
+    public ResourceUploadedEvent(Object source, String path, String contentType, long size, String etag, Long crc32) {
+        super(source);
+        this.path = path;
+        this.contentType = contentType;
+        this.size = size;
+        this.etag = etag;
+        this.crc32 = crc32;
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.ar4ik4ik.cloudstorage.exception;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// Копия создана полностью, но источник удален лишь частично. Откатывать копию уже нельзя:
+// часть объектов источника удалена и существует только в целевой папке
+@Getter
+public class IncompleteMoveException extends StorageException {
+
+    private final List<String> undeletedKeys;
+
+    public IncompleteMoveException(String message, List<String> undeletedKeys, Throwable cause) {
+        super(message, cause);
+        this.undeletedKeys = undeletedKeys;
+    }
+}
@@ -0,0 +1,8 @@
+package com.github.ar4ik4ik.cloudstorage.exception;
+
+// Наследует StorageException, чтобы операции хранилища откатывали частичный результат так же, как при сбое
+public class JobCancelledException extends StorageException {
+    public JobCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.ar4ik4ik.cloudstorage.exception;
+
+import lombok.Getter;
+
+@Getter
+public class RangeNotSatisfiableException extends RuntimeException {
+
+    private final long resourceSize;
+
+    public RangeNotSatisfiableException(String message, long resourceSize) {
+        super(message);
+        this.resourceSize = resourceSize;
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.ar4ik4ik.cloudstorage.listener;
+
+import com.github.ar4ik4ik.cloudstorage.event.ResourceUploadedEvent;
+import com.github.ar4ik4ik.cloudstorage.service.impl.ChecksumCalculator;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "storage", name = "index.enabled", havingValue = "true", matchIfMissing = true)
+public class ResourceChecksumEventListener {
+
+    private final ChecksumCalculator checksumCalculator;
+
+    @EventListener
+    public void handleResourceUploadedEvent(@NotNull ResourceUploadedEvent event) {
+        if (event.getCrc32() == null) {
+            checksumCalculator.submit(event.getPath(), event.getEtag());
+        }
+    }
+}
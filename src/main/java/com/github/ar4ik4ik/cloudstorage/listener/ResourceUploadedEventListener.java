@@ -0,0 +1,22 @@
+package com.github.ar4ik4ik.cloudstorage.listener;
+
+import com.github.ar4ik4ik.cloudstorage.event.ResourceUploadedEvent;
+import com.github.ar4ik4ik.cloudstorage.service.impl.ContentIndexer;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "storage", name = {"index.enabled", "content-search.enabled"}, havingValue = "true", matchIfMissing = true)
+public class ResourceUploadedEventListener {
+
+    private final ContentIndexer contentIndexer;
+
+    @EventListener
+    public void handleResourceUploadedEvent(@NotNull ResourceUploadedEvent event) {
+        contentIndexer.submit(event.getPath(), event.getContentType(), event.getSize(), event.getEtag());
+    }
+}
@@ -1,10 +1,9 @@
 package com.github.ar4ik4ik.cloudstorage.mapper;
 
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
 import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
 import com.github.ar4ik4ik.cloudstorage.utils.PathUtils;
 import com.github.ar4ik4ik.cloudstorage.utils.ResourceInfo;
-import io.minio.GetObjectResponse;
-import io.minio.messages.Item;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
@@ -16,33 +15,38 @@ public interface ResourceMapper {
     @Mapping(target = "name", expression = "java(PathUtils.extractNameFromPath(directoryPath))")
     @Mapping(target = "size", ignore = true)
     @Mapping(target = "type", expression = "java(ResourceType.DIRECTORY.name())")
+    @Mapping(target = "objectCount", ignore = true)
     ResourceInfoResponseDto toUploadDirectoryDto(String directoryPath);
 
     // get object info
-    @Mapping(target = "path", expression = "java(PathUtils.getParentPath(directoryPath, true))")
-    @Mapping(target = "name", expression = "java(PathUtils.extractNameFromPath(directoryPath))")
-    @Mapping(target = "size", expression = "java(object.headers().byteCount())")
-    @Mapping(target = "type", expression = "java(PathUtils.isFolder(directoryPath) ? ResourceType.DIRECTORY.name() : ResourceType.FILE.name())")
-    ResourceInfoResponseDto toDto(String directoryPath, GetObjectResponse object);
+    @Mapping(target = "path", expression = "java(PathUtils.getParentPath(object.objectName(), true))")
+    @Mapping(target = "name", expression = "java(PathUtils.extractNameFromPath(object.objectName()))")
+    @Mapping(target = "size", expression = "java(PathUtils.isFolder(object.objectName()) ? null : object.size())")
+    @Mapping(target = "type", expression = "java(PathUtils.isFolder(object.objectName()) ? ResourceType.DIRECTORY.name() : ResourceType.FILE.name())")
+    @Mapping(target = "objectCount", ignore = true)
+    ResourceInfoResponseDto toDto(StorageObject object);
 
     // search & full directory info
     @Mapping(target = "path", expression = "java(PathUtils.getParentPath(object.objectName(), true))")
     @Mapping(target = "name", expression = "java(PathUtils.extractNameFromPath(object.objectName()))")
     @Mapping(target = "size", expression = "java(object.size() > 0 ? object.size() : null)")
     @Mapping(target = "type", expression = "java(PathUtils.isFolder(object.objectName()) ? ResourceType.DIRECTORY.name() : ResourceType.FILE.name())")
-    ResourceInfoResponseDto toDirectoryInfoDto(Item object);
+    @Mapping(target = "objectCount", ignore = true)
+    ResourceInfoResponseDto toDirectoryInfoDto(StorageObject object);
 
     // only when uploading file
     @Mapping(target = "path", expression = "java(resourceInfo.getParentDirectoryPathForFile())")
     @Mapping(target = "name", expression = "java(resourceInfo.getFilename())")
     @Mapping(target = "size", expression = "java(resourceInfo.getMultipartFile().getSize())")
     @Mapping(target = "type", expression = "java(ResourceType.FILE.name())")
+    @Mapping(target = "objectCount", ignore = true)
     ResourceInfoResponseDto toUploadFileDto(ResourceInfo resourceInfo);
 
-    // only when moving (renaming) file or directory
+    // only when moving (renaming) or copying file or directory
     @Mapping(target = "path", expression = "java(PathUtils.getParentPath(to, true))")
     @Mapping(target = "name", expression = "java(PathUtils.extractNameFromPath(to))")
     @Mapping(target = "size", expression = "java(PathUtils.isFolder(to) ? null : bytesCount)")
     @Mapping(target = "type", expression = "java(PathUtils.isFolder(to) ? ResourceType.DIRECTORY.name() : ResourceType.FILE.name())")
+    @Mapping(target = "objectCount", ignore = true)
     ResourceInfoResponseDto toMoveResourceDto(String to, long bytesCount);
 }
@@ -0,0 +1,15 @@
+package com.github.ar4ik4ik.cloudstorage.mapper;
+
+import com.github.ar4ik4ik.cloudstorage.model.StorageJob;
+import com.github.ar4ik4ik.cloudstorage.model.dto.StorageJobDto;
+import com.github.ar4ik4ik.cloudstorage.utils.PathUtils;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring", imports = PathUtils.class)
+public interface StorageJobMapper {
+
+    @Mapping(target = "source", expression = "java(PathUtils.excludeRootPath(job.source()))")
+    @Mapping(target = "target", expression = "java(job.target() == null ? null : PathUtils.excludeRootPath(job.target()))")
+    StorageJobDto toDto(StorageJob job);
+}
@@ -0,0 +1,24 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+// Формат архива при скачивании папки, выбирается параметром format
+@Getter
+@RequiredArgsConstructor
+public enum ArchiveFormat {
+    ZIP("zip"),
+    TAR("tar"),
+    TAR_ZST("tar.zst");
+
+    private final String extension;
+
+    public static ArchiveFormat fromExtension(String extension) {
+        return Arrays.stream(values())
+                .filter(format -> format.extension.equalsIgnoreCase(extension))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported archive format %s".formatted(extension)));
+    }
+}
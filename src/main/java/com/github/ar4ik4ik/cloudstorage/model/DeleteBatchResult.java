@@ -0,0 +1,28 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Итог одного запроса DeleteObjects: какие ключи отправлены и какие из них удалить не удалось
+public record DeleteBatchResult(int batchNumber, List<String> keys, List<Failure> failures) {
+
+    public int requested() {
+        return keys.size();
+    }
+
+    public int deleted() {
+        return requested() - failures.size();
+    }
+
+    public List<String> deletedKeys() {
+        if (failures.isEmpty()) {
+            return keys;
+        }
+        Set<String> failed = failures.stream().map(Failure::key).collect(Collectors.toSet());
+        return keys.stream().filter(key -> !failed.contains(key)).toList();
+    }
+
+    public record Failure(String key, String code, String message) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+// Содержимое файла целиком или запрошенных через Range диапазонов
+public record FileDownload(long size, List<ByteRange> ranges, MediaType contentType, StreamingResponseBody body) {
+
+    public boolean isPartial() {
+        return !ranges.isEmpty();
+    }
+
+    // Границы диапазона включительные, как в заголовке Content-Range
+    public record ByteRange(long start, long end) {
+
+        public long length() {
+            return end - start + 1;
+        }
+
+        public String toContentRange(long size) {
+            return "bytes %d-%d/%d".formatted(start, end, size);
+        }
+    }
+}
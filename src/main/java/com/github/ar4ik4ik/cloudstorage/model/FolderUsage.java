@@ -0,0 +1,5 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+// Суммарный размер и число файлов во всем поддереве папки
+public record FolderUsage(long size, long objectCount) {
+}
@@ -0,0 +1,5 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+// Незавершенная multipart-загрузка: физический ключ объекта в хранилище и идентификатор загрузки S3
+public record MultipartUploadHandle(String key, String uploadId) {
+}
@@ -0,0 +1,4 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+public record PresignedUpload(String id, String path, String key) {
+}
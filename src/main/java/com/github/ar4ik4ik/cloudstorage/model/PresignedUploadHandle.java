@@ -0,0 +1,5 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+// Ключ, по которому клиент загружает объект напрямую в хранилище, и подписанная ссылка на него
+public record PresignedUploadHandle(String key, String url) {
+}
@@ -0,0 +1,11 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+import java.time.ZonedDateTime;
+
+// Валидаторы ресурса для условных запросов (ETag/Last-Modified)
+public record ResourceVersion(String etag, ZonedDateTime lastModified) {
+
+    public long lastModifiedMillis() {
+        return lastModified != null ? lastModified.toInstant().toEpochMilli() : -1;
+    }
+}
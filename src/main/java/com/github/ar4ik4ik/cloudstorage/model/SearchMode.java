@@ -0,0 +1,23 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+// Где искать запрос при поиске ресурсов, выбирается параметром mode
+@Getter
+@RequiredArgsConstructor
+public enum SearchMode {
+    NAME("name"),
+    CONTENT("content");
+
+    private final String value;
+
+    public static SearchMode fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported search mode %s".formatted(value)));
+    }
+}
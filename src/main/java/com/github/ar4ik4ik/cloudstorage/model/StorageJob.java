@@ -0,0 +1,23 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+import lombok.Builder;
+
+import java.time.Instant;
+
+// Долгая операция над ресурсом, выполняемая в фоне. Состояние хранится в Redis, поэтому его может отдать любой узел
+@Builder
+public record StorageJob(String id, String owner, Type type, Status status, String source, String target,
+                         long objectsDone, long bytesDone, String error, Instant createdAt, Instant updatedAt) {
+
+    public enum Type {
+        DELETE, MOVE
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+}
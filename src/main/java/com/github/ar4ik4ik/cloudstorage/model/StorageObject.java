@@ -0,0 +1,17 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+import java.time.ZonedDateTime;
+
+// crc32 известен только для объектов, загруженных через приложение, для остальных он null.
+// contentType есть только в ответе statObject, листинг и индекс его не содержат
+public record StorageObject(String objectName, long size, String etag, ZonedDateTime lastModified, Long crc32,
+                            String contentType) {
+
+    public StorageObject(String objectName, long size, String etag, ZonedDateTime lastModified) {
+        this(objectName, size, etag, lastModified, null, null);
+    }
+
+    public StorageObject(String objectName, long size, String etag, ZonedDateTime lastModified, Long crc32) {
+        this(objectName, size, etag, lastModified, crc32, null);
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.ar4ik4ik.cloudstorage.model;
+
+import lombok.Builder;
+
+@Builder
+public record UploadSession(String id, String owner, String path, String contentType, long size, long chunkSize,
+                            MultipartUploadHandle upload) {
+
+    public int getPartsCount() {
+        return (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+    }
+}
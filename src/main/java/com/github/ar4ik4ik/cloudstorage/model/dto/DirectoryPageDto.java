@@ -0,0 +1,6 @@
+package com.github.ar4ik4ik.cloudstorage.model.dto;
+
+import java.util.List;
+
+public record DirectoryPageDto(List<ResourceInfoResponseDto> items, String nextCursor) {
+}
@@ -0,0 +1,6 @@
+package com.github.ar4ik4ik.cloudstorage.model.dto;
+
+import java.time.Instant;
+
+public record PresignedUrlDto(String uploadId, String path, String url, Instant expiresAt) {
+}
@@ -2,8 +2,9 @@ package com.github.ar4ik4ik.cloudstorage.model.dto;
 
 import lombok.Builder;
 
-@Builder
-public record ResourceInfoResponseDto(String path, String name, Long size, String type) {
+// Для папок size и objectCount - суммарный размер и число файлов во всем поддереве, если они известны индексу
+@Builder(toBuilder = true)
+public record ResourceInfoResponseDto(String path, String name, Long size, String type, Long objectCount) {
     public enum ResourceType {
         FILE, DIRECTORY;
     }
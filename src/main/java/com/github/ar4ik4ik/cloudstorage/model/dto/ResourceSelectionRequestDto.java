@@ -0,0 +1,17 @@
+package com.github.ar4ik4ik.cloudstorage.model.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ResourceSelectionRequestDto(
+        @NotEmpty(message = "Selection can't be empty")
+        @Size(max = 1000, message = "Selection can't contain more than 1000 resources")
+        List<@NotNull
+        @Pattern(regexp = "^[a-zA-Z0-9а-яА-ЯёЁ !\\-_\\.'\\(\\)\\/]*$",
+                message = "Path contains invalid characters. Only alphanumeric (Latin & Cyrillic), space, !, -, _, ., ', (, ), and / are allowed.")
+        @Size(max = 100) String> paths) {
+}
@@ -0,0 +1,7 @@
+package com.github.ar4ik4ik.cloudstorage.model.dto;
+
+import java.time.Instant;
+
+public record StorageJobDto(String id, String type, String status, String source, String target,
+                            long objectsDone, long bytesDone, String error, Instant createdAt, Instant updatedAt) {
+}
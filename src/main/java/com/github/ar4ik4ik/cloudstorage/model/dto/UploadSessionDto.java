@@ -0,0 +1,10 @@
+package com.github.ar4ik4ik.cloudstorage.model.dto;
+
+import java.util.List;
+
+public record UploadSessionDto(String id, String path, long size, long chunkSize, List<ReceivedRange> receivedRanges) {
+
+    // Полуинтервал [start, end) полученных байт
+    public record ReceivedRange(long start, long end) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.ar4ik4ik.cloudstorage.model.entity;
+
+import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto.ResourceType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(schema = "storage", name = "t_objects")
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class ObjectMetadata {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String path;
+
+    @Column(name = "parent_path")
+    private String parentPath;
+
+    @Column(name = "physical_key")
+    private String physicalKey;
+
+    private String name;
+
+    @Builder.Default
+    private Long size = 0L;
+
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
+    private ResourceType type;
+
+    private String etag;
+
+    private Long crc32;
+
+    // Для папок - суммарный размер и число файлов во всем поддереве
+    @Builder.Default
+    @Column(name = "total_size")
+    private Long totalSize = 0L;
+
+    @Builder.Default
+    @Column(name = "object_count")
+    private Long objectCount = 0L;
+
+    @Builder.Default
+    @Column(name = "last_modified", columnDefinition = "timestamptz")
+    private OffsetDateTime lastModified = OffsetDateTime.now();
+
+    // Корневая директория пользователя, которому принадлежит объект (user-{id}-files/)
+    private String owner;
+}
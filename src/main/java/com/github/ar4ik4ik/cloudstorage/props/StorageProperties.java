@@ -0,0 +1,139 @@
+package com.github.ar4ik4ik.cloudstorage.props;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+@Data
+@Component
+@Validated
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+
+    private Index index = new Index();
+    private Copy copy = new Copy();
+    private Delete delete = new Delete();
+    private Jobs jobs = new Jobs();
+    private Cache cache = new Cache();
+    @Valid
+    private Upload upload = new Upload();
+    private Presigned presigned = new Presigned();
+    private Download download = new Download();
+    private ArchiveCache archiveCache = new ArchiveCache();
+    private ContentSearch contentSearch = new ContentSearch();
+
+    @Data
+    public static class Index {
+        private boolean enabled = true;
+        private boolean rebuildOnStartup;
+        private boolean keyMapping;
+        private int checksumParallelism = 1;
+        private int checksumQueueCapacity = 1000;
+    }
+
+    @Data
+    public static class Copy {
+        private int parallelism = 8;
+        private Duration timeout = Duration.ofMinutes(10);
+    }
+
+    // Объекты папки удаляются запросами DeleteObjects по batchSize ключей, не больше 1000 на запрос
+    @Data
+    public static class Delete {
+        private int batchSize = 1000;
+        private int parallelism = 4;
+        private Duration timeout = Duration.ofMinutes(10);
+    }
+
+    // Фоновые операции: число одновременно выполняемых на узле, размер очереди, время хранения статуса
+    // и период записи счетчиков прогресса в Redis
+    @Data
+    public static class Jobs {
+        private int parallelism = 2;
+        private int queueCapacity = 100;
+        private Duration ttl = Duration.ofHours(24);
+        private Duration progressInterval = Duration.ofSeconds(1);
+        private Duration timeout = Duration.ofHours(6);
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private Duration ttl = Duration.ofSeconds(30);
+        private Duration negativeTtl = Duration.ofSeconds(2);
+        private long maximumSize = 10_000;
+    }
+
+    // maxFileSize ограничивает файлы, загружаемые через сессии и по подписанным ссылкам
+    @Data
+    public static class Upload {
+        private DataSize multipartThreshold = DataSize.ofMegabytes(64);
+        private DataSize partSize = DataSize.ofMegabytes(16);
+        private DataSize maxFileSize = DataSize.ofGigabytes(100);
+        private int parallelism = 4;
+        private Duration sessionTtl = Duration.ofHours(24);
+        private Duration sweepInterval = Duration.ofHours(1);
+
+        // Часть загрузки читается в массив байт, поэтому ее размер ограничен размером массива
+        @AssertTrue(message = "storage.upload.part-size must not exceed 2GB")
+        public boolean isPartSizeSupported() {
+            return partSize.toBytes() <= Integer.MAX_VALUE;
+        }
+    }
+
+    // Объекты не больше prefetchBufferSize читаются в память заранее, более крупные открываются, когда до них дойдет очередь.
+    // Файлы с расширениями из storedExtensions уже сжаты и кладутся в архив без сжатия
+    @Data
+    public static class Download {
+        private int prefetchWindow = 8;
+        private int prefetchParallelism = 16;
+        private DataSize prefetchBufferSize = DataSize.ofMegabytes(1);
+        private int compressionLevel = 6;
+        private int deflateParallelism = Runtime.getRuntime().availableProcessors();
+        private int zstdLevel = 3;
+        private Set<String> storedExtensions = new HashSet<>(Set.of(
+                "jpg", "jpeg", "png", "gif", "webp", "heic", "avif",
+                "mp4", "mov", "mkv", "avi", "webm", "mp3", "aac", "m4a", "ogg", "opus", "flac",
+                "zip", "gz", "tgz", "bz2", "xz", "zst", "7z", "rar", "jar",
+                "docx", "xlsx", "pptx", "odt", "ods", "epub", "woff2"));
+    }
+
+    // Архивы папок, собранные при скачивании, хранятся на локальном диске экземпляра
+    @Data
+    public static class ArchiveCache {
+        private boolean enabled;
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "cloud-storage-archives");
+        private DataSize maximumSize = DataSize.ofGigabytes(10);
+    }
+
+    // Адрес MinIO, доступный клиентам, и регион, чтобы подпись не требовала запроса к хранилищу
+    @Data
+    public static class Presigned {
+        private boolean enabled;
+        private Duration expiry = Duration.ofMinutes(15);
+        private String endpoint;
+        private String region = "us-east-1";
+    }
+
+    // Из текстовых файлов индексируются первые maxSize байт, language - конфигурация полнотекстового поиска Postgres
+    @Data
+    public static class ContentSearch {
+        private boolean enabled = true;
+        private DataSize maxSize = DataSize.ofKilobytes(512);
+        private String language = "simple";
+        private int parallelism = 2;
+        private int queueCapacity = 1000;
+        private Set<String> extensions = new HashSet<>(Set.of(
+                "txt", "md", "markdown", "csv", "tsv", "json", "xml", "yaml", "yml", "log",
+                "html", "htm", "ini", "conf", "properties", "sql"));
+    }
+}
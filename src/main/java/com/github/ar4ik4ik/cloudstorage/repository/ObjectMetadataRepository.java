@@ -0,0 +1,205 @@
+package com.github.ar4ik4ik.cloudstorage.repository;
+
+import com.github.ar4ik4ik.cloudstorage.model.entity.ObjectMetadata;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ObjectMetadataRepository extends JpaRepository<ObjectMetadata, Long> {
+
+    boolean existsByPath(String path);
+
+    Optional<ObjectMetadata> findByPath(String path);
+
+    @Query("select o.path from ObjectMetadata o where o.path in :paths")
+    List<String> findExistingPaths(@Param("paths") Collection<String> paths);
+
+    List<ObjectMetadata> findAllByParentPathOrderByPath(String parentPath);
+
+    List<ObjectMetadata> findAllByParentPathAndPathGreaterThanOrderByPath(String parentPath, String path, Limit limit);
+
+    // Поддерево выбирается диапазоном [prefix, upperBound) - это использует btree индекс по path
+    @Query("select o from ObjectMetadata o where o.path >= :prefix and o.path < :upperBound order by o.path")
+    List<ObjectMetadata> findSubtree(@Param("prefix") String prefix, @Param("upperBound") String upperBound);
+
+    // Страницы поддерева для потокового чтения: первая включает сам префикс, следующие идут после последнего пути
+    List<ObjectMetadata> findAllByPathGreaterThanEqualAndPathLessThanOrderByPath(String from, String upperBound, Limit limit);
+
+    List<ObjectMetadata> findAllByPathGreaterThanAndPathLessThanOrderByPath(String after, String upperBound, Limit limit);
+
+    // Поиск по подстроке имени внутри поддерева (prefix, upperBound) через триграммный индекс.
+    // Сначала имена, начинающиеся с запроса, затем более похожие на запрос. Завершающий / в именах папок
+    // не участвует ни в совпадении, ни в похожести
+    @Query(value = """
+            select * from storage.t_objects o
+            where o.path > :prefix and o.path < :upperBound and rtrim(o.name, '/') ilike :pattern
+            order by strpos(lower(rtrim(o.name, '/')), lower(:query)) = 1 desc,
+                     similarity(rtrim(o.name, '/'), :query) desc, o.path
+            limit :limit
+            """, nativeQuery = true)
+    List<ObjectMetadata> searchByName(@Param("prefix") String prefix, @Param("upperBound") String upperBound,
+                                      @Param("query") String query, @Param("pattern") String pattern,
+                                      @Param("limit") int limit);
+
+    // Версия файла проверяется по etag, чтобы запоздавшая индексация не перезаписала индекс более новой версии
+    @Transactional
+    @Modifying
+    @Query(value = """
+            update storage.t_objects
+            set content = to_tsvector(cast(:language as regconfig), :text)
+            where path = :path and etag = :etag
+            """, nativeQuery = true)
+    int updateContent(@Param("path") String path, @Param("etag") String etag,
+                      @Param("language") String language, @Param("text") String text);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            update storage.t_objects target
+            set content = source.content
+            from storage.t_objects source
+            where source.path = :from and target.path = :to
+            """, nativeQuery = true)
+    int copyContent(@Param("from") String from, @Param("to") String to);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            update storage.t_objects target
+            set content = source.content
+            from storage.t_objects source
+            where source.path >= :from and source.path < :upperBound and source.content is not null
+              and target.path = :to || substr(source.path, length(:from) + 1)
+            """, nativeQuery = true)
+    int copySubtreeContent(@Param("from") String from, @Param("upperBound") String upperBound, @Param("to") String to);
+
+    @Query(value = """
+            select o.* from storage.t_objects o, websearch_to_tsquery(cast(:language as regconfig), :query) q
+            where o.path > :prefix and o.path < :upperBound and o.content @@ q
+            order by ts_rank(o.content, q) desc, o.path
+            limit :limit
+            """, nativeQuery = true)
+    List<ObjectMetadata> searchByContent(@Param("prefix") String prefix, @Param("upperBound") String upperBound,
+                                         @Param("language") String language, @Param("query") String query,
+                                         @Param("limit") int limit);
+
+    @Transactional
+    long deleteByPath(String path);
+
+    @Transactional
+    @Modifying
+    @Query("update ObjectMetadata o set o.crc32 = :crc32 where o.path = :path and o.etag = :etag")
+    int updateCrc32(@Param("path") String path, @Param("etag") String etag, @Param("crc32") long crc32);
+
+    List<ObjectMetadata> findAllByPathIn(Collection<String> paths);
+
+    // Изменение поддерева учитывается в счетчиках всех папок-предков
+    @Transactional
+    @Modifying
+    @Query("""
+            update ObjectMetadata o
+            set o.totalSize = o.totalSize + :bytes, o.objectCount = o.objectCount + :objects
+            where o.path in :paths
+            """)
+    int addFolderUsage(@Param("paths") Collection<String> paths, @Param("bytes") long bytes, @Param("objects") long objects);
+
+    // Пересчет счетчиков папок внутри поддерева [prefix, upperBound) по их содержимому
+    @Transactional
+    @Modifying
+    @Query(value = """
+            update storage.t_objects d
+            set total_size = coalesce(u.total_size, 0), object_count = coalesce(u.object_count, 0)
+            from (select folder.id, sum(file.size) as total_size, count(file.id) as object_count
+                  from storage.t_objects folder
+                           left join storage.t_objects file
+                                     on file.type = 'FILE'
+                                         and file.path > folder.path
+                                         and file.path < left(folder.path, -1) || '0'
+                  where folder.type = 'DIRECTORY' and folder.path >= :prefix and folder.path < :upperBound
+                  group by folder.id) u
+            where d.id = u.id
+            """, nativeQuery = true)
+    int recomputeFolderUsage(@Param("prefix") String prefix, @Param("upperBound") String upperBound);
+
+    // Записи объектов, уже удаленных из бакета. Возвращает объем и число удаленных файлов
+    @Transactional
+    @Query(value = """
+            with removed as (
+                delete from storage.t_objects o
+                where o.physical_key in (:keys)
+                returning o.size, o.type)
+            select cast(coalesce(sum(size) filter (where type = 'FILE'), 0) as bigint) as "totalSize",
+                   count(*) filter (where type = 'FILE') as "objectCount"
+            from removed
+            """, nativeQuery = true)
+    SubtreeUsage deleteByPhysicalKeys(@Param("keys") Collection<String> keys);
+
+    // Возвращает объем и число файлов, удаленных этим же запросом, а не прочитанных до удаления
+    @Transactional
+    @Query(value = """
+            with removed as (
+                delete from storage.t_objects o
+                where o.path >= :prefix and o.path < :upperBound
+                returning o.size, o.type)
+            select cast(coalesce(sum(size) filter (where type = 'FILE'), 0) as bigint) as "totalSize",
+                   count(*) filter (where type = 'FILE') as "objectCount"
+            from removed
+            """, nativeQuery = true)
+    SubtreeUsage deleteSubtree(@Param("prefix") String prefix, @Param("upperBound") String upperBound);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into storage.t_objects (path, physical_key, parent_path, name, size, type, etag, crc32, last_modified, owner,
+                                           total_size, object_count, content)
+            select :to || substr(o.path, length(:from) + 1),
+                   :to || substr(o.path, length(:from) + 1),
+                   case when o.path = :from then :toParent else :to || substr(o.parent_path, length(:from) + 1) end,
+                   case when o.path = :from then :toName else o.name end,
+                   o.size, o.type, o.etag, o.crc32, now(), :owner, o.total_size, o.object_count, o.content
+            from storage.t_objects o
+            where o.path >= :from and o.path < :upperBound
+            on conflict (path) do nothing
+            """, nativeQuery = true)
+    int copySubtree(@Param("from") String from, @Param("upperBound") String upperBound,
+                    @Param("to") String to, @Param("toParent") String toParent,
+                    @Param("toName") String toName, @Param("owner") String owner);
+
+    // Переименование поддерева - только обновление метаданных, физические ключи переписываются лишь без маппинга ключей.
+    // Возвращает объем и число перемещенных этим же запросом файлов
+    @Transactional
+    @Query(value = """
+            with moved as (
+                update storage.t_objects o
+                set path = :to || substr(o.path, length(:from) + 1),
+                    parent_path = case when o.path = :from then :toParent else :to || substr(o.parent_path, length(:from) + 1) end,
+                    name = case when o.path = :from then :toName else o.name end,
+                    owner = :owner,
+                    physical_key = case when :rewriteKeys then :to || substr(o.path, length(:from) + 1) else o.physical_key end
+                where o.path >= :from and o.path < :upperBound
+                returning o.size, o.type)
+            select cast(coalesce(sum(size) filter (where type = 'FILE'), 0) as bigint) as "totalSize",
+                   count(*) filter (where type = 'FILE') as "objectCount"
+            from moved
+            """, nativeQuery = true)
+    SubtreeUsage moveSubtree(@Param("from") String from, @Param("upperBound") String upperBound,
+                             @Param("to") String to, @Param("toParent") String toParent,
+                             @Param("toName") String toName, @Param("owner") String owner,
+                             @Param("rewriteKeys") boolean rewriteKeys);
+
+    interface SubtreeUsage {
+
+        long getTotalSize();
+
+        long getObjectCount();
+    }
+}
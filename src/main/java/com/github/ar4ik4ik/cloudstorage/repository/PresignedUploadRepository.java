@@ -0,0 +1,40 @@
+package com.github.ar4ik4ik.cloudstorage.repository;
+
+import com.github.ar4ik4ik.cloudstorage.model.PresignedUpload;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+// Загрузки по подписанным ссылкам, которые клиент еще не подтвердил
+@Repository
+@RequiredArgsConstructor
+public class PresignedUploadRepository {
+
+    private static final String UPLOAD_KEY_PATTERN = "cloud-storage:presigned-upload:%s";
+
+    private final StringRedisTemplate redisTemplate;
+
+    public void save(PresignedUpload upload, Duration ttl) {
+        String uploadKey = UPLOAD_KEY_PATTERN.formatted(upload.id());
+        redisTemplate.opsForHash().putAll(uploadKey, Map.of(
+                "path", upload.path(),
+                "key", upload.key()));
+        redisTemplate.expire(uploadKey, ttl);
+    }
+
+    public Optional<PresignedUpload> findById(String id) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(UPLOAD_KEY_PATTERN.formatted(id));
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new PresignedUpload(id, (String) fields.get("path"), (String) fields.get("key")));
+    }
+
+    public void delete(PresignedUpload upload) {
+        redisTemplate.delete(UPLOAD_KEY_PATTERN.formatted(upload.id()));
+    }
+}
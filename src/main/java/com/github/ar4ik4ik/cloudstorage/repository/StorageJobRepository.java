@@ -0,0 +1,89 @@
+package com.github.ar4ik4ik.cloudstorage.repository;
+
+import com.github.ar4ik4ik.cloudstorage.model.StorageJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Состояние фоновых операций хранится в Redis, чтобы статус и отмена работали на любом узле приложения.
+// Отмена только выставляет флаг, который выполняющий узел проверяет между шагами операции
+@Repository
+@RequiredArgsConstructor
+public class StorageJobRepository {
+
+    private static final String JOB_KEY_PATTERN = "cloud-storage:job:%s";
+
+    private final StringRedisTemplate redisTemplate;
+
+    public void save(StorageJob job, Duration ttl) {
+        String jobKey = JOB_KEY_PATTERN.formatted(job.id());
+        Map<String, String> fields = new HashMap<>(Map.of(
+                "owner", job.owner(),
+                "type", job.type().name(),
+                "status", job.status().name(),
+                "source", job.source(),
+                "objectsDone", String.valueOf(job.objectsDone()),
+                "bytesDone", String.valueOf(job.bytesDone()),
+                "createdAt", job.createdAt().toString(),
+                "updatedAt", job.updatedAt().toString()));
+        if (job.target() != null) {
+            fields.put("target", job.target());
+        }
+        redisTemplate.opsForHash().putAll(jobKey, fields);
+        redisTemplate.expire(jobKey, ttl);
+    }
+
+    public Optional<StorageJob> findById(String id) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(JOB_KEY_PATTERN.formatted(id));
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(StorageJob.builder()
+                .id(id)
+                .owner((String) fields.get("owner"))
+                .type(StorageJob.Type.valueOf((String) fields.get("type")))
+                .status(StorageJob.Status.valueOf((String) fields.get("status")))
+                .source((String) fields.get("source"))
+                .target((String) fields.get("target"))
+                .objectsDone(Long.parseLong((String) fields.get("objectsDone")))
+                .bytesDone(Long.parseLong((String) fields.get("bytesDone")))
+                .error((String) fields.get("error"))
+                .createdAt(Instant.parse((String) fields.get("createdAt")))
+                .updatedAt(Instant.parse((String) fields.get("updatedAt")))
+                .build());
+    }
+
+    // Время жизни продлевается, чтобы запись не истекла раньше завершения долгой операции
+    public void updateStatus(String id, StorageJob.Status status, String error, Duration ttl) {
+        Map<String, String> fields = new HashMap<>(Map.of(
+                "status", status.name(),
+                "updatedAt", Instant.now().toString()));
+        if (error != null) {
+            fields.put("error", error);
+        }
+        String jobKey = JOB_KEY_PATTERN.formatted(id);
+        redisTemplate.opsForHash().putAll(jobKey, fields);
+        redisTemplate.expire(jobKey, ttl);
+    }
+
+    public void incrementProgress(String id, long objects, long bytes) {
+        String jobKey = JOB_KEY_PATTERN.formatted(id);
+        redisTemplate.opsForHash().increment(jobKey, "objectsDone", objects);
+        redisTemplate.opsForHash().increment(jobKey, "bytesDone", bytes);
+        redisTemplate.opsForHash().put(jobKey, "updatedAt", Instant.now().toString());
+    }
+
+    public void requestCancel(String id) {
+        redisTemplate.opsForHash().put(JOB_KEY_PATTERN.formatted(id), "cancelRequested", "true");
+    }
+
+    public boolean isCancelRequested(String id) {
+        return redisTemplate.opsForHash().hasKey(JOB_KEY_PATTERN.formatted(id), "cancelRequested");
+    }
+}
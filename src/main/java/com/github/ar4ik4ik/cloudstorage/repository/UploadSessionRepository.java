@@ -0,0 +1,85 @@
+package com.github.ar4ik4ik.cloudstorage.repository;
+
+import com.github.ar4ik4ik.cloudstorage.model.MultipartUploadHandle;
+import com.github.ar4ik4ik.cloudstorage.model.UploadSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+// Состояние загрузок по частям хранится в Redis рядом с сессиями Spring Session.
+// Ключи живут ограниченное время и продлеваются при каждой полученной части.
+@Repository
+@RequiredArgsConstructor
+public class UploadSessionRepository {
+
+    private static final String SESSION_KEY_PATTERN = "cloud-storage:upload:%s";
+    private static final String PARTS_KEY_PATTERN = "cloud-storage:upload:%s:parts";
+    private static final String MULTIPART_KEY_PATTERN = "cloud-storage:multipart:%s";
+
+    private final StringRedisTemplate redisTemplate;
+
+    public void save(UploadSession session, Duration ttl) {
+        String sessionKey = SESSION_KEY_PATTERN.formatted(session.id());
+        redisTemplate.opsForHash().putAll(sessionKey, Map.of(
+                "owner", session.owner(),
+                "path", session.path(),
+                "contentType", session.contentType(),
+                "size", String.valueOf(session.size()),
+                "chunkSize", String.valueOf(session.chunkSize()),
+                "key", session.upload().key(),
+                "uploadId", session.upload().uploadId()));
+        redisTemplate.opsForValue().set(MULTIPART_KEY_PATTERN.formatted(session.upload().uploadId()), session.id());
+        touch(session, ttl);
+    }
+
+    public Optional<UploadSession> findById(String id) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(SESSION_KEY_PATTERN.formatted(id));
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(UploadSession.builder()
+                .id(id)
+                .owner((String) fields.get("owner"))
+                .path((String) fields.get("path"))
+                .contentType((String) fields.get("contentType"))
+                .size(Long.parseLong((String) fields.get("size")))
+                .chunkSize(Long.parseLong((String) fields.get("chunkSize")))
+                .upload(new MultipartUploadHandle((String) fields.get("key"), (String) fields.get("uploadId")))
+                .build());
+    }
+
+    public void savePart(UploadSession session, int partNumber, String etag, Duration ttl) {
+        redisTemplate.opsForHash().put(PARTS_KEY_PATTERN.formatted(session.id()), String.valueOf(partNumber), etag);
+        touch(session, ttl);
+    }
+
+    public Map<Integer, String> findParts(String id) {
+        Map<Integer, String> parts = new TreeMap<>();
+        redisTemplate.opsForHash().entries(PARTS_KEY_PATTERN.formatted(id))
+                .forEach((partNumber, etag) -> parts.put(Integer.parseInt((String) partNumber), (String) etag));
+        return parts;
+    }
+
+    public boolean existsByUploadId(String uploadId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(MULTIPART_KEY_PATTERN.formatted(uploadId)));
+    }
+
+    public void delete(UploadSession session) {
+        redisTemplate.delete(List.of(
+                SESSION_KEY_PATTERN.formatted(session.id()),
+                PARTS_KEY_PATTERN.formatted(session.id()),
+                MULTIPART_KEY_PATTERN.formatted(session.upload().uploadId())));
+    }
+
+    private void touch(UploadSession session, Duration ttl) {
+        redisTemplate.expire(SESSION_KEY_PATTERN.formatted(session.id()), ttl);
+        redisTemplate.expire(PARTS_KEY_PATTERN.formatted(session.id()), ttl);
+        redisTemplate.expire(MULTIPART_KEY_PATTERN.formatted(session.upload().uploadId()), ttl);
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.ar4ik4ik.cloudstorage.runner;
+
+import com.github.ar4ik4ik.cloudstorage.dao.impl.IndexedS3DaoImpl;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.repository.ObjectMetadataRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Пустой индекс заполняется по бакету при первом запуске с индексом, иначе загруженные ранее объекты не видны
+@RequiredArgsConstructor
+@Component
+@ConditionalOnProperty(prefix = "storage.index", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ObjectIndexRebuildRunner implements ApplicationRunner {
+
+    private final IndexedS3DaoImpl indexedDao;
+    private final ObjectMetadataRepository repository;
+    private final StorageProperties storageProperties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (storageProperties.getIndex().isRebuildOnStartup() || repository.count() == 0) {
+            indexedDao.rebuildIndex();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.ar4ik4ik.cloudstorage.service;
+
+import com.github.ar4ik4ik.cloudstorage.model.dto.StorageJobDto;
+
+public interface StorageJobService {
+
+    StorageJobDto getJob(String userRootDirectory, String jobId);
+
+    StorageJobDto cancelJob(String userRootDirectory, String jobId);
+}
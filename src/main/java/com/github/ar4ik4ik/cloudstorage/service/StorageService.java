@@ -1,27 +1,66 @@
 package com.github.ar4ik4ik.cloudstorage.service;
 
+import com.github.ar4ik4ik.cloudstorage.model.ArchiveFormat;
+import com.github.ar4ik4ik.cloudstorage.model.FileDownload;
+import com.github.ar4ik4ik.cloudstorage.model.ResourceVersion;
+import com.github.ar4ik4ik.cloudstorage.model.dto.DirectoryPageDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.PresignedUrlDto;
 import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.StorageJobDto;
+import com.github.ar4ik4ik.cloudstorage.utils.StoredZipLayout;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface StorageService {
 
     ResourceInfoResponseDto getResourceInfo(String resourcePath);
 
+    ResourceVersion getResourceVersion(String resourcePath);
+
     void deleteResource(String resourcePath);
 
-    StreamingResponseBody downloadResource(String resourcePath);
+    StorageJobDto submitDeleteJob(String resourcePath);
+
+    StreamingResponseBody downloadResource(String resourcePath, ArchiveFormat format);
+
+    StreamingResponseBody downloadSelection(List<String> resourcePaths, ArchiveFormat format);
+
+    FileDownload downloadFile(String filePath, String rangeHeader);
+
+    // Пусто, если CRC части файлов еще не посчитаны и архив можно отдать только потоком
+    Optional<StoredZipLayout> getStoredArchiveLayout(String directoryPath);
+
+    FileDownload downloadStoredArchive(StoredZipLayout layout, String rangeHeader);
+
+    String getPresignedDownloadUrl(String filePath);
+
+    PresignedUrlDto createPresignedUpload(String filePath);
+
+    ResourceInfoResponseDto completePresignedUpload(String filePath, String uploadId);
 
     ResourceInfoResponseDto moveResource(String from, String to);
 
-    List<ResourceInfoResponseDto> searchResourcesByQuery(String query, String rootPath);
+    StorageJobDto submitMoveJob(String from, String to);
+
+    ResourceInfoResponseDto copyResource(String from, String to);
+
+    List<ResourceInfoResponseDto> searchResourcesByQuery(String query, String rootPath, int limit);
+
+    List<ResourceInfoResponseDto> searchResourcesByContent(String query, String rootPath, int limit);
+
+    // Результаты поиска по имени по мере их нахождения. Поток нужно закрыть после использования
+    Stream<ResourceInfoResponseDto> streamSearchResults(String query, String rootPath, int limit);
 
     List<ResourceInfoResponseDto> uploadResource(MultipartFile[] files, String resourcePath);
 
     List<ResourceInfoResponseDto> getDirectoryInfo(String directoryPath);
 
+    DirectoryPageDto getDirectoryPage(String directoryPath, String cursor, int limit);
+
     ResourceInfoResponseDto createDirectory(String directoryPath);
 
     void createRootDirectoryForUser(Integer userId);
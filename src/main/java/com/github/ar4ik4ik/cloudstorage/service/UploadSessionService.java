@@ -0,0 +1,19 @@
+package com.github.ar4ik4ik.cloudstorage.service;
+
+import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.UploadSessionDto;
+
+import java.io.InputStream;
+
+public interface UploadSessionService {
+
+    UploadSessionDto createSession(String userRootDirectory, String path, String contentType, long size);
+
+    UploadSessionDto getSession(String userRootDirectory, String sessionId);
+
+    UploadSessionDto uploadChunk(String userRootDirectory, String sessionId, long offset, InputStream data, long length);
+
+    ResourceInfoResponseDto completeSession(String userRootDirectory, String sessionId);
+
+    void abortSession(String userRootDirectory, String sessionId);
+}
@@ -0,0 +1,57 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.impl.MinioDaoImpl;
+import com.github.ar4ik4ik.cloudstorage.dao.impl.MinioMultipartUploader;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.repository.UploadSessionRepository;
+import io.minio.messages.Upload;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+
+// Отменяет multipart-загрузки, для которых не осталось сессии в Redis: брошенные клиентом сессии
+// и загрузки, прерванные падением приложения. Незавершенные части иначе занимают место в бакете бессрочно.
+// Так же удаляются промежуточные объекты загрузок по подписанным ссылкам, которые так и не были подтверждены.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AbandonedUploadSweeper {
+
+    private final MinioMultipartUploader multipartUploader;
+    private final MinioDaoImpl minioDao;
+    private final UploadSessionRepository sessionRepository;
+    private final StorageProperties storageProperties;
+
+    @Scheduled(fixedDelayString = "${storage.upload.sweep-interval}", initialDelayString = "${storage.upload.sweep-interval}")
+    public void abortAbandonedUploads() {
+        // Загрузки моложе времени жизни сессии могут еще выполняться без сессии (обычная multipart-загрузка)
+        ZonedDateTime abandonedBefore = ZonedDateTime.now().minus(storageProperties.getUpload().getSessionTtl());
+        int aborted = 0;
+        try {
+            for (Upload upload : multipartUploader.listUploads()) {
+                if (upload.initiated().isBefore(abandonedBefore) && !sessionRepository.existsByUploadId(upload.uploadId())) {
+                    multipartUploader.abortUpload(upload.objectName(), upload.uploadId());
+                    aborted++;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to sweep abandoned multipart uploads", e);
+        }
+        log.info("Aborted {} abandoned multipart uploads", aborted);
+    }
+
+    // Подтвердить загрузку можно, пока жива ее запись в Redis, то есть в течение времени жизни сессии
+    @Scheduled(fixedDelayString = "${storage.upload.sweep-interval}", initialDelayString = "${storage.upload.sweep-interval}")
+    public void removeAbandonedPresignedUploads() {
+        ZonedDateTime abandonedBefore = ZonedDateTime.now().minus(storageProperties.getUpload().getSessionTtl());
+        try {
+            int removed = minioDao.removeAbandonedPresignedUploads(abandonedBefore);
+            log.info("Removed {} abandoned presigned uploads", removed);
+        } catch (Exception e) {
+            log.warn("Failed to sweep abandoned presigned uploads", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Досчитывает CRC32 файлов, загруженных по частям или по подписанной ссылке, и сохраняет его в индекс.
+// Работает в фоне на ограниченном пуле: при переполнении очереди файл остается без суммы,
+// и его папка скачивается потоковым архивом
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "storage", name = "index.enabled", havingValue = "true", matchIfMissing = true)
+public class ChecksumCalculator implements AutoCloseable {
+
+    private final S3Dao dao;
+    private final ExecutorService executor;
+
+    public ChecksumCalculator(S3Dao dao, StorageProperties storageProperties) {
+        this.dao = dao;
+        var index = storageProperties.getIndex();
+        this.executor = new ThreadPoolExecutor(index.getChecksumParallelism(), index.getChecksumParallelism(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(index.getChecksumQueueCapacity()),
+                Thread.ofPlatform().name("checksum-calculator-", 0).daemon().factory());
+    }
+
+    public void submit(String path, String etag) {
+        try {
+            executor.execute(() -> calculate(path, etag));
+        } catch (RejectedExecutionException e) {
+            log.warn("Checksum queue is full, skipped {}", path);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    void calculate(String path, String etag) {
+        try {
+            dao.saveCrc32(path, etag, dao.computeCrc32(path));
+            log.debug("Computed checksum of {}", path);
+        } catch (RuntimeException e) {
+            log.warn("Failed to compute checksum of {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.extractNameFromPath;
+
+// Извлекает текст из загруженных текстовых документов и сохраняет его в полнотекстовый индекс.
+// Работает в фоне на ограниченном пуле: при переполнении очереди файл просто остается без индекса содержимого
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "storage", name = {"index.enabled", "content-search.enabled"}, havingValue = "true", matchIfMissing = true)
+public class ContentIndexer implements AutoCloseable {
+
+    private final S3Dao dao;
+    private final StorageProperties.ContentSearch contentSearch;
+    private final ExecutorService executor;
+
+    public ContentIndexer(S3Dao dao, StorageProperties storageProperties) {
+        this.dao = dao;
+        this.contentSearch = storageProperties.getContentSearch();
+        this.executor = new ThreadPoolExecutor(contentSearch.getParallelism(), contentSearch.getParallelism(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(contentSearch.getQueueCapacity()),
+                Thread.ofPlatform().name("content-indexer-", 0).daemon().factory());
+    }
+
+    public void submit(String path, String contentType, long size, String etag) {
+        if (size == 0 || !isTextDocument(path, contentType)) {
+            return;
+        }
+        try {
+            executor.execute(() -> index(path, size, etag));
+        } catch (RejectedExecutionException e) {
+            log.warn("Content indexing queue is full, skipped {}", path);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    boolean isTextDocument(String path, String contentType) {
+        String name = extractNameFromPath(path);
+        int extensionIdx = name.lastIndexOf('.');
+        if (extensionIdx >= 0 && contentSearch.getExtensions().contains(name.substring(extensionIdx + 1).toLowerCase())) {
+            return true;
+        }
+        return contentType != null && contentType.startsWith("text/");
+    }
+
+    // Читается только начало файла, поэтому время и память на индексацию не зависят от его размера
+    void index(String path, long size, String etag) {
+        long length = Math.min(size, contentSearch.getMaxSize().toBytes());
+        try (var content = dao.getObject(path, 0, length)) {
+            dao.indexContent(path, etag, extractText(content.readAllBytes()));
+            log.debug("Indexed content of {}", path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to index content of {}: {}", path, e.getMessage());
+        }
+    }
+
+    // Невалидные и обрезанные на границе чтения символы заменяются, NUL недопустим в тексте Postgres
+    static String extractText(byte[] data) {
+        return new String(data, StandardCharsets.UTF_8).replace('\u0000', ' ');
+    }
+}
@@ -2,21 +2,37 @@ package com.github.ar4ik4ik.cloudstorage.service.impl;
 
 import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
 import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.FileDownload.ByteRange;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
 import com.github.ar4ik4ik.cloudstorage.service.DownloadStrategy;
-import io.minio.messages.Item;
+import com.github.ar4ik4ik.cloudstorage.utils.ArchiveDiskCache;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelDeflater;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelPrefetcher;
+import com.github.ar4ik4ik.cloudstorage.utils.StoredZipLayout;
+import com.github.ar4ik4ik.cloudstorage.utils.ZipArchiveWriter;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.IOException;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
 
 import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.getRelativePath;
+import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.isFolder;
 
 
 @Slf4j
@@ -24,30 +40,170 @@ import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.getRelativePath;
 @RequiredArgsConstructor
 public class DirectoryDownloadStrategy implements DownloadStrategy {
 
+    private static final byte[] EMPTY_CONTENT = new byte[0];
+    private static final ZonedDateTime UNKNOWN_LAST_MODIFIED = ZonedDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC);
+
     private final S3Dao repository;
+    private final ParallelPrefetcher downloadPrefetcher;
+    private final ParallelDeflater archiveDeflater;
+    private final StorageProperties storageProperties;
+    private final ArchiveDiskCache archiveDiskCache;
 
     @Override
     public StreamingResponseBody download(String resourcePath) {
         return outputStream -> {
-            var storageItems = repository.getListObjectsByPath(resourcePath, true);
-
-            try (ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(outputStream))) {
-                for (Item item: storageItems) {
-                    var storageObject = repository.getObject(item.objectName());
-                    try (BufferedInputStream inputStream = new BufferedInputStream(storageObject)) {
-                        var zipEntry = new ZipEntry(getRelativePath(item.objectName(), resourcePath));
-
-                        zipOutputStream.putNextEntry(zipEntry);
-                        IOUtils.copy(inputStream, zipOutputStream, 8192);
-                        zipOutputStream.closeEntry();
-                    }
+            if (!archiveDiskCache.isEnabled()) {
+                writeArchive(resourcePath, () -> repository.streamObjectsByPath(resourcePath), outputStream);
+                return;
+            }
+            // Листинг читается один раз: по нему считается отпечаток, и из него же при промахе собирается архив,
+            // который одновременно пишется на диск. Поэтому в кэш архив попадает под отпечатком своих объектов
+            List<StorageObject> listing;
+            try (var storageItems = repository.streamObjectsByPath(resourcePath)) {
+                listing = storageItems.toList();
+            }
+            String fingerprint = fingerprint(listing);
+            if (archiveDiskCache.transferTo(fingerprint, outputStream)) {
+                return;
+            }
+            var pendingArchive = archiveDiskCache.newArchive(resourcePath);
+            try {
+                if (writeArchive(resourcePath, listing::stream, new TeeOutputStream(outputStream, pendingArchive))) {
+                    pendingArchive.commit(fingerprint);
                 }
-            } catch (StorageException e) {
-                log.warn("Failed to retrieve data from path={}\nCause:{}", resourcePath, e.getMessage());
-            } catch (IOException e) {
-                log.error("Failed to zip data from path={}\nCause:{}", resourcePath, e.getMessage());
-                throw e;
+            } finally {
+                pendingArchive.discard();
+            }
+        };
+    }
+
+    // Архив из выбранных ресурсов, имена записей строятся относительно basePath. Такие архивы не кэшируются
+    public StreamingResponseBody download(String basePath, Supplier<Stream<StorageObject>> items) {
+        return outputStream -> writeArchive(basePath, items, outputStream);
+    }
+
+    // Возвращает false, если архив собран не полностью
+    private boolean writeArchive(String resourcePath, Supplier<Stream<StorageObject>> items, OutputStream outputStream)
+            throws IOException {
+        // Небольшие следующие объекты читаются заранее, пока текущий пишется в архив. Маркер самой папки
+        // в архив не попадает, иначе в нем появилась бы запись с пустым именем
+        try (var storageItems = items.get();
+             var entries = downloadPrefetcher.prefetch(storageItems
+                     .filter(item -> !item.objectName().equals(resourcePath))
+                     .iterator(), this::prefetchEntry, entry -> {});
+             var archive = new ZipArchiveWriter(new BufferedOutputStream(outputStream))) {
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                writeEntry(archive, getRelativePath(entry.item().objectName(), resourcePath), entry);
             }
+            return true;
+        } catch (StorageException e) {
+            log.warn("Failed to retrieve data from path={}\nCause:{}", resourcePath, e.getMessage());
+            return false;
+        } catch (IOException e) {
+            log.error("Failed to zip data from path={}\nCause:{}", resourcePath, e.getMessage());
+            throw e;
+        }
+    }
+
+    // Настройки сжатия тоже входят в отпечаток: от них зависит содержимое архива
+    private String fingerprint(List<StorageObject> listing) {
+        var download = storageProperties.getDownload();
+        Hasher fingerprint = Hashing.sha256().newHasher()
+                .putInt(download.getCompressionLevel())
+                .putInt(download.getStoredExtensions().hashCode());
+        for (StorageObject item : listing) {
+            fingerprint.putString(item.objectName(), StandardCharsets.UTF_8)
+                    .putByte((byte) 0)
+                    .putString(Objects.toString(item.etag(), ""), StandardCharsets.UTF_8)
+                    .putByte((byte) 0)
+                    .putLong(item.size());
+        }
+        return fingerprint.hash().toString();
+    }
+
+    // Разметка архива без сжатия. CRC берется из индекса: если хотя бы у одного файла его нет,
+    // разметка не строится, чтобы не перечитывать объекты целиком до отправки ответа
+    public Optional<StoredZipLayout> planStoredArchive(String resourcePath) {
+        List<StorageObject> items;
+        try (var storageItems = repository.streamObjectsByPath(resourcePath)) {
+            // Маркер самой папки в архив не попадает
+            items = storageItems
+                    .filter(item -> !item.objectName().equals(resourcePath))
+                    .toList();
+        }
+        if (items.stream().anyMatch(item -> !isFolder(item.objectName()) && item.crc32() == null)) {
+            return Optional.empty();
+        }
+        return Optional.of(StoredZipLayout.of(items.stream()
+                .map(item -> toLayoutEntry(item, getRelativePath(item.objectName(), resourcePath)))
+                .toList()));
+    }
+
+    public StreamingResponseBody download(StoredZipLayout layout, ByteRange range) {
+        return outputStream -> {
+            var out = new BufferedOutputStream(outputStream);
+            layout.write(out, range.start(), range.end(), repository::getObject);
+            out.flush();
         };
     }
+
+    // Время изменения попадает в заголовки, поэтому без него подставляется фиксированное, а не текущее
+    private StoredZipLayout.Entry toLayoutEntry(StorageObject item, String name) {
+        ZonedDateTime lastModified = item.lastModified() != null ? item.lastModified() : UNKNOWN_LAST_MODIFIED;
+        if (isFolder(name)) {
+            return new StoredZipLayout.Entry(name, null, 0, 0, lastModified);
+        }
+        return new StoredZipLayout.Entry(name, item.objectName(), item.size(), item.crc32(), lastModified);
+    }
+
+    // Уже сжатые форматы не пережимаются: прочитанные заранее объекты пишутся как STORED,
+    // а крупные, для которых CRC заранее неизвестен, через DEFLATE без сжатия.
+    // Крупные записи сжимаются параллельно на нескольких ядрах
+    private void writeEntry(ZipArchiveWriter archive, String name, Entry entry) throws IOException {
+        var item = entry.item();
+        boolean compressible = isCompressible(name);
+        if (entry.data() != null && !compressible) {
+            archive.writeStored(name, entry.data(), item.lastModified());
+            return;
+        }
+
+        int level = compressible ? storageProperties.getDownload().getCompressionLevel() : Deflater.NO_COMPRESSION;
+        // Крупный объект открывается только когда до него дошла очередь, чтобы соединение не простаивало
+        try (InputStream content = entry.data() != null
+                ? new ByteArrayInputStream(entry.data())
+                : new BufferedInputStream(repository.getObject(item.objectName()))) {
+            archive.writeDeflated(name, item.lastModified(), item.size(),
+                    out -> archiveDeflater.deflate(content, out, level, item.size()));
+        }
+    }
+
+    private boolean isCompressible(String name) {
+        if (isFolder(name)) {
+            return false;
+        }
+        int extensionIdx = name.lastIndexOf('.');
+        String extension = extensionIdx > name.lastIndexOf('/') ? name.substring(extensionIdx + 1) : "";
+        return !storageProperties.getDownload().getStoredExtensions().contains(extension.toLowerCase());
+    }
+
+    // Небольшие объекты читаются в память целиком, крупные заранее не открываются
+    private Entry prefetchEntry(StorageObject item) {
+        // У директорий нет содержимого, а при маппинге ключей нет и объекта в хранилище
+        if (isFolder(item.objectName())) {
+            return new Entry(item, EMPTY_CONTENT);
+        }
+        if (item.size() > storageProperties.getDownload().getPrefetchBufferSize().toBytes()) {
+            return new Entry(item, null);
+        }
+        try (var storageObject = repository.getObject(item.objectName())) {
+            return new Entry(item, storageObject.readAllBytes());
+        } catch (IOException e) {
+            throw new StorageException("Failed to read object %s".formatted(item.objectName()), e);
+        }
+    }
+
+    // Содержимое объекта, прочитанное заранее, или null, если объект читается при записи в архив
+    private record Entry(StorageObject item, byte[] data) {
+    }
 }
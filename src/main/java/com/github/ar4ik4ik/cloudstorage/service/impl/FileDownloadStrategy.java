@@ -1,19 +1,27 @@
 package com.github.ar4ik4ik.cloudstorage.service.impl;
 
 import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.model.FileDownload.ByteRange;
 import com.github.ar4ik4ik.cloudstorage.service.DownloadStrategy;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.apache.commons.io.IOUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class FileDownloadStrategy implements DownloadStrategy {
 
+    private static final String CRLF = "\r\n";
+
     private final S3Dao repository;
 
     @Override
@@ -25,4 +33,30 @@ public class FileDownloadStrategy implements DownloadStrategy {
                 8192
         );
     }
+
+    public StreamingResponseBody download(String resourcePath, ByteRange range) {
+        return outputStream -> {
+            try (InputStream inputStream = repository.getObject(resourcePath, range.start(), range.length())) {
+                IOUtils.copy(inputStream, outputStream, 8192);
+            }
+        };
+    }
+
+    // Тело ответа multipart/byteranges: каждый диапазон читается из хранилища отдельным ranged-запросом
+    public StreamingResponseBody download(String resourcePath, List<ByteRange> ranges, long size, String boundary) {
+        return outputStream -> {
+            for (ByteRange range : ranges) {
+                String partHeaders = "--" + boundary + CRLF
+                        + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + CRLF
+                        + HttpHeaders.CONTENT_RANGE + ": " + range.toContentRange(size) + CRLF
+                        + CRLF;
+                outputStream.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+                try (InputStream inputStream = repository.getObject(resourcePath, range.start(), range.length())) {
+                    IOUtils.copy(inputStream, outputStream, 8192);
+                }
+                outputStream.write(CRLF.getBytes(StandardCharsets.US_ASCII));
+            }
+            outputStream.write(("--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII));
+        };
+    }
 }
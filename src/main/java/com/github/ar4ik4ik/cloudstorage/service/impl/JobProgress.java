@@ -0,0 +1,54 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.exception.JobCancelledException;
+import com.github.ar4ik4ik.cloudstorage.repository.StorageJobRepository;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счетчики выполненной работы фоновой операции. Вызывается из потоков операции, поэтому счетчики
+// накапливаются локально и записываются в Redis не чаще одного раза за interval. Там же проверяется запрос отмены
+public class JobProgress {
+
+    private final String jobId;
+    private final StorageJobRepository jobRepository;
+    private final long intervalNanos;
+    private final LongAdder pendingObjects = new LongAdder();
+    private final LongAdder pendingBytes = new LongAdder();
+    private volatile long nextFlushNanos;
+
+    JobProgress(String jobId, StorageJobRepository jobRepository, Duration interval) {
+        this.jobId = jobId;
+        this.jobRepository = jobRepository;
+        this.intervalNanos = interval.toNanos();
+        this.nextFlushNanos = System.nanoTime() + intervalNanos;
+    }
+
+    public void add(long objects, long bytes) {
+        pendingObjects.add(objects);
+        pendingBytes.add(bytes);
+        if (System.nanoTime() - nextFlushNanos >= 0) {
+            checkpoint();
+        }
+    }
+
+    private synchronized void checkpoint() {
+        if (System.nanoTime() - nextFlushNanos < 0) {
+            return;
+        }
+        nextFlushNanos = System.nanoTime() + intervalNanos;
+        flush();
+        if (jobRepository.isCancelRequested(jobId)) {
+            throw new JobCancelledException("Job %s was cancelled".formatted(jobId));
+        }
+    }
+
+    // Записывает остаток счетчиков после завершения операции
+    synchronized void flush() {
+        long objects = pendingObjects.sumThenReset();
+        long bytes = pendingBytes.sumThenReset();
+        if (objects > 0 || bytes > 0) {
+            jobRepository.incrementProgress(jobId, objects, bytes);
+        }
+    }
+}
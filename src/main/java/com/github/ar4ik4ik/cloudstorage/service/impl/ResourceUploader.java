@@ -1,12 +1,14 @@
 package com.github.ar4ik4ik.cloudstorage.service.impl;
 
 import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.event.ResourceUploadedEvent;
 import com.github.ar4ik4ik.cloudstorage.exception.ObjectAlreadyExistException;
 import com.github.ar4ik4ik.cloudstorage.mapper.ResourceMapper;
 import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
 import com.github.ar4ik4ik.cloudstorage.utils.ResourceInfo;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -15,6 +17,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -27,16 +30,20 @@ class ResourceUploader {
 
     private final S3Dao dao;
     private final ResourceMapper mapper;
+    private final ApplicationEventPublisher eventPublisher;
 
 
     public List<ResourceInfoResponseDto> upload(MultipartFile[] files, String uploadingPath) {
-        List<ResourceInfo> resourceInfoList = new ArrayList<>(files.length);
-        for (MultipartFile file : files) {
-            ResourceInfo resourceInfo = ResourceInfo.create(uploadingPath, file);
-            if (dao.isObjectExists(resourceInfo.getFullMinioPath())) {
-                throw new ObjectAlreadyExistException();
-            }
-            resourceInfoList.add(resourceInfo);
+        List<ResourceInfo> resourceInfoList = Arrays.stream(files)
+                .map(file -> ResourceInfo.create(uploadingPath, file))
+                .toList();
+        // Конфликты проверяются одним запросом для всех файлов, при любом совпадении загрузка не начинается
+        Set<String> existingPaths = dao.findExistingPaths(resourceInfoList.stream()
+                .map(ResourceInfo::getFullMinioPath)
+                .toList());
+        if (!existingPaths.isEmpty()) {
+            log.info("Upload rejected, paths already exist: {}", existingPaths);
+            throw new ObjectAlreadyExistException();
         }
 
         List<ResourceInfoResponseDto> uploadedResources = new ArrayList<>(resourceInfoList.size());
@@ -88,12 +95,14 @@ class ResourceUploader {
 
     private void uploadFile(ResourceInfo resourceInfo, List<ResourceInfoResponseDto> resourcesToUpload) throws IOException {
         try (var inputStream = new BufferedInputStream(resourceInfo.getMultipartFile().getInputStream())) {
-            dao.uploadObject(resourceInfo.getFullMinioPath(),
+            var uploaded = dao.uploadObject(resourceInfo.getFullMinioPath(),
                     resourceInfo.getMultipartFile().getContentType(),
                     inputStream,
                     resourceInfo.getMultipartFile().getSize());
 
             resourcesToUpload.add(mapper.toUploadFileDto(resourceInfo));
+            eventPublisher.publishEvent(new ResourceUploadedEvent(this, resourceInfo.getFullMinioPath(),
+                    resourceInfo.getMultipartFile().getContentType(), uploaded.size(), uploaded.etag(), uploaded.crc32()));
         }
     }
 }
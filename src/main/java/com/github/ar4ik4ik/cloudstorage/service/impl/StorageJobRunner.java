@@ -0,0 +1,125 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.exception.JobCancelledException;
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.StorageJob;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.repository.StorageJobRepository;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelOperationRunner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.github.ar4ik4ik.cloudstorage.model.StorageJob.Status.*;
+
+// Выполняет фоновые операции на ограниченном пуле потоков. Очередь тоже ограничена: при переполнении
+// операция отклоняется сразу, а не ждет неопределенно долго
+@Slf4j
+@Component
+class StorageJobRunner implements AutoCloseable {
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final StorageJobRepository jobRepository;
+    private final StorageProperties storageProperties;
+    private final ExecutorService executor;
+    private final Set<String> activeJobs = ConcurrentHashMap.newKeySet();
+
+    StorageJobRunner(StorageJobRepository jobRepository, StorageProperties storageProperties) {
+        var jobs = storageProperties.getJobs();
+        this.jobRepository = jobRepository;
+        this.storageProperties = storageProperties;
+        this.executor = new ThreadPoolExecutor(jobs.getParallelism(), jobs.getParallelism(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(jobs.getQueueCapacity()),
+                Thread.ofPlatform().name("storage-job-", 0).daemon().factory());
+    }
+
+    // source - полный путь ресурса, по его корневой папке определяется владелец операции
+    public StorageJob submit(StorageJob.Type type, String source, String target, Consumer<JobProgress> operation) {
+        var jobs = storageProperties.getJobs();
+        Instant now = Instant.now();
+        var job = StorageJob.builder()
+                .id(UUID.randomUUID().toString())
+                .owner(source.substring(0, source.indexOf('/')))
+                .type(type)
+                .status(QUEUED)
+                .source(source)
+                .target(target)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        jobRepository.save(job, jobs.getTtl());
+        activeJobs.add(job.id());
+        try {
+            executor.execute(() -> run(job, operation));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.id());
+            jobRepository.updateStatus(job.id(), FAILED, "Job queue is full", jobs.getTtl());
+            throw new StorageException("Job queue is full, try again later", e);
+        }
+        log.info("Submitted {} job {} for {}", type, job.id(), source);
+        return job;
+    }
+
+    // Прерванные остановкой операции помечаются неуспешными, иначе они навсегда остались бы в очереди или в работе
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        var ttl = storageProperties.getJobs().getTtl();
+        for (String jobId : activeJobs) {
+            jobRepository.updateStatus(jobId, FAILED, "Interrupted by server shutdown", ttl);
+            log.warn("Job {} was interrupted by shutdown", jobId);
+        }
+    }
+
+    private void run(StorageJob job, Consumer<JobProgress> operation) {
+        try {
+            execute(job, operation);
+        } finally {
+            activeJobs.remove(job.id());
+        }
+    }
+
+    private void execute(StorageJob job, Consumer<JobProgress> operation) {
+        var jobs = storageProperties.getJobs();
+        var ttl = jobs.getTtl();
+        if (jobRepository.isCancelRequested(job.id())) {
+            jobRepository.updateStatus(job.id(), CANCELLED, null, ttl);
+            log.info("Job {} was cancelled before start", job.id());
+            return;
+        }
+
+        jobRepository.updateStatus(job.id(), RUNNING, null, ttl);
+        var progress = new JobProgress(job.id(), jobRepository, jobs.getProgressInterval());
+        try {
+            ParallelOperationRunner.withTimeout(jobs.getTimeout(), () -> operation.accept(progress));
+            progress.flush();
+            jobRepository.updateStatus(job.id(), SUCCEEDED, null, ttl);
+            log.info("Job {} completed", job.id());
+        } catch (JobCancelledException e) {
+            progress.flush();
+            jobRepository.updateStatus(job.id(), CANCELLED, null, ttl);
+            log.info("Job {} was cancelled", job.id());
+        } catch (RuntimeException e) {
+            log.error("Job {} failed", job.id(), e);
+            progress.flush();
+            jobRepository.updateStatus(job.id(), FAILED, e.getMessage(), ttl);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.exception.ObjectNotFoundException;
+import com.github.ar4ik4ik.cloudstorage.mapper.StorageJobMapper;
+import com.github.ar4ik4ik.cloudstorage.model.StorageJob;
+import com.github.ar4ik4ik.cloudstorage.model.dto.StorageJobDto;
+import com.github.ar4ik4ik.cloudstorage.repository.StorageJobRepository;
+import com.github.ar4ik4ik.cloudstorage.service.StorageJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageJobServiceImpl implements StorageJobService {
+
+    private final StorageJobRepository jobRepository;
+    private final StorageJobMapper mapper;
+
+    @Override
+    public StorageJobDto getJob(String userRootDirectory, String jobId) {
+        return mapper.toDto(findJob(userRootDirectory, jobId));
+    }
+
+    // Отмена асинхронна: операция останавливается на ближайшей проверке, завершенная операция не меняется
+    @Override
+    public StorageJobDto cancelJob(String userRootDirectory, String jobId) {
+        var job = findJob(userRootDirectory, jobId);
+        if (!job.status().isFinished()) {
+            jobRepository.requestCancel(jobId);
+            log.info("Requested cancellation of job {}", jobId);
+        }
+        return mapper.toDto(job);
+    }
+
+    // Чужая операция неотличима от отсутствующей
+    private StorageJob findJob(String userRootDirectory, String jobId) {
+        return jobRepository.findById(jobId)
+                .filter(job -> job.owner().equals(userRootDirectory))
+                .orElseThrow(ObjectNotFoundException::new);
+    }
+}
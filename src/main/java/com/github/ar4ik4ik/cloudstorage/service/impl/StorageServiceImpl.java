@@ -2,21 +2,52 @@ package com.github.ar4ik4ik.cloudstorage.service.impl;
 
 import com.github.ar4ik4ik.cloudstorage.aop.PathEnrich;
 import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.event.ResourceUploadedEvent;
 import com.github.ar4ik4ik.cloudstorage.exception.ObjectAlreadyExistException;
 import com.github.ar4ik4ik.cloudstorage.exception.ObjectNotFoundException;
-import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.exception.RangeNotSatisfiableException;
 import com.github.ar4ik4ik.cloudstorage.mapper.ResourceMapper;
+import com.github.ar4ik4ik.cloudstorage.mapper.StorageJobMapper;
+import com.github.ar4ik4ik.cloudstorage.model.ArchiveFormat;
+import com.github.ar4ik4ik.cloudstorage.model.FileDownload;
+import com.github.ar4ik4ik.cloudstorage.model.FileDownload.ByteRange;
+import com.github.ar4ik4ik.cloudstorage.model.FolderUsage;
+import com.github.ar4ik4ik.cloudstorage.model.PresignedUpload;
+import com.github.ar4ik4ik.cloudstorage.model.ResourceVersion;
+import com.github.ar4ik4ik.cloudstorage.model.StorageJob;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.model.dto.DirectoryPageDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.PresignedUrlDto;
 import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.StorageJobDto;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.repository.PresignedUploadRepository;
 import com.github.ar4ik4ik.cloudstorage.service.StorageService;
 import com.github.ar4ik4ik.cloudstorage.utils.PathUtils;
+import com.github.ar4ik4ik.cloudstorage.utils.StoredZipLayout;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.*;
 
@@ -26,16 +57,21 @@ import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.*;
 public class StorageServiceImpl implements StorageService {
 
     private static final String ROOT_DIRECTORY_PATH_PATTERN_FOR_USER = "user-%s-files/";
-    private static final boolean RECURSIVE_SEARCH = true;
     private static final boolean FLAT_SEARCH = false;
     public static final boolean WITH_ROOT_PATH = false;
 
     private final DirectoryDownloadStrategy directoryDownloadStrategy;
     private final FileDownloadStrategy fileDownloadStrategy;
+    private final TarDownloadStrategy tarDownloadStrategy;
 
     private final S3Dao dao;
     private final ResourceMapper mapper;
     private final ResourceUploader uploader;
+    private final PresignedUploadRepository presignedUploadRepository;
+    private final StorageProperties storageProperties;
+    private final StorageJobRunner jobRunner;
+    private final StorageJobMapper jobMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<ResourceInfoResponseDto> getDirectoryInfo(@PathEnrich String directoryPath) {
@@ -43,11 +79,27 @@ public class StorageServiceImpl implements StorageService {
         if (!dao.isObjectExists(directoryPath)) {
             throw new ObjectNotFoundException();
         }
-        return dao.getListObjectsByPath(directoryPath, FLAT_SEARCH)
+        return toDirectoryInfoDtos(dao.getListObjectsByPath(directoryPath, FLAT_SEARCH)
                 .stream()
                 .filter(item -> !item.objectName().equals(directoryPath))
-                .map(mapper::toDirectoryInfoDto)
-                .toList();
+                .toList());
+    }
+
+    @Override
+    public DirectoryPageDto getDirectoryPage(@PathEnrich String directoryPath, String cursor, int limit) {
+        log.info("Getting directory page with path: {}, limit: {}", directoryPath, limit);
+        if (!dao.isObjectExists(directoryPath)) {
+            throw new ObjectNotFoundException();
+        }
+        String startAfter = cursor != null ? directoryPath.concat(decodeCursor(cursor)) : null;
+        // Запрашиваем на один объект больше, чтобы узнать, есть ли следующая страница
+        var objects = dao.getListObjectsPage(directoryPath, startAfter, limit + 1);
+        boolean hasNextPage = objects.size() > limit;
+        var page = hasNextPage ? objects.subList(0, limit) : objects;
+        String nextCursor = hasNextPage
+                ? encodeCursor(getRelativePath(page.getLast().objectName(), directoryPath))
+                : null;
+        return new DirectoryPageDto(toDirectoryInfoDtos(page), nextCursor);
     }
 
     @Override
@@ -67,11 +119,25 @@ public class StorageServiceImpl implements StorageService {
 
     @Override
     public ResourceInfoResponseDto getResourceInfo(@PathEnrich String directoryPath) {
-        try (var obj = dao.getObject(directoryPath)) {
-            return mapper.toDto(directoryPath, obj);
-        } catch (IOException e) {
-            throw new StorageException(e);
+        var resource = mapper.toDto(dao.getObjectInfo(directoryPath));
+        if (!isFolder(directoryPath)) {
+            return resource;
         }
+        return withFolderUsage(resource, dao.getFolderUsage(List.of(directoryPath)).get(directoryPath));
+    }
+
+    @Override
+    public ResourceVersion getResourceVersion(@PathEnrich String path) {
+        var object = dao.getObjectInfo(path);
+        if (!isFolder(path)) {
+            return new ResourceVersion(object.etag(), object.lastModified());
+        }
+        // Маркер папки не меняется при изменении ее содержимого, поэтому версия папки строится по счетчикам поддерева
+        var usage = dao.getFolderUsage(List.of(path)).get(path);
+        String etag = Objects.toString(object.etag(), "");
+        return new ResourceVersion(usage != null
+                ? "%s-%d-%d".formatted(etag, usage.size(), usage.objectCount())
+                : etag, null);
     }
 
     @Override
@@ -83,50 +149,213 @@ public class StorageServiceImpl implements StorageService {
         performRemove(path, isFolder(path));
     }
 
+    // Проверки выполняются сразу, чтобы ошибки пути вернулись в ответе, а не в статусе операции
     @Override
-    public StreamingResponseBody downloadResource(@PathEnrich String path) {
+    public StorageJobDto submitDeleteJob(@PathEnrich String path) {
         if (!dao.isObjectExists(path)) {
             throw new ObjectNotFoundException();
         }
 
-        return isFolder(path) ? directoryDownloadStrategy.download(path)
-                : fileDownloadStrategy.download(path);
+        var job = jobRunner.submit(StorageJob.Type.DELETE, path, null, progress -> {
+            if (isFolder(path)) {
+                dao.removeFolder(path, batch -> progress.add(batch.deleted(), 0));
+            } else {
+                long size = getBytesCount(path);
+                dao.removeFile(path);
+                progress.add(1, size);
+            }
+        });
+        return jobMapper.toDto(job);
     }
 
     @Override
-    public ResourceInfoResponseDto moveResource(@PathEnrich String from, @PathEnrich String to) {
-        if (dao.isObjectExists(to)) {
+    public StreamingResponseBody downloadResource(@PathEnrich String path, ArchiveFormat format) {
+        if (!dao.isObjectExists(path)) {
+            throw new ObjectNotFoundException();
+        }
+        if (!isFolder(path)) {
+            return fileDownloadStrategy.download(path);
+        }
+
+        return switch (format) {
+            case ZIP -> directoryDownloadStrategy.download(path);
+            case TAR -> tarDownloadStrategy.download(path);
+            case TAR_ZST -> tarDownloadStrategy.downloadCompressed(path);
+        };
+    }
+
+    @Override
+    public StreamingResponseBody downloadSelection(@PathEnrich List<String> paths, ArchiveFormat format) {
+        List<String> selection = withoutNestedPaths(paths);
+        Set<String> existingPaths = dao.findExistingPaths(selection);
+        if (existingPaths.size() != selection.size()) {
+            throw new ObjectNotFoundException("Resources not found: %s".formatted(selection.stream()
+                    .filter(path -> !existingPaths.contains(path))
+                    .map(PathUtils::excludeRootPath)
+                    .toList()));
+        }
+
+        // Записи именуются относительно общей родительской папки, поэтому одинаковые имена из разных папок не конфликтуют
+        String basePath = getCommonDirectoryPrefix(selection.stream()
+                .map(path -> isFolder(path) ? path.substring(0, path.length() - 1) : path)
+                .toList());
+        // Корневая папка пользователя выше общей папки не поднимается, чтобы ее имя не попало в архив
+        String rootPath = extractRootDirectory(selection.getFirst());
+        if (!basePath.startsWith(rootPath)) {
+            basePath = rootPath;
+        }
+        Supplier<Stream<StorageObject>> items = () -> selection.stream()
+                .flatMap(path -> isFolder(path) ? dao.streamObjectsByPath(path) : Stream.of(dao.getObjectInfo(path)));
+        return switch (format) {
+            case ZIP -> directoryDownloadStrategy.download(basePath, items);
+            case TAR -> tarDownloadStrategy.download(basePath, items, false);
+            case TAR_ZST -> tarDownloadStrategy.download(basePath, items, true);
+        };
+    }
+
+    @Override
+    public FileDownload downloadFile(@PathEnrich String path, String rangeHeader) {
+        if (!dao.isObjectExists(path)) {
+            throw new ObjectNotFoundException();
+        }
+        long size = dao.getObjectInfo(path).size();
+        List<ByteRange> ranges = rangeHeader != null ? toByteRanges(rangeHeader, size) : List.of();
+
+        return switch (ranges.size()) {
+            case 0 -> new FileDownload(size, ranges, MediaType.APPLICATION_OCTET_STREAM,
+                    fileDownloadStrategy.download(path));
+            case 1 -> new FileDownload(size, ranges, MediaType.APPLICATION_OCTET_STREAM,
+                    fileDownloadStrategy.download(path, ranges.getFirst()));
+            default -> {
+                String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+                yield new FileDownload(size, ranges, new MediaType("multipart", "byteranges", Map.of("boundary", boundary)),
+                        fileDownloadStrategy.download(path, ranges, size, boundary));
+            }
+        };
+    }
+
+    @Override
+    public Optional<StoredZipLayout> getStoredArchiveLayout(@PathEnrich String path) {
+        if (!isFolder(path)) {
+            throw new IllegalArgumentException("Only folders can be downloaded as an archive");
+        } else if (!dao.isObjectExists(path)) {
+            throw new ObjectNotFoundException();
+        }
+        return directoryDownloadStrategy.planStoredArchive(path);
+    }
+
+    @Override
+    public FileDownload downloadStoredArchive(StoredZipLayout layout, String rangeHeader) {
+        long size = layout.size();
+        List<ByteRange> ranges = rangeHeader != null ? toByteRanges(rangeHeader, size) : List.of();
+        // Несколько диапазонов для архива не поддерживаются, такой запрос обслуживается целиком
+        if (ranges.size() > 1) {
+            ranges = List.of();
+        }
+        ByteRange range = ranges.isEmpty() ? new ByteRange(0, size - 1) : ranges.getFirst();
+        return new FileDownload(size, ranges, MediaType.APPLICATION_OCTET_STREAM,
+                directoryDownloadStrategy.download(layout, range));
+    }
+
+    @Override
+    public String getPresignedDownloadUrl(@PathEnrich String path) {
+        if (isFolder(path)) {
+            throw new IllegalArgumentException("Only files can be downloaded by presigned URL");
+        } else if (!dao.isObjectExists(path)) {
+            throw new ObjectNotFoundException();
+        }
+        return dao.getPresignedDownloadUrl(path, getFilenameForDownload(path));
+    }
+
+    @Override
+    public PresignedUrlDto createPresignedUpload(@PathEnrich String path) {
+        if (isFolder(path)) {
+            throw new IllegalArgumentException("Only files can be uploaded by presigned URL");
+        } else if (dao.isObjectExists(path)) {
             throw new ObjectAlreadyExistException();
-        } else if (!dao.isObjectExists(from) || !dao.isObjectExists(getParentPath(to, false))) {
+        } else if (!dao.isObjectExists(getParentPath(path, WITH_ROOT_PATH))) {
             throw new ObjectNotFoundException();
-        } else if (PathUtils.isAncestorOrSelf(from, to)) {
-            throw new IllegalArgumentException("Cannot move folder into one of its subfolder");
         }
 
-        boolean isDirectory = isFolder(from);
-        performCopy(from, to, isDirectory);
-        try {
-            performRemove(from, isDirectory);
-        } catch (StorageException e) {
-            // Попытка ручного отката, если не удалось удалить источник
-            performRemove(to, isDirectory);
-            log.error("Error moving resource, rolling back", e);
-            throw e;
+        var handle = dao.createPresignedUpload(path);
+        var upload = new PresignedUpload(UUID.randomUUID().toString(), path, handle.key());
+        presignedUploadRepository.save(upload, storageProperties.getUpload().getSessionTtl());
+        log.info("Created presigned upload {} for path {}", upload.id(), path);
+        return new PresignedUrlDto(upload.id(), excludeRootPath(path), handle.url(),
+                Instant.now().plus(storageProperties.getPresigned().getExpiry()));
+    }
+
+    @Override
+    public ResourceInfoResponseDto completePresignedUpload(@PathEnrich String path, String uploadId) {
+        // Путь загрузки уже содержит корень пользователя, поэтому чужую загрузку подтвердить нельзя
+        var upload = presignedUploadRepository.findById(uploadId)
+                .filter(pending -> pending.path().equals(path))
+                .orElseThrow(ObjectNotFoundException::new);
+        var uploaded = dao.completePresignedUpload(path, upload.key(),
+                storageProperties.getUpload().getMaxFileSize().toBytes());
+        presignedUploadRepository.delete(upload);
+        log.info("Completed presigned upload {} for path {}", uploadId, path);
+        eventPublisher.publishEvent(new ResourceUploadedEvent(this, path, null, uploaded.size(), uploaded.etag(),
+                uploaded.crc32()));
+        return mapper.toDto(uploaded);
+    }
+
+    @Override
+    public ResourceInfoResponseDto moveResource(@PathEnrich String from, @PathEnrich String to) {
+        validateTransfer(from, to);
+
+        if (isFolder(from)) {
+            dao.moveFolder(from, to);
+        } else {
+            dao.moveFile(from, to);
         }
 
-        long bytesCount = getBytesCount(to);
-        return mapper.toMoveResourceDto(to, bytesCount);
+        return toTransferredResourceDto(to);
     }
 
     @Override
-    public List<ResourceInfoResponseDto> searchResourcesByQuery(String query, String rootPath) {
-        var searchQueryNormalized = query.toLowerCase();
-        var allObjects = dao.getListObjectsByPath(rootPath, RECURSIVE_SEARCH);
-        return allObjects.stream()
-                .filter(obj -> extractNameFromPath(obj.objectName())
-                        .toLowerCase().contains(searchQueryNormalized))
-                .map(mapper::toDirectoryInfoDto)
-                .toList();
+    public StorageJobDto submitMoveJob(@PathEnrich String from, @PathEnrich String to) {
+        validateTransfer(from, to);
+
+        var job = jobRunner.submit(StorageJob.Type.MOVE, from, to, progress -> {
+            if (isFolder(from)) {
+                dao.moveFolder(from, to, object -> progress.add(1, object.size()));
+            } else {
+                dao.moveFile(from, to);
+                progress.add(1, getBytesCount(to));
+            }
+        });
+        return jobMapper.toDto(job);
+    }
+
+    @Override
+    public ResourceInfoResponseDto copyResource(@PathEnrich String from, @PathEnrich String to) {
+        validateTransfer(from, to);
+
+        performCopy(from, to, isFolder(from));
+
+        return toTransferredResourceDto(to);
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> searchResourcesByQuery(String query, String rootPath, int limit) {
+        return toDirectoryInfoDtos(dao.searchByName(toSearchPath(rootPath), query, limit));
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> searchResourcesByContent(String query, String rootPath, int limit) {
+        // Без индекса содержимое не индексируется, и пустой ответ выглядел бы как отсутствие совпадений
+        if (!storageProperties.getIndex().isEnabled() || !storageProperties.getContentSearch().isEnabled()) {
+            throw new IllegalArgumentException("Content search is not enabled");
+        }
+        return toDirectoryInfoDtos(dao.searchByContent(toSearchPath(rootPath), query, limit));
+    }
+
+    // Счетчики папок здесь не запрашиваются, чтобы не задерживать выдачу каждого найденного ресурса
+    @Override
+    public Stream<ResourceInfoResponseDto> streamSearchResults(String query, String rootPath, int limit) {
+        return dao.streamByName(toSearchPath(rootPath), query, limit)
+                .map(mapper::toDirectoryInfoDto);
     }
 
     @Override
@@ -134,14 +363,50 @@ public class StorageServiceImpl implements StorageService {
         return uploader.upload(files, uploadingPath);
     }
 
+    private String toSearchPath(String rootPath) {
+        return rootPath.endsWith("/") ? rootPath : rootPath + "/";
+    }
+
+    // Счетчики всех папок страницы запрашиваются одним обращением
+    private List<ResourceInfoResponseDto> toDirectoryInfoDtos(List<StorageObject> objects) {
+        var folders = objects.stream()
+                .map(StorageObject::objectName)
+                .filter(PathUtils::isFolder)
+                .toList();
+        Map<String, FolderUsage> usage = folders.isEmpty() ? Map.of() : dao.getFolderUsage(folders);
+        return objects.stream()
+                .map(object -> withFolderUsage(mapper.toDirectoryInfoDto(object), usage.get(object.objectName())))
+                .toList();
+    }
+
+    private ResourceInfoResponseDto toTransferredResourceDto(String to) {
+        var resource = mapper.toMoveResourceDto(to, getBytesCount(to));
+        if (!isFolder(to)) {
+            return resource;
+        }
+        return withFolderUsage(resource, dao.getFolderUsage(List.of(to)).get(to));
+    }
+
+    private ResourceInfoResponseDto withFolderUsage(ResourceInfoResponseDto resource, FolderUsage usage) {
+        if (usage == null) {
+            return resource;
+        }
+        return resource.toBuilder()
+                .size(usage.size())
+                .objectCount(usage.objectCount())
+                .build();
+    }
+
     private void performRemove(String from, boolean isDirectory) {
         if (isDirectory) {
-            dao.removeFolder(from);
+            dao.removeFolder(from, batch -> log.debug("Deleted batch {} under {}: {} of {} objects",
+                    batch.batchNumber(), from, batch.deleted(), batch.requested()));
         } else {
             dao.removeFile(from);
         }
     }
 
+    // Частичная копия убирается в dao: удаляются только созданные копированием объекты
     private void performCopy(String from, String to, boolean isDirectory) {
         if (isDirectory) {
             dao.copyFolder(from, to);
@@ -150,11 +415,67 @@ public class StorageServiceImpl implements StorageService {
         }
     }
 
-    private long getBytesCount(String filePath) {
-        try (var obj = dao.getObject(filePath)) {
-            return obj.headers().byteCount();
-        } catch (IOException e) {
-            throw new StorageException(e);
+    private void validateTransfer(String from, String to) {
+        if (dao.isObjectExists(to)) {
+            throw new ObjectAlreadyExistException();
+        } else if (!dao.isObjectExists(from) || !dao.isObjectExists(getParentPath(to, false))) {
+            throw new ObjectNotFoundException();
+        } else if (PathUtils.isAncestorOrSelf(from, to)) {
+            throw new IllegalArgumentException("Cannot move or copy folder into one of its subfolder");
         }
     }
+
+    private List<ByteRange> toByteRanges(String rangeHeader, long size) {
+        try {
+            List<ByteRange> ranges = new ArrayList<>();
+            long totalLength = 0;
+            for (HttpRange httpRange : HttpRange.parseRanges(rangeHeader)) {
+                var range = new ByteRange(httpRange.getRangeStart(size), httpRange.getRangeEnd(size));
+                if (range.length() <= 0) {
+                    throw new IllegalArgumentException("Empty range");
+                }
+                totalLength += range.length();
+                ranges.add(range);
+            }
+            // Перекрывающиеся диапазоны не должны позволять запросить больше байт, чем есть в файле
+            if (totalLength > size) {
+                throw new IllegalArgumentException("Total length of ranges exceeds resource size");
+            }
+            return ranges;
+        } catch (IllegalArgumentException e) {
+            throw new RangeNotSatisfiableException("Range %s is not satisfiable: %s".formatted(rangeHeader, e.getMessage()), size);
+        }
+    }
+
+    // Ресурсы внутри выбранных папок попадут в архив вместе с папкой, отдельно их добавлять не нужно.
+    // В отсортированном списке содержимое папки идет сразу за ней
+    private List<String> withoutNestedPaths(List<String> paths) {
+        List<String> selection = new ArrayList<>();
+        String lastFolder = null;
+        for (String path : new TreeSet<>(paths)) {
+            if (lastFolder != null && path.startsWith(lastFolder)) {
+                continue;
+            }
+            selection.add(path);
+            lastFolder = isFolder(path) ? path : null;
+        }
+        return selection;
+    }
+
+    // Курсор - имя последнего ресурса страницы относительно папки, чтобы не раскрывать корень пользователя
+    private String encodeCursor(String relativeName) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(relativeName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private long getBytesCount(String filePath) {
+        return dao.getObjectInfo(filePath).size();
+    }
 }
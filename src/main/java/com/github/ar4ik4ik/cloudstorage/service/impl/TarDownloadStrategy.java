@@ -0,0 +1,101 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.service.DownloadStrategy;
+import com.github.luben.zstd.ZstdOutputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.FileTime;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.getRelativePath;
+import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.isFolder;
+
+// Папка отдается как tar: размер записи известен из листинга, поэтому содержимое объектов
+// переносится в ответ напрямую, без CRC и центрального каталога
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TarDownloadStrategy implements DownloadStrategy {
+
+    private final S3Dao repository;
+    private final StorageProperties storageProperties;
+
+    @Override
+    public StreamingResponseBody download(String resourcePath) {
+        return download(resourcePath, () -> repository.streamObjectsByPath(resourcePath), false);
+    }
+
+    public StreamingResponseBody downloadCompressed(String resourcePath) {
+        return download(resourcePath, () -> repository.streamObjectsByPath(resourcePath), true);
+    }
+
+    // Имена записей строятся относительно basePath. В отличие от zip, при сжатии
+    // сжимается весь поток tar целиком, а не каждая запись отдельно
+    public StreamingResponseBody download(String basePath, Supplier<Stream<StorageObject>> items, boolean compressed) {
+        if (!compressed) {
+            return outputStream -> writeTar(basePath, items, outputStream);
+        }
+        return outputStream -> {
+            try (var zstdOutputStream = new ZstdOutputStream(outputStream, storageProperties.getDownload().getZstdLevel())) {
+                writeTar(basePath, items, zstdOutputStream);
+            }
+        };
+    }
+
+    private void writeTar(String resourcePath, Supplier<Stream<StorageObject>> items, OutputStream outputStream) throws IOException {
+        try (var storageItems = items.get();
+             var tar = new TarArchiveOutputStream(new BufferedOutputStream(outputStream), StandardCharsets.UTF_8.name())) {
+            // PAX-заголовки снимают ограничения ustar на длину имени и размер записи
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            tar.setAddPaxHeadersForNonAsciiNames(true);
+            var iterator = storageItems.iterator();
+            while (iterator.hasNext()) {
+                StorageObject item = iterator.next();
+                // Маркер самой папки в архив не попадает
+                if (!item.objectName().equals(resourcePath)) {
+                    writeEntry(tar, getRelativePath(item.objectName(), resourcePath), item);
+                }
+            }
+        } catch (StorageException e) {
+            // Ответ прерывается, чтобы клиент не получил оборванный архив как успешно скачанный
+            log.warn("Failed to retrieve data from path={}\nCause:{}", resourcePath, e.getMessage());
+            throw new IOException("Failed to read objects for archive of %s".formatted(resourcePath), e);
+        } catch (IOException e) {
+            log.error("Failed to tar data from path={}\nCause:{}", resourcePath, e.getMessage());
+            throw e;
+        }
+    }
+
+    private void writeEntry(TarArchiveOutputStream tar, String name, StorageObject item) throws IOException {
+        var entry = new TarArchiveEntry(name);
+        if (item.lastModified() != null) {
+            entry.setModTime(FileTime.from(item.lastModified().toInstant()));
+        }
+        if (isFolder(name)) {
+            tar.putArchiveEntry(entry);
+            tar.closeArchiveEntry();
+            return;
+        }
+        entry.setSize(item.size());
+        tar.putArchiveEntry(entry);
+        try (var content = repository.getObject(item.objectName())) {
+            content.transferTo(tar);
+        }
+        tar.closeArchiveEntry();
+    }
+}
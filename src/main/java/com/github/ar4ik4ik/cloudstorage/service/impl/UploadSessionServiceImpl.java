@@ -0,0 +1,143 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.event.ResourceUploadedEvent;
+import com.github.ar4ik4ik.cloudstorage.exception.ObjectAlreadyExistException;
+import com.github.ar4ik4ik.cloudstorage.exception.ObjectNotFoundException;
+import com.github.ar4ik4ik.cloudstorage.mapper.ResourceMapper;
+import com.github.ar4ik4ik.cloudstorage.model.UploadSession;
+import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.UploadSessionDto;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.repository.UploadSessionRepository;
+import com.github.ar4ik4ik.cloudstorage.service.UploadSessionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.*;
+
+// Загрузка файла по частям с возможностью продолжения: каждая часть клиента соответствует части multipart-загрузки S3,
+// поэтому повторная отправка части после обрыва просто перезаписывает ее.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadSessionServiceImpl implements UploadSessionService {
+
+    // Ограничения S3 на количество частей и минимальный размер части (кроме последней)
+    private static final int MAX_PARTS_COUNT = 10_000;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final S3Dao dao;
+    private final UploadSessionRepository sessionRepository;
+    private final ResourceMapper mapper;
+    private final StorageProperties storageProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public UploadSessionDto createSession(String userRootDirectory, String path, String contentType, long size) {
+        String fullPath = getFullPathFromRootAndDestination(userRootDirectory, path);
+        var upload = storageProperties.getUpload();
+        if (isFolder(fullPath) || size <= 0) {
+            throw new IllegalArgumentException("Upload session requires a file path and a positive size");
+        } else if (size > upload.getMaxFileSize().toBytes()) {
+            throw new IllegalArgumentException("File size exceeds the maximum of %s".formatted(upload.getMaxFileSize()));
+        } else if (dao.isObjectExists(fullPath)) {
+            throw new ObjectAlreadyExistException();
+        } else if (!dao.isObjectExists(getParentPath(fullPath, false))) {
+            throw new ObjectNotFoundException();
+        }
+
+        long chunkSize = Math.max(upload.getPartSize().toBytes(), MIN_PART_SIZE);
+        if ((size + chunkSize - 1) / chunkSize > MAX_PARTS_COUNT) {
+            throw new IllegalArgumentException("File is too large for chunk size %d".formatted(chunkSize));
+        }
+        var session = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .owner(userRootDirectory)
+                .path(fullPath)
+                .contentType(contentType)
+                .size(size)
+                .chunkSize(chunkSize)
+                .upload(dao.createMultipartUpload(fullPath, contentType))
+                .build();
+        sessionRepository.save(session, upload.getSessionTtl());
+        log.info("Created upload session {} for path {}", session.id(), fullPath);
+        return toDto(session, Map.of());
+    }
+
+    @Override
+    public UploadSessionDto getSession(String userRootDirectory, String sessionId) {
+        var session = findSession(userRootDirectory, sessionId);
+        return toDto(session, sessionRepository.findParts(sessionId));
+    }
+
+    @Override
+    public UploadSessionDto uploadChunk(String userRootDirectory, String sessionId, long offset, InputStream data, long length) {
+        var session = findSession(userRootDirectory, sessionId);
+        // Части должны совпадать с границами частей S3, иначе их нельзя склеить при завершении
+        long expectedLength = Math.min(session.chunkSize(), session.size() - offset);
+        if (offset < 0 || offset >= session.size() || offset % session.chunkSize() != 0 || length != expectedLength) {
+            throw new IllegalArgumentException("Chunk must start at a multiple of %d and contain %d bytes"
+                    .formatted(session.chunkSize(), Math.max(expectedLength, 0)));
+        }
+
+        int partNumber = (int) (offset / session.chunkSize()) + 1;
+        String etag = dao.uploadPart(session.upload(), partNumber, data, length);
+        sessionRepository.savePart(session, partNumber, etag, storageProperties.getUpload().getSessionTtl());
+        return toDto(session, sessionRepository.findParts(sessionId));
+    }
+
+    @Override
+    public ResourceInfoResponseDto completeSession(String userRootDirectory, String sessionId) {
+        var session = findSession(userRootDirectory, sessionId);
+        var parts = sessionRepository.findParts(sessionId);
+        if (parts.size() != session.getPartsCount()) {
+            throw new IllegalArgumentException("Upload is incomplete: received %d of %d chunks"
+                    .formatted(parts.size(), session.getPartsCount()));
+        }
+
+        var uploaded = dao.completeMultipartUpload(session.path(), session.upload(), parts);
+        sessionRepository.delete(session);
+        log.info("Completed upload session {} for path {}", sessionId, session.path());
+        eventPublisher.publishEvent(new ResourceUploadedEvent(this, session.path(), session.contentType(),
+                uploaded.size(), uploaded.etag(), uploaded.crc32()));
+        return mapper.toDto(uploaded);
+    }
+
+    @Override
+    public void abortSession(String userRootDirectory, String sessionId) {
+        var session = findSession(userRootDirectory, sessionId);
+        dao.abortMultipartUpload(session.upload());
+        sessionRepository.delete(session);
+        log.info("Aborted upload session {} for path {}", sessionId, session.path());
+    }
+
+    // Чужая сессия неотличима от отсутствующей
+    private UploadSession findSession(String userRootDirectory, String sessionId) {
+        return sessionRepository.findById(sessionId)
+                .filter(session -> session.owner().equals(userRootDirectory))
+                .orElseThrow(ObjectNotFoundException::new);
+    }
+
+    private UploadSessionDto toDto(UploadSession session, Map<Integer, String> parts) {
+        List<UploadSessionDto.ReceivedRange> ranges = new ArrayList<>();
+        for (int partNumber : parts.keySet().stream().sorted().toList()) {
+            long start = (partNumber - 1) * session.chunkSize();
+            long end = Math.min(start + session.chunkSize(), session.size());
+            if (!ranges.isEmpty() && ranges.getLast().end() == start) {
+                start = ranges.removeLast().start();
+            }
+            ranges.add(new UploadSessionDto.ReceivedRange(start, end));
+        }
+        return new UploadSessionDto(session.id(), excludeRootPath(session.path()), session.size(),
+                session.chunkSize(), ranges);
+    }
+}
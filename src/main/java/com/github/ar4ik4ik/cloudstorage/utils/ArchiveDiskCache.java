@@ -0,0 +1,190 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Кэш готовых архивов папок на локальном диске. Ключ - отпечаток листинга папки, поэтому изменение содержимого
+// дает новый ключ, а архив прежней версии папки удаляется сразу при сохранении нового.
+// Общий размер файлов ограничен, при превышении вытесняются давно не использовавшиеся архивы
+@Slf4j
+public class ArchiveDiskCache implements MeterBinder {
+
+    private static final long WEIGHT_UNIT = 1024;
+    private static final String FILE_PREFIX = "archive-";
+
+    private final Cache<String, Path> cache;
+    private final Map<String, String> fingerprintsByFolder = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final Path directory;
+
+    public ArchiveDiskCache(boolean enabled, Path directory, long maximumSize) {
+        // Вес записи считается в килобайтах, чтобы архивы больше 2 ГБ не переполняли int
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumSize / WEIGHT_UNIT)
+                .weigher((String fingerprint, Path file) -> weigh(file))
+                .removalListener(this::deleteFile)
+                .recordStats()
+                .build();
+        this.enabled = enabled;
+        this.directory = directory;
+        if (enabled) {
+            prepareDirectory();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Возвращает false, если архива нет в кэше. Файл копируется в поток ответа через буфер, целиком в память не читается
+    public boolean transferTo(String fingerprint, OutputStream out) throws IOException {
+        Path file = cache.getIfPresent(fingerprint);
+        if (file == null) {
+            return false;
+        }
+        try {
+            Files.copy(file, out);
+            out.flush();
+            return true;
+        } catch (NoSuchFileException e) {
+            // Архив вытеснили между поиском и открытием файла
+            cache.invalidate(fingerprint);
+            return false;
+        }
+    }
+
+    // Архив пишется во временный файл и попадает в кэш только после commit
+    public PendingArchive newArchive(String folderPath) {
+        try {
+            return new PendingArchive(folderPath, Files.createTempFile(directory, FILE_PREFIX, ".tmp"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, cache, "storage.archive-cache");
+    }
+
+    private void commit(String folderPath, String fingerprint, Path tempFile) throws IOException {
+        Path file = directory.resolve(FILE_PREFIX + fingerprint + "-" + UUID.randomUUID() + ".zip");
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+        cache.put(fingerprint, file);
+        String previous = fingerprintsByFolder.put(folderPath, fingerprint);
+        if (previous != null && !previous.equals(fingerprint)) {
+            cache.invalidate(previous);
+        }
+        log.debug("Cached archive of {} with fingerprint {}", folderPath, fingerprint);
+    }
+
+    // Архивы прошлого запуска не учтены в кэше, поэтому удаляются. Чужие файлы в каталоге не трогаем
+    private void prepareDirectory() {
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.newDirectoryStream(directory, FILE_PREFIX + "*")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare archive cache directory %s".formatted(directory), e);
+        }
+    }
+
+    private int weigh(Path file) {
+        try {
+            return (int) Math.min(Files.size(file) / WEIGHT_UNIT + 1, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    // При замене записи тем же отпечатком папка по-прежнему ссылается на него, иначе ссылка удаляется
+    private void deleteFile(RemovalNotification<String, Path> notification) {
+        if (notification.getCause() != RemovalCause.REPLACED) {
+            fingerprintsByFolder.values().remove(notification.getKey());
+        }
+        try {
+            Files.deleteIfExists(notification.getValue());
+        } catch (IOException e) {
+            log.warn("Failed to delete cached archive {}: {}", notification.getValue(), e.getMessage());
+        }
+    }
+
+    // Поток во временный файл архива. Ошибка записи на диск не прерывает скачивание: архив просто не кэшируется
+    public class PendingArchive extends OutputStream {
+
+        private final String folderPath;
+        private final Path tempFile;
+        private final OutputStream out;
+        private boolean failed;
+
+        private PendingArchive(String folderPath, Path tempFile) throws IOException {
+            this.folderPath = folderPath;
+            this.tempFile = tempFile;
+            this.out = Files.newOutputStream(tempFile);
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (failed) {
+                return;
+            }
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                log.warn("Failed to write archive of {} to cache: {}", folderPath, e.getMessage());
+                failed = true;
+            }
+        }
+
+        public void commit(String fingerprint) {
+            try {
+                out.close();
+                if (!failed) {
+                    ArchiveDiskCache.this.commit(folderPath, fingerprint, tempFile);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to cache archive of {}: {}", folderPath, e.getMessage());
+            }
+        }
+
+        // Удаляет временный файл, если архив не был сохранен в кэш
+        public void discard() {
+            try {
+                out.close();
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("Failed to delete temporary archive {}: {}", tempFile, e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
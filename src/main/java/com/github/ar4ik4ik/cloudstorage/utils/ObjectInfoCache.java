@@ -0,0 +1,98 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+// Кэш результатов statObject: присутствие объекта и его метаданные либо подтвержденное отсутствие.
+// Записи живут ограниченное время, чтобы изменения, сделанные другими экземплярами приложения, были видны.
+// Отсутствие хранится меньше: объект, созданный другим экземпляром, должен появиться почти сразу
+public class ObjectInfoCache implements MeterBinder {
+
+    private static final int GENERATION_STRIPES = 64;
+
+    private final Cache<String, Entry> cache;
+    private final boolean enabled;
+    private final long negativeTtlNanos;
+    // Поколения путей: инвалидация увеличивает поколение, и загрузка, начатая до нее, не оставляет запись в кэше
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public ObjectInfoCache(boolean enabled, Duration ttl, Duration negativeTtl, long maximumSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.enabled = enabled;
+        this.negativeTtlNanos = negativeTtl.toNanos();
+    }
+
+    public Optional<StorageObject> get(String path, Function<String, Optional<StorageObject>> loader) {
+        if (!enabled) {
+            return loader.apply(path);
+        }
+        int stripe = stripe(path);
+        long generation = generations.get(stripe);
+        var cached = cache.getIfPresent(path);
+        if (cached != null && cached.isFresh(negativeTtlNanos)) {
+            return cached.object();
+        }
+        if (cached != null) {
+            cache.asMap().remove(path, cached);
+        }
+        var loaded = load(path, loader);
+        if (generations.get(stripe) != generation) {
+            cache.asMap().remove(path, loaded);
+        }
+        return loaded.object();
+    }
+
+    public void invalidate(String path) {
+        generations.incrementAndGet(stripe(path));
+        cache.invalidate(path);
+    }
+
+    public void invalidatePrefix(String prefix) {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        cache.asMap().keySet().removeIf(path -> path.startsWith(prefix));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, cache, "storage.object-info");
+    }
+
+    // Одновременные запросы одного пути ждут единственную загрузку
+    private Entry load(String path, Function<String, Optional<StorageObject>> loader) {
+        try {
+            return cache.get(path, () -> new Entry(loader.apply(path), System.nanoTime()));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static int stripe(String path) {
+        return Math.floorMod(path.hashCode(), GENERATION_STRIPES);
+    }
+
+    private record Entry(Optional<StorageObject> object, long loadedAt) {
+
+        boolean isFresh(long negativeTtlNanos) {
+            return object.isPresent() || System.nanoTime() - loadedAt < negativeTtlNanos;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Сжатие в стиле pigz: поток режется на блоки, которые сжимаются параллельно независимыми Deflater.
+// Каждый блок получает последние 32 КБ предыдущего как словарь и завершается SYNC_FLUSH,
+// поэтому склеенные блоки образуют один корректный поток deflate. В памяти не больше 2 * parallelism блоков.
+@Slf4j
+public class ParallelDeflater implements AutoCloseable {
+
+    private static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] EMPTY_BLOCK = new byte[0];
+
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    public ParallelDeflater(String name, int parallelism) {
+        this.executor = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name(name + "-", 0).daemon().factory());
+        this.parallelism = parallelism;
+    }
+
+    // Пишет в output сырой поток deflate (без заголовков zlib), возвращает CRC и размер исходных данных.
+    // Данные меньше двух блоков сжимаются в вызывающем потоке
+    public Result deflate(InputStream input, OutputStream output, int level, long expectedSize) throws IOException {
+        if (expectedSize < 2L * BLOCK_SIZE) {
+            return deflateSequential(input, output, level);
+        }
+
+        var crc = new CRC32();
+        long size = 0;
+        Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        try {
+            byte[] dictionary = null;
+            byte[] block;
+            while ((block = input.readNBytes(BLOCK_SIZE)).length > 0) {
+                crc.update(block);
+                size += block.length;
+                byte[] data = block;
+                byte[] blockDictionary = dictionary;
+                inFlight.addLast(executor.submit(() -> deflateBlock(data, blockDictionary, level, false)));
+                dictionary = Arrays.copyOfRange(block, Math.max(0, block.length - DICTIONARY_SIZE), block.length);
+
+                while (inFlight.size() >= 2 * parallelism || (!inFlight.isEmpty() && inFlight.peekFirst().isDone())) {
+                    output.write(await(inFlight.removeFirst()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                output.write(await(inFlight.removeFirst()));
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        // Пустой последний блок с признаком конца потока
+        output.write(deflateBlock(EMPTY_BLOCK, null, level, true));
+        return new Result(crc.getValue(), size);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private Result deflateSequential(InputStream input, OutputStream output, int level) throws IOException {
+        var crc = new CRC32();
+        var deflater = new Deflater(level, true);
+        try {
+            byte[] buffer = new byte[8192];
+            byte[] compressed = new byte[8192];
+            long size = 0;
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                size += read;
+                deflater.setInput(buffer, 0, read);
+                while (!deflater.needsInput()) {
+                    output.write(compressed, 0, deflater.deflate(compressed));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                output.write(compressed, 0, deflater.deflate(compressed));
+            }
+            return new Result(crc.getValue(), size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] deflateBlock(byte[] block, byte[] dictionary, int level, boolean last) {
+        var deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(block);
+            var output = new ByteArrayOutputStream(block.length / 2 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    output.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int written;
+                do {
+                    written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    output.write(buffer, 0, written);
+                } while (written == buffer.length);
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    public record Result(long crc, long size) {
+    }
+}
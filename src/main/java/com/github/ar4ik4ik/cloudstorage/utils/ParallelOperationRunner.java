@@ -0,0 +1,151 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Выполняет поток задач с ограниченным числом одновременно выполняющихся задач и общим дедлайном на вызов.
+// Задачи вычитываются из итератора лениво, поэтому в памяти находится не больше parallelism задач.
+@Slf4j
+public class ParallelOperationRunner implements AutoCloseable {
+
+    private static final ThreadLocal<Duration> TIMEOUT_OVERRIDE = new ThreadLocal<>();
+    private static final Duration ABORT_GRACE = Duration.ofSeconds(10);
+    private static final long QUEUED_POLL_MILLIS = 50;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final Duration timeout;
+
+    public ParallelOperationRunner(String name, int parallelism, Duration timeout) {
+        this.executor = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name(name + "-", 0).daemon().factory());
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+    }
+
+    // Фоновые операции длятся дольше запросов, поэтому все вызовы runAll внутри operation получают свой дедлайн
+    public static void withTimeout(Duration timeout, Runnable operation) {
+        Duration previous = TIMEOUT_OVERRIDE.get();
+        TIMEOUT_OVERRIDE.set(timeout);
+        try {
+            operation.run();
+        } finally {
+            if (previous != null) {
+                TIMEOUT_OVERRIDE.set(previous);
+            } else {
+                TIMEOUT_OVERRIDE.remove();
+            }
+        }
+    }
+
+    public void runAll(Iterator<? extends Runnable> tasks) {
+        Duration timeout = Objects.requireNonNullElse(TIMEOUT_OVERRIDE.get(), this.timeout);
+        // Пул общий для всех запросов, поэтому дедлайн отсчитывается с момента, когда задача вызова начала выполняться,
+        // а не с момента вызова: время ожидания за задачами других запросов в него не входит
+        AtomicReference<Instant> deadline = new AtomicReference<>();
+        Semaphore permits = new Semaphore(parallelism);
+        Set<Thread> running = new HashSet<>();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        try {
+            while (failure.get() == null && tasks.hasNext()) {
+                acquire(permits, 1, deadline);
+                Runnable task = tasks.next();
+                try {
+                    executor.execute(() -> run(task, timeout, deadline, running, failure, permits));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw new StorageException(e);
+                }
+            }
+            // Дожидаемся завершения задач, которые еще выполняются
+            acquire(permits, parallelism, deadline);
+        } catch (TimeoutException e) {
+            abort(running, failure, permits);
+            throw new StorageException("Operation exceeded deadline of %s".formatted(timeout));
+        } catch (InterruptedException e) {
+            abort(running, failure, permits);
+            Thread.currentThread().interrupt();
+            throw new StorageException(e);
+        } catch (RuntimeException e) {
+            abort(running, failure, permits);
+            throw e;
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void run(Runnable task, Duration timeout, AtomicReference<Instant> deadline, Set<Thread> running,
+                     AtomicReference<RuntimeException> failure, Semaphore permits) {
+        deadline.compareAndSet(null, Instant.now().plus(timeout));
+        synchronized (running) {
+            running.add(Thread.currentThread());
+        }
+        try {
+            if (failure.get() == null) {
+                task.run();
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            synchronized (running) {
+                running.remove(Thread.currentThread());
+            }
+            // Прерывание могло прийти после завершения задачи, оно не должно достаться следующей задаче пула
+            Thread.interrupted();
+            permits.release();
+        }
+    }
+
+    private void acquire(Semaphore permits, int count, AtomicReference<Instant> deadline)
+            throws InterruptedException, TimeoutException {
+        // Пока ни одна задача вызова не начала выполняться, дедлайн не идет
+        while (deadline.get() == null) {
+            if (permits.tryAcquire(count, QUEUED_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+        long remainingMillis = Duration.between(Instant.now(), deadline.get()).toMillis();
+        if (remainingMillis <= 0 || !permits.tryAcquire(count, remainingMillis, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException();
+        }
+    }
+
+    // Прерывает выполняющиеся задачи и ждет их завершения, чтобы после выхода из runAll
+    // задачи вызова не продолжали работать с хранилищем
+    private void abort(Set<Thread> running, AtomicReference<RuntimeException> failure, Semaphore permits) {
+        failure.compareAndSet(null, new StorageException("Operation aborted"));
+        synchronized (running) {
+            log.warn("Aborting {} in-flight operations", running.size());
+            running.forEach(Thread::interrupt);
+        }
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!permits.tryAcquire(parallelism, ABORT_GRACE.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("In-flight operations did not finish within {}", ABORT_GRACE);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
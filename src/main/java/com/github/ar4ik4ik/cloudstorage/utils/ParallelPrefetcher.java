@@ -0,0 +1,108 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Загружает следующие window элементов параллельно, пока потребитель обрабатывает текущий.
+// Порядок элементов сохраняется, а в памяти одновременно находится не больше window загруженных результатов.
+@Slf4j
+public class ParallelPrefetcher implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final int window;
+
+    public ParallelPrefetcher(String name, int parallelism, int window) {
+        this.executor = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name(name + "-", 0).daemon().factory());
+        this.window = window;
+    }
+
+    // discard освобождает результаты, которые были загружены, но так и не отданы потребителю
+    public <T, R> Prefetch<T, R> prefetch(Iterator<T> source, Function<T, R> loader, Consumer<R> discard) {
+        return new Prefetch<>(source, loader, discard);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public class Prefetch<T, R> implements Iterator<R>, AutoCloseable {
+
+        private final Iterator<T> source;
+        private final Function<T, R> loader;
+        private final Consumer<R> discard;
+        private final Deque<Future<R>> inFlight = new ArrayDeque<>();
+
+        private Prefetch(Iterator<T> source, Function<T, R> loader, Consumer<R> discard) {
+            this.source = source;
+            this.loader = loader;
+            this.discard = discard;
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !inFlight.isEmpty();
+        }
+
+        @Override
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Future<R> head = inFlight.removeFirst();
+            fill();
+            try {
+                return head.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StorageException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new StorageException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!inFlight.isEmpty()) {
+                log.debug("Discarding {} prefetched items", inFlight.size());
+            }
+            for (Future<R> future : inFlight) {
+                if (!future.cancel(true) && future.state() == Future.State.SUCCESS) {
+                    discard.accept(future.resultNow());
+                }
+            }
+            inFlight.clear();
+        }
+
+        private void fill() {
+            while (inFlight.size() < window && source.hasNext()) {
+                T item = source.next();
+                var task = new FutureTask<>(() -> loader.apply(item)) {
+                    // Результат задачи, отмененной во время загрузки, никому не достанется
+                    @Override
+                    protected void set(R result) {
+                        super.set(result);
+                        if (isCancelled()) {
+                            discard.accept(result);
+                        }
+                    }
+                };
+                executor.execute(task);
+                inFlight.addLast(task);
+            }
+        }
+    }
+}
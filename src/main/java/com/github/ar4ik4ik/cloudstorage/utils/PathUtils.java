@@ -2,19 +2,36 @@ package com.github.ar4ik4ik.cloudstorage.utils;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 @Slf4j
 public class PathUtils {
+
+    // Верхняя граница диапазона, в который попадают все пути
+    public static final String MAX_PATH = Character.toString(Character.MAX_CODE_POINT);
+
     public static boolean isFolder(String path) {
         return path.endsWith("/");
     }
     public static String getFilenameForDownload(String path) {
+        return getFilenameForDownload(path, "zip");
+    }
+
+    public static String getFilenameForDownload(String path, String archiveExtension) {
         if (isFolder(path)) {
-            return extractNameFromPath(path).replace("/", "") + ".zip";
+            return extractNameFromPath(path).replace("/", "") + "." + archiveExtension;
         } else {
             return extractNameFromPath(path);
         }
     }
 
+    // Имя папки без завершающего /, используется при поиске по имени
+    public static String trimTrailingSlash(String name) {
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
     public static String getRelativePath(String fullObjectPath, String fromDirectoryPath) {
         return fullObjectPath.substring(fromDirectoryPath.length());
     }
@@ -76,4 +93,47 @@ public class PathUtils {
     public static String excludeRootPath(String originalPath) {
         return originalPath.substring(originalPath.indexOf("/") + 1);
     }
+
+    public static String extractRootDirectory(String path) {
+        return path.substring(0, path.indexOf("/") + 1);
+    }
+
+    // Наименьшая строка, большая всех строк с данным префиксом (в побайтовом порядке сравнения)
+    public static String getPrefixUpperBound(String prefix) {
+        if (prefix.isEmpty()) {
+            return MAX_PATH;
+        }
+        char lastChar = prefix.charAt(prefix.length() - 1);
+        return prefix.substring(0, prefix.length() - 1) + (char) (lastChar + 1);
+    }
+
+    // Все папки, внутри которых лежит путь, от корневой папки пользователя до родительской
+    public static List<String> getAncestorPaths(String path) {
+        List<String> ancestors = new ArrayList<>();
+        int end = path.indexOf('/');
+        while (end != -1 && end < path.length() - 1) {
+            ancestors.add(path.substring(0, end + 1));
+            end = path.indexOf('/', end + 1);
+        }
+        return ancestors;
+    }
+
+    // Самая глубокая папка, внутри которой лежат все переданные пути
+    public static String getCommonDirectoryPrefix(Collection<String> paths) {
+        String common = null;
+        for (String path : paths) {
+            String directory = path.substring(0, path.lastIndexOf("/") + 1);
+            if (common == null) {
+                common = directory;
+                continue;
+            }
+            int length = 0;
+            int maxLength = Math.min(common.length(), directory.length());
+            while (length < maxLength && common.charAt(length) == directory.charAt(length)) {
+                length++;
+            }
+            common = common.substring(0, common.lastIndexOf("/", length - 1) + 1);
+        }
+        return common == null ? "" : common;
+    }
 }
@@ -0,0 +1,152 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import com.google.common.hash.Hashing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Разметка ZIP-архива без сжатия, посчитанная до начала передачи. Архив состоит из заголовков, которые хранятся
+// в памяти, и содержимого объектов, которое читается из хранилища. Поэтому размер архива известен заранее,
+// а любой диапазон байт можно отдать, не формируя архив с начала
+public class StoredZipLayout {
+
+    private final List<Segment> segments;
+    private final long[] segmentOffsets;
+    private final long size;
+    private final String fingerprint;
+
+    private StoredZipLayout(List<Segment> segments, String fingerprint) {
+        this.segments = segments;
+        this.segmentOffsets = new long[segments.size()];
+        long offset = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            segmentOffsets[i] = offset;
+            offset += segments.get(i).length();
+        }
+        this.size = offset;
+        this.fingerprint = fingerprint;
+    }
+
+    // Записи должны идти в одном и том же порядке, иначе разметка для одной и той же папки будет отличаться
+    public static StoredZipLayout of(Iterable<Entry> entries) {
+        var recorder = new SegmentRecorder();
+        try (var writer = new ZipArchiveWriter(recorder)) {
+            for (Entry entry : entries) {
+                writer.writeStoredHeader(entry.name(), entry.lastModified(), entry.size(), entry.crc32());
+                recorder.appendContent(entry.key(), entry.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Центральный каталог содержит имена, размеры, CRC и смещения всех записей, поэтому его хэш определяет архив
+        byte[] centralDirectory = ((HeaderSegment) recorder.segments.getLast()).data();
+        return new StoredZipLayout(recorder.segments, Hashing.sha256().hashBytes(centralDirectory).toString());
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    // Пишет байты архива с start по end включительно
+    public void write(OutputStream out, long start, long end, ContentSource source) throws IOException {
+        int index = Arrays.binarySearch(segmentOffsets, start);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        for (; index < segments.size() && segmentOffsets[index] <= end; index++) {
+            Segment segment = segments.get(index);
+            long from = Math.max(start - segmentOffsets[index], 0);
+            long to = Math.min(end - segmentOffsets[index], segment.length() - 1);
+            if (from > to) {
+                continue;
+            }
+            switch (segment) {
+                case HeaderSegment header -> out.write(header.data(), (int) from, (int) (to - from + 1));
+                case ContentSegment content -> writeContent(out, content.key(), from, to - from + 1, source);
+            }
+        }
+    }
+
+    private static void writeContent(OutputStream out, String key, long offset, long length, ContentSource source) throws IOException {
+        try (InputStream content = source.open(key, offset, length)) {
+            long transferred = content.transferTo(out);
+            // Объект изменился после расчета разметки, продолжать нельзя: смещения в архиве уже неверны
+            if (transferred != length) {
+                throw new EOFException("Object %s returned %d bytes instead of %d".formatted(key, transferred, length));
+            }
+        }
+    }
+
+    // key - ключ, по которому источник найдет содержимое записи; для папок не используется
+    public record Entry(String name, String key, long size, long crc32, ZonedDateTime lastModified) {
+    }
+
+    @FunctionalInterface
+    public interface ContentSource {
+        InputStream open(String key, long offset, long length) throws IOException;
+    }
+
+    private sealed interface Segment permits HeaderSegment, ContentSegment {
+        long length();
+    }
+
+    private record HeaderSegment(byte[] data) implements Segment {
+
+        @Override
+        public long length() {
+            return data.length;
+        }
+    }
+
+    private record ContentSegment(String key, long length) implements Segment {
+    }
+
+    // Собирает подряд идущие заголовки в один сегмент, место под содержимое отмечает отдельным сегментом
+    private static class SegmentRecorder extends OutputStream {
+
+        private final List<Segment> segments = new ArrayList<>();
+        private final ByteArrayOutputStream headers = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int b) {
+            headers.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            headers.write(b, off, len);
+        }
+
+        void appendContent(String key, long length) {
+            if (length == 0) {
+                return;
+            }
+            flushHeaders();
+            segments.add(new ContentSegment(key, length));
+        }
+
+        @Override
+        public void close() {
+            flushHeaders();
+        }
+
+        private void flushHeaders() {
+            if (headers.size() > 0) {
+                segments.add(new HeaderSegment(headers.toByteArray()));
+                headers.reset();
+            }
+        }
+    }
+}
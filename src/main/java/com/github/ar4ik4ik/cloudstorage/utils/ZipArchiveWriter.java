@@ -0,0 +1,286 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+// Потоковая запись ZIP-архива. В отличие от ZipOutputStream принимает уже сжатые данные,
+// поэтому содержимое записей можно сжимать параллельно. Zip64 включается только там, где без него не обойтись
+public class ZipArchiveWriter implements Closeable {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int DOS_DIRECTORY_ATTRIBUTE = 0x10;
+
+    private final OutputStream out;
+    private final byte[] scratch = new byte[8];
+    private final List<CentralEntry> entries = new ArrayList<>();
+    private long written;
+    private boolean finished;
+
+    public ZipArchiveWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void writeStored(String name, byte[] data, ZonedDateTime lastModified) throws IOException {
+        var crc = new CRC32();
+        crc.update(data);
+        var entry = new CentralEntry(name.getBytes(StandardCharsets.UTF_8), FLAG_UTF8, METHOD_STORED,
+                toDosTime(lastModified), written, name.endsWith("/"));
+        writeLocalHeader(entry, crc.getValue(), data.length, data.length, false);
+        write(data, 0, data.length);
+        entries.add(entry.complete(crc.getValue(), data.length, data.length));
+    }
+
+    // Заголовок STORED-записи с заранее известными размером и CRC: все поля есть в локальном заголовке, дескриптор не нужен.
+    // Сразу после заголовка вызывающий код сам помещает в поток ровно size байт содержимого
+    public void writeStoredHeader(String name, ZonedDateTime lastModified, long size, long crc) throws IOException {
+        boolean zip64 = size >= ZIP64_MAGIC;
+        var entry = new CentralEntry(name.getBytes(StandardCharsets.UTF_8), FLAG_UTF8, METHOD_STORED,
+                toDosTime(lastModified), written, name.endsWith("/"));
+        writeLocalHeader(entry, crc, size, size, zip64);
+        written += size;
+        entries.add(entry.complete(crc, size, size));
+    }
+
+    // Содержимое пишется в поток как сырой deflate, размеры и CRC попадают в дескриптор после данных.
+    // Формат дескриптора объявляется до записи данных, а несжимаемое содержимое после deflate становится чуть больше
+    // исходного, поэтому Zip64 объявляется с запасом на накладные расходы сжатия
+    public void writeDeflated(String name, ZonedDateTime lastModified, long expectedSize, EntryWriter content) throws IOException {
+        boolean zip64 = maxDeflatedSize(expectedSize) >= ZIP64_MAGIC;
+        var entry = new CentralEntry(name.getBytes(StandardCharsets.UTF_8), FLAG_UTF8 | FLAG_DATA_DESCRIPTOR,
+                METHOD_DEFLATED, toDosTime(lastModified), written, false);
+        writeLocalHeader(entry, 0, 0, 0, zip64);
+
+        long dataStart = written;
+        var result = content.writeTo(new EntryOutputStream());
+        long compressedSize = written - dataStart;
+        if (!zip64 && (compressedSize >= ZIP64_MAGIC || result.size() >= ZIP64_MAGIC)) {
+            throw new ZipException("Entry %s exceeds 4GB but was declared with size %d".formatted(name, expectedSize));
+        }
+
+        writeInt(DATA_DESCRIPTOR_SIGNATURE);
+        writeInt(result.crc());
+        if (zip64) {
+            writeLong(compressedSize);
+            writeLong(result.size());
+        } else {
+            writeInt(compressedSize);
+            writeInt(result.size());
+        }
+        entries.add(entry.complete(result.crc(), compressedSize, result.size(), zip64));
+    }
+
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        long centralDirectoryOffset = written;
+        for (CentralEntry entry : entries) {
+            writeCentralHeader(entry);
+        }
+        long centralDirectorySize = written - centralDirectoryOffset;
+
+        boolean zip64 = entries.size() >= ZIP64_MAGIC_COUNT
+                || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectorySize >= ZIP64_MAGIC;
+        if (zip64) {
+            long zip64EndOffset = written;
+            writeInt(ZIP64_END_SIGNATURE);
+            writeLong(44);
+            writeShort(VERSION_ZIP64);
+            writeShort(VERSION_ZIP64);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entries.size());
+            writeLong(entries.size());
+            writeLong(centralDirectorySize);
+            writeLong(centralDirectoryOffset);
+
+            writeInt(ZIP64_LOCATOR_SIGNATURE);
+            writeInt(0);
+            writeLong(zip64EndOffset);
+            writeInt(1);
+        }
+
+        writeInt(END_SIGNATURE);
+        writeShort(0);
+        writeShort(0);
+        writeShort(Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+        writeShort(Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+        writeInt(Math.min(centralDirectorySize, ZIP64_MAGIC));
+        writeInt(Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+        writeShort(0);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    // Оценка сверху с запасом: deflate добавляет к несжимаемым данным доли процента, а параллельное сжатие -
+    // несколько байт на границе каждого блока
+    private static long maxDeflatedSize(long size) {
+        return size + (size >> 10) + 64;
+    }
+
+    // Если в локальном заголовке есть поле Zip64, оба размера в нем должны быть 0xFFFFFFFF, а сами размеры идут в поле
+    private void writeLocalHeader(CentralEntry entry, long crc, long compressedSize, long size, boolean zip64) throws IOException {
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+        writeShort(entry.flags());
+        writeShort(entry.method());
+        writeInt(entry.dosTime());
+        writeInt(crc);
+        writeInt(zip64 ? ZIP64_MAGIC : compressedSize);
+        writeInt(zip64 ? ZIP64_MAGIC : size);
+        writeShort(entry.name().length);
+        writeShort(zip64 ? 20 : 0);
+        write(entry.name(), 0, entry.name().length);
+        if (zip64) {
+            writeShort(ZIP64_EXTRA_ID);
+            writeShort(16);
+            writeLong(size);
+            writeLong(compressedSize);
+        }
+    }
+
+    // В дополнительное поле Zip64 попадают только те значения, которые не поместились в заголовок
+    // Если запись объявлена как Zip64 в локальном заголовке, центральный заголовок тоже несет размеры в поле Zip64
+    private void writeCentralHeader(CentralEntry entry) throws IOException {
+        boolean sizes64 = entry.zip64() || entry.size() >= ZIP64_MAGIC || entry.compressedSize() >= ZIP64_MAGIC;
+        boolean offset64 = entry.offset() >= ZIP64_MAGIC;
+        int extraLength = (sizes64 ? 16 : 0) + (offset64 ? 8 : 0);
+        int version = extraLength > 0 ? VERSION_ZIP64 : VERSION_DEFAULT;
+
+        writeInt(CENTRAL_HEADER_SIGNATURE);
+        writeShort(version);
+        writeShort(version);
+        writeShort(entry.flags());
+        writeShort(entry.method());
+        writeInt(entry.dosTime());
+        writeInt(entry.crc());
+        writeInt(sizes64 ? ZIP64_MAGIC : entry.compressedSize());
+        writeInt(sizes64 ? ZIP64_MAGIC : entry.size());
+        writeShort(entry.name().length);
+        writeShort(extraLength > 0 ? extraLength + 4 : 0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(entry.directory() ? DOS_DIRECTORY_ATTRIBUTE : 0);
+        writeInt(offset64 ? ZIP64_MAGIC : entry.offset());
+        write(entry.name(), 0, entry.name().length);
+        if (extraLength > 0) {
+            writeShort(ZIP64_EXTRA_ID);
+            writeShort(extraLength);
+            if (sizes64) {
+                writeLong(entry.size());
+                writeLong(entry.compressedSize());
+            }
+            if (offset64) {
+                writeLong(entry.offset());
+            }
+        }
+    }
+
+    private static long toDosTime(ZonedDateTime lastModified) {
+        LocalDateTime time = lastModified != null
+                ? lastModified.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime()
+                : LocalDateTime.now();
+        if (time.getYear() < 1980) {
+            time = LocalDateTime.of(1980, 1, 1, 0, 0);
+        }
+        long date = ((long) (time.getYear() - 1980) << 9) | ((long) time.getMonthValue() << 5) | time.getDayOfMonth();
+        long dayTime = ((long) time.getHour() << 11) | ((long) time.getMinute() << 5) | (time.getSecond() >> 1);
+        return (date << 16) | dayTime;
+    }
+
+    private void writeShort(int value) throws IOException {
+        scratch[0] = (byte) value;
+        scratch[1] = (byte) (value >>> 8);
+        write(scratch, 0, 2);
+    }
+
+    private void writeInt(long value) throws IOException {
+        for (int i = 0; i < 4; i++) {
+            scratch[i] = (byte) (value >>> (8 * i));
+        }
+        write(scratch, 0, 4);
+    }
+
+    private void writeLong(long value) throws IOException {
+        for (int i = 0; i < 8; i++) {
+            scratch[i] = (byte) (value >>> (8 * i));
+        }
+        write(scratch, 0, 8);
+    }
+
+    private void write(byte[] data, int offset, int length) throws IOException {
+        out.write(data, offset, length);
+        written += length;
+    }
+
+    @FunctionalInterface
+    public interface EntryWriter {
+        ParallelDeflater.Result writeTo(OutputStream out) throws IOException;
+    }
+
+    private record CentralEntry(byte[] name, int flags, int method, long dosTime, long offset, boolean directory,
+                                long crc, long compressedSize, long size, boolean zip64) {
+
+        CentralEntry(byte[] name, int flags, int method, long dosTime, long offset, boolean directory) {
+            this(name, flags, method, dosTime, offset, directory, 0, 0, 0, false);
+        }
+
+        CentralEntry complete(long crc, long compressedSize, long size) {
+            return complete(crc, compressedSize, size, false);
+        }
+
+        CentralEntry complete(long crc, long compressedSize, long size, boolean zip64) {
+            return new CentralEntry(name, flags, method, dosTime, offset, directory, crc, compressedSize, size, zip64);
+        }
+    }
+
+    // Поток для содержимого записи: учитывает записанные байты и не закрывает архив
+    private class EntryOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            scratch[0] = (byte) b;
+            ZipArchiveWriter.this.write(scratch, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ZipArchiveWriter.this.write(b, off, len);
+        }
+    }
+}
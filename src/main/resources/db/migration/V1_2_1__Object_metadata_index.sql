@@ -0,0 +1,20 @@
+create schema if not exists storage;
+
+create type storage.resource_type as enum ('FILE', 'DIRECTORY');
+
+-- collate "C" дает побайтовый порядок ключей как в S3 и позволяет искать по диапазону префикса через btree
+create table storage.t_objects
+(
+    id            bigserial primary key,
+    path          varchar(1024) collate "C" not null,
+    parent_path   varchar(1024) collate "C" not null,
+    name          varchar(255)              not null,
+    size          bigint                    not null default 0,
+    type          storage.resource_type     not null,
+    etag          varchar(64),
+    last_modified timestamptz               not null default now(),
+    owner         varchar(255)              not null
+);
+
+create unique index path_objects_idx on storage.t_objects (path);
+create index parent_path_objects_idx on storage.t_objects (parent_path, path);
@@ -0,0 +1,4 @@
+-- Ключ объекта в бакете. Без маппинга ключей совпадает с path, для папок в режиме маппинга отсутствует
+alter table storage.t_objects add column physical_key varchar(1024) collate "C";
+
+update storage.t_objects set physical_key = path;
@@ -0,0 +1,2 @@
+-- CRC32 содержимого, считается при загрузке через приложение. Для остальных объектов заполняется при первой необходимости
+alter table storage.t_objects add column crc32 bigint;
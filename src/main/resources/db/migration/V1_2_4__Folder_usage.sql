@@ -0,0 +1,20 @@
+-- Суммарный размер и число файлов во всем поддереве папки, для файлов всегда 0.
+-- Поддерживаются приложением при каждом изменении, чтобы размер папки не требовал обхода поддерева
+alter table storage.t_objects add column total_size bigint not null default 0;
+alter table storage.t_objects add column object_count bigint not null default 0;
+
+-- Путь папки оканчивается на '/', поэтому ее поддерево - диапазон [path, path без '/' || '0')
+update storage.t_objects d
+set total_size   = u.total_size,
+    object_count = u.object_count
+from (select folder.id,
+             coalesce(sum(file.size), 0) as total_size,
+             count(file.id)              as object_count
+      from storage.t_objects folder
+               join storage.t_objects file
+                    on file.type = 'FILE'
+                        and file.path > folder.path
+                        and file.path < left(folder.path, -1) || '0'
+      where folder.type = 'DIRECTORY'
+      group by folder.id) u
+where d.id = u.id;
@@ -0,0 +1,4 @@
+-- Триграммный индекс по имени ускоряет поиск по подстроке (ilike '%query%') без обхода всего дерева пользователя
+create extension if not exists pg_trgm;
+
+create index name_trgm_objects_idx on storage.t_objects using gin (name gin_trgm_ops);
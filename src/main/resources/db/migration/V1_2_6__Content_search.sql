@@ -0,0 +1,5 @@
+-- Полнотекстовый индекс содержимого текстовых файлов. Заполняется асинхронно после загрузки,
+-- поэтому поиск по содержимому не обращается к MinIO
+alter table storage.t_objects add column content tsvector;
+
+create index content_objects_idx on storage.t_objects using gin (content);
@@ -0,0 +1,2 @@
+-- Записи удаляются пачками по ключам объектов, удаленных из бакета
+create index physical_key_objects_idx on storage.t_objects (physical_key);
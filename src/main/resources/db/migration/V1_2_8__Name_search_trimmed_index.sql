@@ -0,0 +1,4 @@
+-- Поиск сравнивает имена папок без завершающего /, поэтому триграммный индекс строится по тому же выражению
+drop index if exists storage.name_trgm_objects_idx;
+
+create index name_trgm_objects_idx on storage.t_objects using gin (rtrim(name, '/') gin_trgm_ops);
@@ -2,9 +2,13 @@ package com.github.ar4ik4ik.cloudstorage.controller;
 
 import com.github.ar4ik4ik.cloudstorage.TestcontainersConfiguration;
 import com.github.ar4ik4ik.cloudstorage.dao.impl.MinioDaoImpl;
+import com.github.ar4ik4ik.cloudstorage.model.FileDownload.ByteRange;
+import com.github.ar4ik4ik.cloudstorage.model.FolderUsage;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
 import com.github.ar4ik4ik.cloudstorage.service.impl.DirectoryDownloadStrategy;
 import com.github.ar4ik4ik.cloudstorage.service.impl.FileDownloadStrategy;
 import com.github.ar4ik4ik.cloudstorage.service.impl.StorageServiceImpl;
+import com.github.ar4ik4ik.cloudstorage.utils.StoredZipLayout;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,12 +18,24 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 
@@ -27,6 +43,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ActiveProfiles("test")
 @Import(TestcontainersConfiguration.class)
 @AutoConfigureMockMvc(addFilters = false)
+@TestPropertySource(properties = "storage.index.enabled=false")
 class ResourceControllerTest {
 
     @Autowired
@@ -46,6 +63,7 @@ class ResourceControllerTest {
 
     private static final String TEST_FILE_PATH = "somefile.txt";
     private static final String TEST_DIRECTORY_PATH = "somedirectory/";
+    private static final String SELECTION_ROOT = "user-1-files/";
 
     @Test
     @DisplayName("Успешное скачивание существующего файла")
@@ -58,6 +76,7 @@ class ResourceControllerTest {
         };
 
         when(dao.isObjectExists(TEST_FILE_PATH)).thenReturn(true);
+        when(dao.getObjectInfo(TEST_FILE_PATH)).thenReturn(fileInfo(fileContent.length()));
         when(fileDownloadStrategy.download(TEST_FILE_PATH))
                 .thenReturn(mockResponseBody);
 
@@ -66,6 +85,8 @@ class ResourceControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(header()
                         .string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + TEST_FILE_PATH))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, fileContent.length()))
                 .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
                 .andExpect(content().bytes(fileContent.getBytes()));
 
@@ -123,4 +144,197 @@ class ResourceControllerTest {
         verifyNoInteractions(directoryDownloadStrategy);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Скачивание одного диапазона файла возвращает 206 и Content-Range")
+    void downloadResource_WhenSingleRangeRequested_ReturnPartialContent() throws Exception {
+        String rangeContent = "Some";
+
+        StreamingResponseBody mockResponseBody = outputStream -> outputStream.write(rangeContent.getBytes());
+
+        when(dao.isObjectExists(TEST_FILE_PATH)).thenReturn(true);
+        when(dao.getObjectInfo(TEST_FILE_PATH)).thenReturn(fileInfo(20));
+        when(fileDownloadStrategy.download(TEST_FILE_PATH, new ByteRange(0, 3)))
+                .thenReturn(mockResponseBody);
+
+        mockMvc.perform(get("/api/resource/download")
+                        .queryParam("path", TEST_FILE_PATH)
+                        .header(HttpHeaders.RANGE, "bytes=0-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-3/20"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().bytes(rangeContent.getBytes()));
+
+        verify(fileDownloadStrategy, times(1)).download(TEST_FILE_PATH, new ByteRange(0, 3));
+        verifyNoMoreInteractions(fileDownloadStrategy);
+    }
+
+    @Test
+    @DisplayName("Диапазон за пределами файла возвращает 416")
+    void downloadResource_WhenRangeOutOfBounds_ReturnRangeNotSatisfiable() throws Exception {
+        when(dao.isObjectExists(TEST_FILE_PATH)).thenReturn(true);
+        when(dao.getObjectInfo(TEST_FILE_PATH)).thenReturn(fileInfo(20));
+
+        mockMvc.perform(get("/api/resource/download")
+                        .queryParam("path", TEST_FILE_PATH)
+                        .header(HttpHeaders.RANGE, "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */20"));
+
+        verifyNoInteractions(fileDownloadStrategy);
+    }
+
+    @Test
+    @DisplayName("Версия папки меняется вместе с ее содержимым, хотя маркер папки прежний")
+    void getResourceInfo_WhenFolderContentChanged_ReturnNewVersion() throws Exception {
+        when(dao.getObjectInfo(TEST_DIRECTORY_PATH))
+                .thenReturn(new StorageObject(TEST_DIRECTORY_PATH, 0, "marker", ZonedDateTime.now()));
+        when(dao.getFolderUsage(List.of(TEST_DIRECTORY_PATH)))
+                .thenReturn(Map.of(TEST_DIRECTORY_PATH, new FolderUsage(30, 2)));
+
+        mockMvc.perform(get("/api/resource")
+                        .queryParam("path", TEST_DIRECTORY_PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"marker-20-1\"")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 01 Jan 2100 00:00:00 GMT"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"marker-30-2\""));
+    }
+
+    @Test
+    @DisplayName("Скачивание неизменившегося файла возвращает 304 без обращения к содержимому")
+    void downloadResource_WhenEtagMatches_ReturnNotModified() throws Exception {
+        when(dao.getObjectInfo(TEST_FILE_PATH)).thenReturn(fileInfo(20));
+
+        mockMvc.perform(get("/api/resource/download")
+                        .queryParam("path", TEST_FILE_PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"etag\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"etag\""))
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(dao, never()).getObject(TEST_FILE_PATH);
+        verifyNoInteractions(fileDownloadStrategy);
+    }
+
+    @Test
+    @DisplayName("Range игнорируется, если файл изменился с момента, указанного в If-Range")
+    void downloadResource_WhenIfRangeDoesNotMatch_ReturnWholeFile() throws Exception {
+        String fileContent = "Some file content...";
+
+        StreamingResponseBody mockResponseBody = outputStream -> outputStream.write(fileContent.getBytes());
+
+        when(dao.isObjectExists(TEST_FILE_PATH)).thenReturn(true);
+        when(dao.getObjectInfo(TEST_FILE_PATH)).thenReturn(fileInfo(fileContent.length()));
+        when(fileDownloadStrategy.download(TEST_FILE_PATH))
+                .thenReturn(mockResponseBody);
+
+        mockMvc.perform(get("/api/resource/download")
+                        .queryParam("path", TEST_FILE_PATH)
+                        .header(HttpHeaders.RANGE, "bytes=0-3")
+                        .header(HttpHeaders.IF_RANGE, "\"old-etag\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(fileContent.getBytes()));
+
+        verify(fileDownloadStrategy, times(1)).download(TEST_FILE_PATH);
+        verifyNoMoreInteractions(fileDownloadStrategy);
+    }
+
+    @Test
+    @DisplayName("Папка в режиме seekable отдается с известной длиной и поддерживает Range")
+    void downloadResource_WhenSeekableFolderRangeRequested_ReturnPartialContent() throws Exception {
+        var layout = StoredZipLayout.of(List.of(
+                new StoredZipLayout.Entry("folder/", null, 0, 0, ZonedDateTime.now())));
+        StreamingResponseBody mockResponseBody = outputStream -> outputStream.write(new byte[4]);
+
+        when(dao.isObjectExists(TEST_DIRECTORY_PATH)).thenReturn(true);
+        when(directoryDownloadStrategy.planStoredArchive(TEST_DIRECTORY_PATH)).thenReturn(Optional.of(layout));
+        when(directoryDownloadStrategy.download(layout, new ByteRange(0, 3))).thenReturn(mockResponseBody);
+
+        mockMvc.perform(get("/api/resource/download")
+                        .queryParam("path", TEST_DIRECTORY_PATH)
+                        .queryParam("seekable", "true")
+                        .header(HttpHeaders.RANGE, "bytes=0-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"%s\"".formatted(layout.fingerprint())))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-3/%d".formatted(layout.size())))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4));
+
+        verify(directoryDownloadStrategy, never()).download(TEST_DIRECTORY_PATH);
+    }
+
+    @Test
+    @DisplayName("Папка без посчитанных CRC в режиме seekable отдается потоковым архивом")
+    void downloadResource_WhenSeekableFolderLacksCrc_ReturnStreamingArchive() throws Exception {
+        StreamingResponseBody mockResponseBody = outputStream -> outputStream.write("archive".getBytes());
+
+        when(dao.isObjectExists(TEST_DIRECTORY_PATH)).thenReturn(true);
+        when(directoryDownloadStrategy.planStoredArchive(TEST_DIRECTORY_PATH)).thenReturn(Optional.empty());
+        when(directoryDownloadStrategy.download(TEST_DIRECTORY_PATH)).thenReturn(mockResponseBody);
+
+        mockMvc.perform(get("/api/resource/download")
+                        .queryParam("path", TEST_DIRECTORY_PATH)
+                        .queryParam("seekable", "true")
+                        .header(HttpHeaders.RANGE, "bytes=0-3"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("archive".getBytes()));
+
+        verify(directoryDownloadStrategy, never()).download(any(StoredZipLayout.class), any());
+    }
+
+    @Test
+    @DisplayName("Выбранные ресурсы скачиваются одним архивом, вложенные в выбранные папки не дублируются")
+    void downloadSelection_WhenResourcesExist_ReturnSingleArchive() throws Exception {
+        String archiveContent = "archive";
+        StreamingResponseBody mockResponseBody = outputStream -> outputStream.write(archiveContent.getBytes());
+
+        when(dao.findExistingPaths(List.of(SELECTION_ROOT + "docs/", SELECTION_ROOT + "photo.jpg")))
+                .thenReturn(Set.of(SELECTION_ROOT + "docs/", SELECTION_ROOT + "photo.jpg"));
+        when(directoryDownloadStrategy.download(eq(SELECTION_ROOT), any())).thenReturn(mockResponseBody);
+
+        mockMvc.perform(post("/api/resource/download")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"paths": ["%1$sphoto.jpg", "%1$sdocs/", "%1$sdocs/nested.txt"]}
+                                """.formatted(SELECTION_ROOT)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''download.zip"))
+                .andExpect(content().bytes(archiveContent.getBytes()));
+
+        verify(directoryDownloadStrategy, times(1)).download(eq(SELECTION_ROOT), any());
+    }
+
+    @Test
+    @DisplayName("Скачивание выбранных ресурсов возвращает 404, если часть из них не существует")
+    void downloadSelection_WhenResourceMissing_ReturnNotFound() throws Exception {
+        when(dao.findExistingPaths(List.of(SELECTION_ROOT + "missing.txt", SELECTION_ROOT + "photo.jpg")))
+                .thenReturn(Set.of(SELECTION_ROOT + "photo.jpg"));
+
+        mockMvc.perform(post("/api/resource/download")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"paths": ["%1$sphoto.jpg", "%1$smissing.txt"]}
+                                """.formatted(SELECTION_ROOT)))
+                .andExpect(status().isNotFound());
+
+        verifyNoInteractions(directoryDownloadStrategy);
+    }
+
+    @Test
+    @DisplayName("Асинхронное удаление папки возвращает 202 и ссылку на фоновую операцию")
+    void deleteResource_WhenAsync_ReturnAcceptedJob() throws Exception {
+        when(dao.isObjectExists(SELECTION_ROOT + "docs/")).thenReturn(true);
+
+        mockMvc.perform(delete("/api/resource")
+                        .param("path", SELECTION_ROOT + "docs/")
+                        .param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, containsString("/jobs/")))
+                .andExpect(jsonPath("$.type").value("DELETE"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+
+        verify(dao, timeout(5000)).removeFolder(eq(SELECTION_ROOT + "docs/"), any());
+    }
+
+    private static StorageObject fileInfo(long size) {
+        return new StorageObject(TEST_FILE_PATH, size, "etag", ZonedDateTime.now());
+    }
+}
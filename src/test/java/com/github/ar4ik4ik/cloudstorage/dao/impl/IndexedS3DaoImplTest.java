@@ -0,0 +1,439 @@
+package com.github.ar4ik4ik.cloudstorage.dao.impl;
+
+import com.github.ar4ik4ik.cloudstorage.exception.IncompleteMoveException;
+import com.github.ar4ik4ik.cloudstorage.exception.JobCancelledException;
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.DeleteBatchResult;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.model.entity.ObjectMetadata;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.repository.ObjectMetadataRepository;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelOperationRunner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.MAX_PATH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndexedS3DaoImplTest {
+
+    private static final String ROOT = "user-1-files/";
+
+    @Mock
+    private MinioDaoImpl delegate;
+
+    @Mock
+    private ObjectMetadataRepository repository;
+
+    private final StorageProperties storageProperties = new StorageProperties();
+    private final ParallelOperationRunner runner = new ParallelOperationRunner("test", 2, Duration.ofSeconds(5));
+    private IndexedS3DaoImpl dao;
+
+    @BeforeEach
+    void setUp() {
+        dao = new IndexedS3DaoImpl(delegate, repository, storageProperties, runner);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.close();
+    }
+
+    @Test
+    @DisplayName("Рекурсивный листинг запрашивает поддерево диапазоном [папка, верхняя граница префикса)")
+    void getListObjectsByPath_Recursive_QueriesPrefixRange() {
+        // given
+        when(repository.findSubtree(ROOT + "docs/", ROOT + "docs0")).thenReturn(List.of(metadata(ROOT + "docs/a.txt", 3)));
+
+        // when
+        var objects = dao.getListObjectsByPath(ROOT + "docs/", true);
+
+        // then
+        assertThat(objects).extracting(StorageObject::objectName).containsExactly(ROOT + "docs/a.txt");
+    }
+
+    @Test
+    @DisplayName("Завершающий / в запросе поиска по имени отбрасывается, как и в именах папок")
+    void searchByName_FolderQuery_SearchesWithoutTrailingSlash() {
+        // given
+        when(repository.searchByName(ROOT, ROOT.substring(0, ROOT.length() - 1) + "0", "docs", "%docs%", 10))
+                .thenReturn(List.of(metadata(ROOT + "docs/", 0)));
+
+        // when
+        var found = dao.searchByName(ROOT, "docs/", 10);
+
+        // then
+        assertThat(found).extracting(StorageObject::objectName).containsExactly(ROOT + "docs/");
+    }
+
+    @Test
+    @DisplayName("Загруженный файл попадает в индекс и учитывается во всех папках-предках")
+    void uploadObject_NewFile_SavesMetadataAndUpdatesAncestors() {
+        // given
+        String path = ROOT + "docs/a.txt";
+        when(delegate.uploadObject(eq(path), any(), any(), eq(3L)))
+                .thenReturn(new StorageObject(path, 3, "etag", null, 42L));
+        when(repository.findByPath(path)).thenReturn(Optional.empty());
+
+        // when
+        dao.uploadObject(path, "text/plain", new ByteArrayInputStream(new byte[3]), 3);
+
+        // then
+        var saved = ArgumentCaptor.forClass(ObjectMetadata.class);
+        verify(repository).save(saved.capture());
+        assertThat(saved.getValue())
+                .extracting(ObjectMetadata::getParentPath, ObjectMetadata::getOwner, ObjectMetadata::getCrc32)
+                .containsExactly(ROOT + "docs/", ROOT, 42L);
+        verify(repository).addFolderUsage(List.of(ROOT, ROOT + "docs/"), 3, 1);
+    }
+
+    @Test
+    @DisplayName("Удаленный файл вычитается из всех папок-предков")
+    void removeFile_IndexedFile_SubtractsFromAncestors() {
+        // given
+        String path = ROOT + "docs/a.txt";
+        when(repository.findByPath(path)).thenReturn(Optional.of(metadata(path, 3)));
+        when(repository.deleteByPath(path)).thenReturn(1L);
+
+        // when
+        dao.removeFile(path);
+
+        // then
+        verify(repository).addFolderUsage(List.of(ROOT, ROOT + "docs/"), -3, -1);
+    }
+
+    @Test
+    @DisplayName("Удаление папки вычитает из предков ровно удаленные из индекса файлы")
+    void removeFolder_Folder_SubtractsRemovedUsage() {
+        // given
+        String path = ROOT + "docs/";
+        when(repository.deleteSubtree(path, ROOT + "docs0")).thenReturn(usage(30, 2));
+
+        // when
+        dao.removeFolder(path);
+
+        // then
+        verify(repository).addFolderUsage(List.of(ROOT), -30, -2);
+        verify(repository, never()).findByPath(path);
+    }
+
+    @Test
+    @DisplayName("Прерванное удаление папки убирает из индекса только удаленные пачки")
+    void removeFolder_CancelledAfterBatch_RemovesOnlyDeletedBatchFromIndex() {
+        // given
+        String path = ROOT + "docs/";
+        var batch = new DeleteBatchResult(1, List.of(path + "a.txt", path + "b.txt"),
+                List.of(new DeleteBatchResult.Failure(path + "b.txt", "AccessDenied", null)));
+        doAnswer(invocation -> {
+            invocation.<Consumer<DeleteBatchResult>>getArgument(1).accept(batch);
+            return null;
+        }).when(delegate).removeFolder(eq(path), any());
+        when(repository.deleteByPhysicalKeys(List.of(path + "a.txt"))).thenReturn(usage(10, 1));
+
+        // when
+        assertThatThrownBy(() -> dao.removeFolder(path, deleted -> {
+            throw new JobCancelledException("cancelled");
+        })).isInstanceOf(JobCancelledException.class);
+
+        // then
+        verify(repository).addFolderUsage(List.of(ROOT), -10, -1);
+        verify(repository).recomputeFolderUsage(path, ROOT + "docs0");
+        verify(repository, never()).deleteSubtree(any(), any());
+    }
+
+    @Test
+    @DisplayName("Копия файла учитывается в предках нового пути")
+    void copyFile_IndexedFile_AddsToTargetAncestors() {
+        // given
+        when(repository.findByPath(ROOT + "a.txt")).thenReturn(Optional.of(metadata(ROOT + "a.txt", 3)));
+
+        // when
+        dao.copyFile(ROOT + "a.txt", ROOT + "backup/a.txt");
+
+        // then
+        verify(repository).addFolderUsage(List.of(ROOT, ROOT + "backup/"), 3, 1);
+    }
+
+    @Test
+    @DisplayName("Копия папки учитывается в предках по счетчикам скопированной папки")
+    void copyFolder_Folder_AddsCopiedUsageToTargetAncestors() {
+        // given
+        var copy = metadata(ROOT + "backup/docs/", 0);
+        copy.setTotalSize(30L);
+        copy.setObjectCount(2L);
+        when(repository.findByPath(ROOT + "backup/docs/")).thenReturn(Optional.of(copy));
+
+        // when
+        dao.copyFolder(ROOT + "docs/", ROOT + "backup/docs/");
+
+        // then
+        verify(repository).addFolderUsage(List.of(ROOT, ROOT + "backup/"), 30, 2);
+    }
+
+    @Test
+    @DisplayName("При сбое копирования с маппингом ключ копии записан в индекс заранее и удаляется вместе с записью")
+    void copyFolder_MappedCopyFails_RecordsKeyBeforeCopyAndRemovesIt() {
+        // given
+        storageProperties.getIndex().setKeyMapping(true);
+        var source = metadata(ROOT + "docs/a.txt", 3);
+        when(repository.findAllByPathGreaterThanEqualAndPathLessThanOrderByPath(eq(ROOT + "docs/"), eq(ROOT + "docs0"), any()))
+                .thenReturn(List.of(source));
+        doThrow(new StorageException("deadline")).when(delegate).copyObject(eq(source.getPhysicalKey()), any(), eq(3L), isNull());
+
+        // when
+        assertThatThrownBy(() -> dao.copyFolder(ROOT + "docs/", ROOT + "backup/docs/"))
+                .isInstanceOf(StorageException.class);
+
+        // then
+        var saved = ArgumentCaptor.forClass(ObjectMetadata.class);
+        var inOrder = inOrder(repository, delegate);
+        inOrder.verify(repository).save(saved.capture());
+        inOrder.verify(delegate).copyObject(eq(source.getPhysicalKey()), eq(saved.getValue().getPhysicalKey()), eq(3L), isNull());
+        inOrder.verify(delegate).removeFile(saved.getValue().getPhysicalKey());
+        inOrder.verify(repository).delete(saved.getValue());
+        assertThat(saved.getValue().getPath()).isEqualTo(ROOT + "backup/docs/a.txt");
+        verify(repository).recomputeFolderUsage(ROOT + "backup/docs/", ROOT + "backup/docs0");
+    }
+
+    @Test
+    @DisplayName("Если копию убрать не удалось, запись с ее ключом остается в индексе для отката")
+    void copyFolder_MappedCleanupFails_KeepsRecordForRollback() {
+        // given
+        storageProperties.getIndex().setKeyMapping(true);
+        var source = metadata(ROOT + "docs/a.txt", 3);
+        when(repository.findAllByPathGreaterThanEqualAndPathLessThanOrderByPath(eq(ROOT + "docs/"), eq(ROOT + "docs0"), any()))
+                .thenReturn(List.of(source));
+        doThrow(new StorageException("deadline")).when(delegate).copyObject(any(), any(), anyLong(), any());
+        doThrow(new StorageException("interrupted")).when(delegate).removeFile(any());
+
+        // when
+        assertThatThrownBy(() -> dao.copyFolder(ROOT + "docs/", ROOT + "backup/docs/"))
+                .isInstanceOf(StorageException.class)
+                .hasMessage("deadline");
+
+        // then
+        verify(repository).save(any());
+        verify(repository, never()).delete(any());
+    }
+
+    @Test
+    @DisplayName("Откат копирования с маппингом удаляет только созданные копией ключи и записи")
+    void copyFolder_MappedCleanupFails_RollbackRemovesOnlyCreatedKeys() {
+        // given
+        storageProperties.getIndex().setKeyMapping(true);
+        var source = metadata(ROOT + "docs/a.txt", 3);
+        when(repository.findAllByPathGreaterThanEqualAndPathLessThanOrderByPath(eq(ROOT + "docs/"), eq(ROOT + "docs0"), any()))
+                .thenReturn(List.of(source));
+        doThrow(new StorageException("deadline")).when(delegate).copyObject(any(), any(), anyLong(), any());
+        doThrow(new StorageException("interrupted")).when(delegate).removeFile(any());
+        doAnswer(invocation -> {
+            List<String> keys = invocation.<Stream<String>>getArgument(1).toList();
+            invocation.<Consumer<DeleteBatchResult>>getArgument(2).accept(new DeleteBatchResult(1, keys, List.of()));
+            return null;
+        }).when(delegate).removeObjects(eq(ROOT + "backup/docs/"), any(), any());
+
+        // when
+        assertThatThrownBy(() -> dao.copyFolder(ROOT + "docs/", ROOT + "backup/docs/"))
+                .isInstanceOf(StorageException.class)
+                .hasMessage("deadline");
+
+        // then
+        var saved = ArgumentCaptor.forClass(ObjectMetadata.class);
+        verify(repository).save(saved.capture());
+        verify(repository).deleteByPhysicalKeys(List.of(saved.getValue().getPhysicalKey()));
+        verify(delegate, never()).removeFolder(any(), any());
+        verify(repository, never()).deleteSubtree(any(), any());
+    }
+
+    @Test
+    @DisplayName("Поддерево читается страницами, следующая запрашивается после последнего пути предыдущей")
+    void streamObjectsByPath_SeveralPages_ReadsAfterLastPath() {
+        // given
+        List<ObjectMetadata> firstPage = IntStream.range(0, 1000)
+                .mapToObj(i -> metadata(ROOT + "docs/%04d.txt".formatted(i), 1))
+                .toList();
+        when(repository.findAllByPathGreaterThanEqualAndPathLessThanOrderByPath(eq(ROOT + "docs/"), eq(ROOT + "docs0"), any()))
+                .thenReturn(firstPage);
+        when(repository.findAllByPathGreaterThanAndPathLessThanOrderByPath(eq(ROOT + "docs/0999.txt"), eq(ROOT + "docs0"), any()))
+                .thenReturn(List.of(metadata(ROOT + "docs/1000.txt", 1)));
+
+        // when
+        List<StorageObject> objects;
+        try (var stream = dao.streamObjectsByPath(ROOT + "docs/")) {
+            objects = stream.toList();
+        }
+
+        // then
+        assertThat(objects).hasSize(1001);
+        assertThat(objects.getLast().objectName()).isEqualTo(ROOT + "docs/1000.txt");
+        verify(repository, times(1)).findAllByPathGreaterThanAndPathLessThanOrderByPath(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Неполная первая страница завершает чтение поддерева без повторного запроса")
+    void streamObjectsByPath_PartialFirstPage_DoesNotQueryNextPage() {
+        // given
+        when(repository.findAllByPathGreaterThanEqualAndPathLessThanOrderByPath(eq(ROOT + "docs/"), eq(ROOT + "docs0"), any()))
+                .thenReturn(List.of(metadata(ROOT + "docs/a.txt", 1), metadata(ROOT + "docs/b.txt", 1)));
+
+        // when
+        List<StorageObject> objects;
+        try (var stream = dao.streamObjectsByPath(ROOT + "docs/")) {
+            objects = stream.toList();
+        }
+
+        // then
+        assertThat(objects).extracting(StorageObject::objectName).containsExactly(ROOT + "docs/a.txt", ROOT + "docs/b.txt");
+        verify(repository, never()).findAllByPathGreaterThanAndPathLessThanOrderByPath(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Перемещение папки переносит между предками ровно перемещенные файлы")
+    void moveFolder_Folder_TransfersMovedUsage() {
+        // given
+        when(repository.moveSubtree(ROOT + "docs/", ROOT + "docs0", ROOT + "archive/docs/", ROOT + "archive/",
+                "docs/", ROOT, true)).thenReturn(usage(30, 2));
+
+        // when
+        dao.moveFolder(ROOT + "docs/", ROOT + "archive/docs/");
+
+        // then
+        verify(repository).addFolderUsage(List.of(ROOT), -30, -2);
+        verify(repository).addFolderUsage(List.of(ROOT, ROOT + "archive/"), 30, 2);
+        verify(repository, never()).findByPath(any());
+    }
+
+    @Test
+    @DisplayName("Если источник удален частично, индекс переносится на полную копию, а уцелевшие объекты источника индексируются заново")
+    void moveFolder_SourcePartlyRemoved_MovesIndexAndReindexesRemainingSource() {
+        // given
+        var failure = new IncompleteMoveException("partly removed", List.of(ROOT + "docs/b.txt"), null);
+        doThrow(failure).when(delegate).moveFolder(eq(ROOT + "docs/"), eq(ROOT + "archive/docs/"), any());
+        when(repository.moveSubtree(ROOT + "docs/", ROOT + "docs0", ROOT + "archive/docs/", ROOT + "archive/",
+                "docs/", ROOT, true)).thenReturn(usage(30, 2));
+        when(delegate.streamObjectsByPath(ROOT + "docs/"))
+                .thenReturn(Stream.of(new StorageObject(ROOT + "docs/b.txt", 20, "etag", null)));
+
+        // when
+        assertThatThrownBy(() -> dao.moveFolder(ROOT + "docs/", ROOT + "archive/docs/"))
+                .isSameAs(failure);
+
+        // then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ObjectMetadata>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(ObjectMetadata::getPath).containsExactly(ROOT + "docs/b.txt");
+        verify(repository).recomputeFolderUsage(ROOT + "docs/", ROOT + "docs0");
+        verify(repository).addFolderUsage(List.of(ROOT), -30, -2);
+        verify(repository).addFolderUsage(List.of(ROOT, ROOT + "archive/"), 30, 2);
+        verify(repository).addFolderUsage(List.of(ROOT), 20, 1);
+    }
+
+    @Test
+    @DisplayName("Сохранение версии без CRC не затирает сумму, пока etag файла не изменился")
+    void completeMultipartUpload_SameEtagWithoutCrc_KeepsIndexedCrc() {
+        // given
+        String path = ROOT + "video.mp4";
+        var indexed = metadata(path, 3);
+        indexed.setEtag("etag");
+        indexed.setCrc32(42L);
+        when(repository.findByPath(path)).thenReturn(Optional.of(indexed));
+        when(delegate.completeMultipartUpload(eq(path), any(), any()))
+                .thenReturn(new StorageObject(path, 3, "etag", null));
+
+        // when
+        dao.completeMultipartUpload(path, null, Map.of());
+
+        // then
+        assertThat(indexed.getCrc32()).isEqualTo(42L);
+    }
+
+    @Test
+    @DisplayName("Новая версия файла без CRC сбрасывает сумму предыдущей версии")
+    void completeMultipartUpload_NewEtagWithoutCrc_ClearsIndexedCrc() {
+        // given
+        String path = ROOT + "video.mp4";
+        var indexed = metadata(path, 3);
+        indexed.setEtag("old-etag");
+        indexed.setCrc32(42L);
+        when(repository.findByPath(path)).thenReturn(Optional.of(indexed));
+        when(delegate.completeMultipartUpload(eq(path), any(), any()))
+                .thenReturn(new StorageObject(path, 5, "new-etag", null));
+
+        // when
+        dao.completeMultipartUpload(path, null, Map.of());
+
+        // then
+        assertThat(indexed.getCrc32()).isNull();
+        assertThat(indexed.getEtag()).isEqualTo("new-etag");
+    }
+
+    @Test
+    @DisplayName("Переиндексация пропускает промежуточные ключи и уже проиндексированные объекты")
+    void rebuildIndex_Bucket_SkipsStagingAndIndexedObjects() {
+        // given
+        when(delegate.streamObjectsByPath("")).thenReturn(Stream.of(
+                new StorageObject(MinioDaoImpl.PRESIGNED_STAGING_PREFIX + "upload", 1, "etag", null),
+                new StorageObject(ROOT + "indexed.txt", 1, "etag", null),
+                new StorageObject(ROOT + "new.txt", 1, "etag", null)));
+        when(repository.existsByPath(ROOT + "indexed.txt")).thenReturn(true);
+        when(repository.existsByPath(ROOT + "new.txt")).thenReturn(false);
+
+        // when
+        dao.rebuildIndex();
+
+        // then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ObjectMetadata>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(ObjectMetadata::getPath).containsExactly(ROOT + "new.txt");
+        verify(repository).recomputeFolderUsage("", MAX_PATH);
+    }
+
+    static ObjectMetadataRepository.SubtreeUsage usage(long totalSize, long objectCount) {
+        return new ObjectMetadataRepository.SubtreeUsage() {
+            @Override
+            public long getTotalSize() {
+                return totalSize;
+            }
+
+            @Override
+            public long getObjectCount() {
+                return objectCount;
+            }
+        };
+    }
+
+    static ObjectMetadata metadata(String path, long size) {
+        return ObjectMetadata.builder()
+                .path(path)
+                .physicalKey(path)
+                .size(size)
+                .lastModified(OffsetDateTime.now())
+                .build();
+    }
+}
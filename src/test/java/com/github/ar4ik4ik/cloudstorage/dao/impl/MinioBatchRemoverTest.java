@@ -0,0 +1,103 @@
+package com.github.ar4ik4ik.cloudstorage.dao.impl;
+
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.DeleteBatchResult;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelOperationRunner;
+import com.google.common.collect.Iterables;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MinioBatchRemoverTest {
+
+    private static final String BUCKET = "bucket";
+    private static final String PATH = "user-1-files/folder/";
+
+    @Mock
+    private MinioClient minioClient;
+
+    private final ParallelOperationRunner runner = new ParallelOperationRunner("test", 2, Duration.ofSeconds(5));
+    private final List<DeleteBatchResult> progress = new CopyOnWriteArrayList<>();
+    private MinioBatchRemover remover;
+
+    @BeforeEach
+    void setUp() {
+        var storageProperties = new StorageProperties();
+        storageProperties.getDelete().setBatchSize(1000);
+        remover = new MinioBatchRemover(minioClient, runner, storageProperties);
+        ReflectionTestUtils.setField(remover, "bucket", BUCKET);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.close();
+    }
+
+    @Test
+    @DisplayName("Ключи отправляются пачками не больше 1000, о каждой пачке сообщается отдельно")
+    void removeAll_ManyKeys_SendsBoundedBatchesAndReportsProgress() {
+        // given
+        when(minioClient.removeObjects(any())).thenReturn(List.of());
+
+        // when
+        remover.removeAll(PATH, keys(2500).iterator(), progress::add);
+
+        // then
+        ArgumentCaptor<RemoveObjectsArgs> requests = ArgumentCaptor.forClass(RemoveObjectsArgs.class);
+        verify(minioClient, times(3)).removeObjects(requests.capture());
+        assertThat(requests.getAllValues())
+                .extracting(args -> Iterables.size(args.objects()))
+                .containsExactlyInAnyOrder(1000, 1000, 500);
+        assertThat(progress)
+                .extracting(DeleteBatchResult::batchNumber, DeleteBatchResult::deleted)
+                .containsExactlyInAnyOrder(tuple(1, 1000), tuple(2, 1000), tuple(3, 500));
+    }
+
+    @Test
+    @DisplayName("Ошибки удаления отдельных ключей не прерывают остальные пачки и приводят к исключению в конце")
+    void removeAll_DeleteErrors_ReportsFailuresAndThrows() {
+        // given
+        var deleteError = mock(DeleteError.class);
+        when(deleteError.objectName()).thenReturn(PATH + "key-0");
+        when(deleteError.code()).thenReturn("AccessDenied");
+        when(minioClient.removeObjects(any()))
+                .thenReturn(List.of(new Result<>(deleteError)))
+                .thenReturn(List.of());
+
+        // when / then
+        assertThatThrownBy(() -> remover.removeAll(PATH, keys(1500).iterator(), progress::add))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("1 of 1500");
+        verify(minioClient, times(2)).removeObjects(any());
+        assertThat(progress)
+                .flatExtracting(DeleteBatchResult::failures)
+                .containsExactly(new DeleteBatchResult.Failure(PATH + "key-0", "AccessDenied", null));
+    }
+
+    private List<String> keys(int count) {
+        return IntStream.range(0, count).mapToObj(i -> PATH + "key-" + i).toList();
+    }
+}
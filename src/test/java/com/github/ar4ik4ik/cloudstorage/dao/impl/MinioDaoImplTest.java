@@ -0,0 +1,308 @@
+package com.github.ar4ik4ik.cloudstorage.dao.impl;
+
+import com.github.ar4ik4ik.cloudstorage.exception.IncompleteMoveException;
+import com.github.ar4ik4ik.cloudstorage.exception.ObjectAlreadyExistException;
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.DeleteBatchResult;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.utils.ObjectInfoCache;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelOperationRunner;
+import com.google.common.collect.ImmutableList;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MinioDaoImplTest {
+
+    private static final String FROM = "user-1-files/from/";
+    private static final String TO = "user-1-files/to/";
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private ObjectInfoCache objectInfoCache;
+
+    @Mock
+    private MinioMultipartUploader multipartUploader;
+
+    @Mock
+    private MinioPresigner presigner;
+
+    @Mock
+    private MinioBatchRemover batchRemover;
+
+    // Один поток, чтобы копирование шло в порядке листинга
+    private final ParallelOperationRunner runner = new ParallelOperationRunner("test", 1, Duration.ofSeconds(5));
+    private MinioDaoImpl dao;
+
+    @BeforeEach
+    void setUp() {
+        dao = spy(new MinioDaoImpl(minioClient, runner, objectInfoCache, multipartUploader, presigner, batchRemover));
+        ReflectionTestUtils.setField(dao, "bucket", "bucket");
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.close();
+    }
+
+    @Test
+    @DisplayName("При сбое копирования откат удаляет только ключи, скопированные этим перемещением")
+    @SuppressWarnings("unchecked")
+    void moveFolder_CopyFails_RemovesOnlyCopiedKeys() {
+        // given
+        doReturn(Stream.of(object(FROM + "a.txt"), object(FROM + "b.txt")))
+                .when(dao).streamObjectsByPath(FROM);
+        doNothing().when(dao).copyObject(eq(FROM + "a.txt"), eq(TO + "a.txt"), anyLong(), any());
+        doThrow(new StorageException("copy failed"))
+                .when(dao).copyObject(eq(FROM + "b.txt"), eq(TO + "b.txt"), anyLong(), any());
+
+        // when
+        assertThatThrownBy(() -> dao.moveFolder(FROM, TO, object -> {}))
+                .isInstanceOf(StorageException.class);
+
+        // then
+        var keys = ArgumentCaptor.forClass(Iterator.class);
+        verify(batchRemover).removeAll(eq(TO), keys.capture(), any());
+        assertThat(ImmutableList.copyOf((Iterator<String>) keys.getValue()))
+                .containsExactlyInAnyOrder(TO + "a.txt", TO + "b.txt");
+        verify(dao, never()).removeFolder(any(), any());
+    }
+
+    @Test
+    @DisplayName("При сбое копирования папки удаляются только скопированные ключи, а не весь целевой префикс")
+    @SuppressWarnings("unchecked")
+    void copyFolder_CopyFails_RemovesOnlyCopiedKeys() {
+        // given
+        doReturn(Stream.of(object(FROM + "a.txt"), object(FROM + "b.txt")))
+                .when(dao).streamObjectsByPath(FROM);
+        doNothing().when(dao).copyObject(eq(FROM + "a.txt"), eq(TO + "a.txt"), anyLong(), any());
+        doThrow(new StorageException("copy failed"))
+                .when(dao).copyObject(eq(FROM + "b.txt"), eq(TO + "b.txt"), anyLong(), any());
+
+        // when
+        assertThatThrownBy(() -> dao.copyFolder(FROM, TO))
+                .isInstanceOf(StorageException.class)
+                .hasMessage("copy failed");
+
+        // then
+        var keys = ArgumentCaptor.forClass(Iterator.class);
+        verify(batchRemover).removeAll(eq(TO), keys.capture(), any());
+        assertThat(ImmutableList.copyOf((Iterator<String>) keys.getValue()))
+                .containsExactlyInAnyOrder(TO + "a.txt", TO + "b.txt");
+        verify(dao, never()).removeFolder(any(), any());
+    }
+
+    @Test
+    @DisplayName("Сбой пачки при удалении источника не откатывает копию: перемещение завершается ошибкой с неудаленными ключами")
+    void moveFolder_SourceDeleteBatchFails_KeepsCopyAndReportsUndeletedKeys() {
+        // given
+        doAnswer(invocation -> Stream.of(object(FROM + "a.txt"), object(FROM + "b.txt")))
+                .when(dao).streamObjectsByPath(FROM);
+        doNothing().when(dao).copyObject(any(), any(), anyLong(), any());
+        doAnswer(invocation -> {
+            Consumer<DeleteBatchResult> progress = invocation.getArgument(2);
+            progress.accept(new DeleteBatchResult(1, List.of(FROM + "a.txt", FROM + "b.txt"),
+                    List.of(new DeleteBatchResult.Failure(FROM + "b.txt", "AccessDenied", null))));
+            throw new StorageException("Failed to delete 1 of 2 objects");
+        }).when(batchRemover).removeAll(eq(FROM), any(), any());
+
+        // when
+        assertThatThrownBy(() -> dao.moveFolder(FROM, TO, object -> {}))
+                .isInstanceOf(IncompleteMoveException.class)
+                .extracting(e -> ((IncompleteMoveException) e).getUndeletedKeys())
+                .isEqualTo(List.of(FROM + "b.txt"));
+
+        // then
+        verify(dao).copyObject(eq(FROM + "a.txt"), eq(TO + "a.txt"), anyLong(), any());
+        verify(dao).copyObject(eq(FROM + "b.txt"), eq(TO + "b.txt"), anyLong(), any());
+        verify(batchRemover, never()).removeAll(eq(TO), any(), any());
+    }
+
+    @Test
+    @DisplayName("Конфликт с существующим объектом в целевой папке не запускает откат")
+    void moveFolder_TargetObjectExists_KeepsTargetAndSource() {
+        // given
+        doReturn(Stream.of(object(FROM + "a.txt"))).when(dao).streamObjectsByPath(FROM);
+        doThrow(new ObjectAlreadyExistException("exists"))
+                .when(dao).copyObject(eq(FROM + "a.txt"), eq(TO + "a.txt"), anyLong(), any());
+
+        // when
+        assertThatThrownBy(() -> dao.moveFolder(FROM, TO, object -> {}))
+                .isInstanceOf(ObjectAlreadyExistException.class);
+
+        // then
+        verifyNoInteractions(batchRemover);
+    }
+
+    @Test
+    @DisplayName("Конфликт посреди перемещения откатывает уже скопированные объекты, занятый ключ не удаляется")
+    @SuppressWarnings("unchecked")
+    void moveFolder_TargetObjectExistsAfterCopies_RemovesCopiedKeys() {
+        // given
+        doReturn(Stream.of(object(FROM + "a.txt"), object(FROM + "b.txt")))
+                .when(dao).streamObjectsByPath(FROM);
+        doNothing().when(dao).copyObject(eq(FROM + "a.txt"), eq(TO + "a.txt"), anyLong(), any());
+        doThrow(new ObjectAlreadyExistException("exists"))
+                .when(dao).copyObject(eq(FROM + "b.txt"), eq(TO + "b.txt"), anyLong(), any());
+
+        // when
+        assertThatThrownBy(() -> dao.moveFolder(FROM, TO, object -> {}))
+                .isInstanceOf(ObjectAlreadyExistException.class);
+
+        // then
+        var keys = ArgumentCaptor.forClass(Iterator.class);
+        verify(batchRemover).removeAll(eq(TO), keys.capture(), any());
+        assertThat(ImmutableList.copyOf((Iterator<String>) keys.getValue()))
+                .containsExactly(TO + "a.txt");
+        verify(batchRemover, never()).removeAll(eq(FROM), any(), any());
+    }
+
+    @Test
+    @DisplayName("Копирование объекта больше 5 ГБ передает известный тип содержимого без повторного запроса источника")
+    void copyObject_LargerThanCopyLimit_CopiesByPartsWithGivenContentType() throws Exception {
+        // given
+        long size = 6L * 1024 * 1024 * 1024;
+
+        // when
+        dao.copyObject(FROM + "video.mp4", TO + "video.mp4", size, "video/mp4");
+
+        // then
+        verify(multipartUploader).copy(FROM + "video.mp4", TO + "video.mp4", size, "video/mp4");
+        verify(minioClient, never()).statObject(any());
+        verifyNoMoreInteractions(minioClient);
+        verify(objectInfoCache).invalidate(TO + "video.mp4");
+    }
+
+    @Test
+    @DisplayName("Подтверждение загрузки по ссылке копирует промежуточный объект на путь и удаляет его")
+    void completePresignedUpload_StagedObject_CopiesToPathAndRemovesStaging() throws Exception {
+        // given
+        String key = MinioDaoImpl.PRESIGNED_STAGING_PREFIX + "upload";
+        String path = "user-1-files/file.txt";
+        var stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn(5L);
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+        doNothing().when(dao).copyObject(key, path, 5, null);
+        doReturn(new StorageObject(path, 5, "etag", null)).when(dao).getObjectInfo(path);
+
+        // when
+        StorageObject uploaded = dao.completePresignedUpload(path, key, 5);
+
+        // then
+        assertThat(uploaded.objectName()).isEqualTo(path);
+        verify(dao).copyObject(key, path, 5, null);
+        verify(minioClient).removeObject(argThat(args -> args.object().equals(key)));
+    }
+
+    @Test
+    @DisplayName("Объект больше максимального размера не копируется на путь, промежуточный ключ удаляется")
+    void completePresignedUpload_StagedObjectTooLarge_RemovesStagingAndThrows() throws Exception {
+        // given
+        String key = MinioDaoImpl.PRESIGNED_STAGING_PREFIX + "upload";
+        var stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn(6L);
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+
+        // when
+        assertThatThrownBy(() -> dao.completePresignedUpload("user-1-files/file.txt", key, 5))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // then
+        verify(dao, never()).copyObject(any(), any(), anyLong(), any());
+        verify(minioClient).removeObject(argThat(args -> args.object().equals(key)));
+    }
+
+    @Test
+    @DisplayName("Ссылка на загрузку подписывается на промежуточный ключ, а не на путь файла")
+    void createPresignedUpload_AnyPath_SignsStagingKey() throws Exception {
+        // given
+        when(presigner.presignUpload(any())).thenAnswer(invocation -> "https://minio/" + invocation.getArgument(0));
+
+        // when
+        var handle = dao.createPresignedUpload("user-1-files/file.txt");
+
+        // then
+        assertThat(handle.key()).startsWith(MinioDaoImpl.PRESIGNED_STAGING_PREFIX);
+        assertThat(handle.url()).doesNotContain("user-1-files");
+    }
+
+    @Test
+    @DisplayName("Существование небольшого набора путей проверяется через кэш метаданных без листинга")
+    void findExistingPaths_FewPaths_UsesObjectInfo() {
+        // given
+        when(objectInfoCache.get(eq(FROM + "a.txt"), any())).thenReturn(Optional.of(object(FROM + "a.txt")));
+        when(objectInfoCache.get(eq(TO + "b.txt"), any())).thenReturn(Optional.empty());
+
+        // when
+        Set<String> existing = dao.findExistingPaths(List.of(FROM + "a.txt", TO + "b.txt"));
+
+        // then
+        assertThat(existing).containsExactly(FROM + "a.txt");
+        verify(minioClient, never()).listObjects(any());
+    }
+
+    @Test
+    @DisplayName("Большой набор путей проверяется одним нерекурсивным листингом каждой родительской папки")
+    void findExistingPaths_ManyPaths_ListsEachParentNonRecursively() {
+        // given
+        List<String> paths = IntStream.range(0, 20)
+                .mapToObj(i -> (i % 2 == 0 ? FROM : TO) + "file-" + i + ".txt")
+                .toList();
+        List<Result<Item>> fromListing = List.of(new Result<>(item(FROM + "file-0.txt")), new Result<>(item(FROM + "other.txt")));
+        List<Result<Item>> toListing = List.of(new Result<>(item(TO + "file-1.txt")));
+        when(minioClient.listObjects(argThat(args -> args != null && args.prefix().equals(FROM)))).thenReturn(fromListing);
+        when(minioClient.listObjects(argThat(args -> args != null && args.prefix().equals(TO)))).thenReturn(toListing);
+
+        // when
+        Set<String> existing = dao.findExistingPaths(paths);
+
+        // then
+        assertThat(existing).containsExactlyInAnyOrder(FROM + "file-0.txt", TO + "file-1.txt");
+        var args = ArgumentCaptor.forClass(ListObjectsArgs.class);
+        verify(minioClient, times(2)).listObjects(args.capture());
+        assertThat(args.getAllValues()).noneMatch(ListObjectsArgs::recursive);
+        verifyNoInteractions(objectInfoCache);
+    }
+
+    private static Item item(String key) {
+        var item = mock(Item.class);
+        when(item.objectName()).thenReturn(key);
+        return item;
+    }
+
+    private static StorageObject object(String key) {
+        return new StorageObject(key, 1, "etag", null);
+    }
+}
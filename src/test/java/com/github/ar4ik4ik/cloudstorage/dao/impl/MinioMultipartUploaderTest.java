@@ -0,0 +1,142 @@
+package com.github.ar4ik4ik.cloudstorage.dao.impl;
+
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.google.common.collect.Multimap;
+import io.minio.*;
+import io.minio.errors.ServerException;
+import io.minio.messages.CopyPartResult;
+import io.minio.messages.InitiateMultipartUploadResult;
+import io.minio.messages.Part;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MinioMultipartUploaderTest {
+
+    private static final String BUCKET = "bucket";
+    private static final String PATH = "user-1-files/big.bin";
+    private static final String UPLOAD_ID = "upload-id";
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @Mock
+    private MinioAsyncClient minioAsyncClient;
+
+    private MinioMultipartUploader uploader;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var storageProperties = new StorageProperties();
+        storageProperties.getUpload().setPartSize(DataSize.ofBytes(PART_SIZE));
+        storageProperties.getUpload().setParallelism(2);
+        uploader = new MinioMultipartUploader(minioAsyncClient, storageProperties);
+        ReflectionTestUtils.setField(uploader, "bucket", BUCKET);
+
+        var result = mock(InitiateMultipartUploadResult.class);
+        when(result.uploadId()).thenReturn(UPLOAD_ID);
+        var createResponse = mock(CreateMultipartUploadResponse.class);
+        when(createResponse.result()).thenReturn(result);
+        when(minioAsyncClient.createMultipartUploadAsync(eq(BUCKET), isNull(), eq(PATH), any(), isNull()))
+                .thenReturn(CompletableFuture.completedFuture(createResponse));
+    }
+
+    @Test
+    @DisplayName("Файл разбивается на части заданного размера, загрузка завершается списком всех частей")
+    void upload_FileLargerThanPart_UploadsAllPartsAndCompletes() throws Exception {
+        // given
+        byte[] content = new byte[2 * PART_SIZE + 100];
+        when(minioAsyncClient.uploadPartAsync(eq(BUCKET), isNull(), eq(PATH), any(), anyLong(), eq(UPLOAD_ID), anyInt(), isNull(), isNull()))
+                .thenAnswer(invocation -> {
+                    var response = mock(UploadPartResponse.class);
+                    when(response.etag()).thenReturn("etag-" + invocation.getArgument(6));
+                    return CompletableFuture.completedFuture(response);
+                });
+        when(minioAsyncClient.completeMultipartUploadAsync(eq(BUCKET), isNull(), eq(PATH), eq(UPLOAD_ID), any(), any(), isNull()))
+                .thenReturn(CompletableFuture.completedFuture(mock(ObjectWriteResponse.class)));
+
+        // when
+        uploader.upload(PATH, "application/octet-stream", new ByteArrayInputStream(content), content.length);
+
+        // then
+        ArgumentCaptor<Long> lengths = ArgumentCaptor.forClass(Long.class);
+        verify(minioAsyncClient, times(3)).uploadPartAsync(eq(BUCKET), isNull(), eq(PATH), any(), lengths.capture(),
+                eq(UPLOAD_ID), anyInt(), isNull(), isNull());
+        assertThat(lengths.getAllValues()).containsExactly((long) PART_SIZE, (long) PART_SIZE, 100L);
+
+        ArgumentCaptor<Part[]> parts = ArgumentCaptor.forClass(Part[].class);
+        verify(minioAsyncClient).completeMultipartUploadAsync(eq(BUCKET), isNull(), eq(PATH), eq(UPLOAD_ID),
+                parts.capture(), any(), isNull());
+        assertThat(parts.getValue()).extracting(Part::etag).containsExactly("etag-1", "etag-2", "etag-3");
+        verify(minioAsyncClient, never()).abortMultipartUploadAsync(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("При ошибке загрузки части multipart-загрузка отменяется")
+    void upload_PartFails_AbortsUpload() throws Exception {
+        // given
+        byte[] content = new byte[2 * PART_SIZE];
+        var partError = mock(ServerException.class);
+        when(minioAsyncClient.uploadPartAsync(eq(BUCKET), isNull(), eq(PATH), any(), anyLong(), eq(UPLOAD_ID), anyInt(), isNull(), isNull()))
+                .thenReturn(CompletableFuture.failedFuture(partError));
+        when(minioAsyncClient.abortMultipartUploadAsync(BUCKET, null, PATH, UPLOAD_ID, null, null))
+                .thenReturn(CompletableFuture.completedFuture(mock(AbortMultipartUploadResponse.class)));
+
+        // then
+        assertThatThrownBy(() -> uploader.upload(PATH, "application/octet-stream", new ByteArrayInputStream(content), content.length))
+                .isSameAs(partError);
+        verify(minioAsyncClient).abortMultipartUploadAsync(BUCKET, null, PATH, UPLOAD_ID, null, null);
+        verify(minioAsyncClient, never()).completeMultipartUploadAsync(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Объект больше 5 ГБ копируется частями на сервере и сохраняется только если путь свободен")
+    @SuppressWarnings("unchecked")
+    void copy_ObjectLargerThanCopyPart_CopiesRangesAndCompletesWithIfNoneMatch() throws Exception {
+        // given
+        long gib = 1024L * 1024 * 1024;
+        long size = 6 * gib;
+        when(minioAsyncClient.uploadPartCopyAsync(eq(BUCKET), isNull(), eq(PATH), eq(UPLOAD_ID), anyInt(), any(), isNull()))
+                .thenAnswer(invocation -> {
+                    var result = mock(CopyPartResult.class);
+                    when(result.etag()).thenReturn("etag-" + invocation.getArgument(4));
+                    var response = mock(UploadPartCopyResponse.class);
+                    when(response.result()).thenReturn(result);
+                    return CompletableFuture.completedFuture(response);
+                });
+        when(minioAsyncClient.completeMultipartUploadAsync(eq(BUCKET), isNull(), eq(PATH), eq(UPLOAD_ID), any(), any(), isNull()))
+                .thenReturn(CompletableFuture.completedFuture(mock(ObjectWriteResponse.class)));
+
+        // when
+        uploader.copy("objects/source", PATH, size, "video/mp4");
+
+        // then
+        verify(minioAsyncClient).createMultipartUploadAsync(eq(BUCKET), isNull(), eq(PATH),
+                argThat(headers -> headers.get("Content-Type").contains("video/mp4")), isNull());
+        ArgumentCaptor<Multimap<String, String>> headers = ArgumentCaptor.forClass(Multimap.class);
+        verify(minioAsyncClient, times(2)).uploadPartCopyAsync(eq(BUCKET), isNull(), eq(PATH), eq(UPLOAD_ID), anyInt(),
+                headers.capture(), isNull());
+        assertThat(headers.getAllValues())
+                .flatExtracting(partHeaders -> partHeaders.get("x-amz-copy-source-range"))
+                .containsExactly("bytes=0-%d".formatted(5 * gib - 1), "bytes=%d-%d".formatted(5 * gib, size - 1));
+        assertThat(headers.getValue().get("x-amz-copy-source")).containsExactly("/" + BUCKET + "/objects/source");
+
+        ArgumentCaptor<Part[]> parts = ArgumentCaptor.forClass(Part[].class);
+        verify(minioAsyncClient).completeMultipartUploadAsync(eq(BUCKET), isNull(), eq(PATH), eq(UPLOAD_ID),
+                parts.capture(), argThat(completeHeaders -> completeHeaders.get("If-None-Match").contains("*")), isNull());
+        assertThat(parts.getValue()).extracting(Part::etag).containsExactly("etag-1", "etag-2");
+    }
+}
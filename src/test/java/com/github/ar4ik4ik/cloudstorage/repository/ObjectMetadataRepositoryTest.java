@@ -0,0 +1,113 @@
+package com.github.ar4ik4ik.cloudstorage.repository;
+
+import com.github.ar4ik4ik.cloudstorage.TestcontainersConfiguration;
+import com.github.ar4ik4ik.cloudstorage.model.entity.ObjectMetadata;
+import com.github.ar4ik4ik.cloudstorage.repository.ObjectMetadataRepository.SubtreeUsage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+import static com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto.ResourceType.DIRECTORY;
+import static com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto.ResourceType.FILE;
+import static com.github.ar4ik4ik.cloudstorage.utils.PathUtils.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class ObjectMetadataRepositoryTest {
+
+    @Autowired
+    private ObjectMetadataRepository repository;
+
+    private String root;
+
+    @BeforeEach
+    void setUp() {
+        root = "user-%d-files/".formatted(Random.from(RandomGenerator.getDefault()).nextInt(55, 1000000));
+        // Соседние пути подобраны так, чтобы в порядке collate "C" оказаться сразу до и сразу после поддерева docs/
+        save(root, 0);
+        save(root + "docs/", 0);
+        save(root + "docs/a.txt", 10);
+        save(root + "docs/nested/", 0);
+        save(root + "docs/nested/b.txt", 20);
+        save(root + "docs-old.txt", 1);
+        save(root + "docs0.txt", 2);
+    }
+
+    @Test
+    @DisplayName("Поддерево выбирается диапазоном префикса без соседних путей с общим началом")
+    void findSubtree_Prefix_ReturnsOnlySubtree() {
+        // when
+        var subtree = repository.findSubtree(root + "docs/", getPrefixUpperBound(root + "docs/"));
+
+        // then
+        assertThat(subtree).extracting(ObjectMetadata::getPath)
+                .containsExactly(root + "docs/", root + "docs/a.txt", root + "docs/nested/", root + "docs/nested/b.txt");
+    }
+
+    @Test
+    @DisplayName("Перемещение поддерева переписывает пути и родителей, соседние пути не затрагиваются, " +
+            "возвращается объем перемещенных файлов")
+    void moveSubtree_Folder_RewritesOnlySubtree() {
+        // when
+        var moved = repository.moveSubtree(root + "docs/", getPrefixUpperBound(root + "docs/"), root + "archive/",
+                root, "archive/", root, true);
+
+        // then
+        assertThat(moved).extracting(SubtreeUsage::getTotalSize, SubtreeUsage::getObjectCount)
+                .containsExactly(30L, 2L);
+        assertThat(repository.findByPath(root + "archive/nested/b.txt")).get()
+                .extracting(ObjectMetadata::getParentPath, ObjectMetadata::getPhysicalKey)
+                .containsExactly(root + "archive/nested/", root + "archive/nested/b.txt");
+        assertThat(repository.existsByPath(root + "docs-old.txt")).isTrue();
+        assertThat(repository.existsByPath(root + "docs0.txt")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Пересчет счетчиков учитывает только файлы внутри каждой папки")
+    void recomputeFolderUsage_Subtree_CountsNestedFiles() {
+        // when
+        repository.recomputeFolderUsage(root, getPrefixUpperBound(root));
+
+        // then
+        assertThat(repository.findByPath(root + "docs/")).get()
+                .extracting(ObjectMetadata::getTotalSize, ObjectMetadata::getObjectCount)
+                .containsExactly(30L, 2L);
+        assertThat(repository.findByPath(root)).get()
+                .extracting(ObjectMetadata::getTotalSize, ObjectMetadata::getObjectCount)
+                .containsExactly(33L, 4L);
+    }
+
+    @Test
+    @DisplayName("Удаление поддерева не затрагивает соседние пути и возвращает объем удаленных файлов")
+    void deleteSubtree_Folder_KeepsSiblings() {
+        // when
+        var deleted = repository.deleteSubtree(root + "docs/", getPrefixUpperBound(root + "docs/"));
+
+        // then
+        assertThat(deleted).extracting(SubtreeUsage::getTotalSize, SubtreeUsage::getObjectCount)
+                .containsExactly(30L, 2L);
+        assertThat(repository.findSubtree(root, getPrefixUpperBound(root))).extracting(ObjectMetadata::getPath)
+                .containsExactly(root, root + "docs-old.txt", root + "docs0.txt");
+    }
+
+    private void save(String path, long size) {
+        repository.save(ObjectMetadata.builder()
+                .path(path)
+                .physicalKey(path)
+                .parentPath(getParentPath(path, false))
+                .name(extractNameFromPath(path))
+                .size(size)
+                .type(isFolder(path) ? DIRECTORY : FILE)
+                .owner(extractRootDirectory(path))
+                .build());
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.exception.ObjectNotFoundException;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChecksumCalculatorTest {
+
+    private static final String PATH = "user-1-files/video.mp4";
+
+    @Mock
+    private S3Dao dao;
+
+    private ChecksumCalculator calculator;
+
+    @BeforeEach
+    void setUp() {
+        calculator = new ChecksumCalculator(dao, new StorageProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        calculator.close();
+    }
+
+    @Test
+    @DisplayName("Посчитанная сумма сохраняется для той версии файла, для которой она считалась")
+    void calculate_UploadedFile_SavesCrcForEtag() {
+        // given
+        when(dao.computeCrc32(PATH)).thenReturn(42L);
+
+        // when
+        calculator.calculate(PATH, "etag");
+
+        // then
+        verify(dao).saveCrc32(PATH, "etag", 42L);
+    }
+
+    @Test
+    @DisplayName("Удаленный до подсчета файл пропускается без ошибки")
+    void calculate_MissingFile_SkipsSilently() {
+        // given
+        when(dao.computeCrc32(PATH)).thenThrow(new ObjectNotFoundException());
+
+        // then
+        assertThatCode(() -> calculator.calculate(PATH, "etag")).doesNotThrowAnyException();
+        verify(dao, never()).saveCrc32(anyString(), anyString(), anyLong());
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContentIndexerTest {
+
+    private static final String PATH = "user-1-files/notes.md";
+
+    @Mock
+    private S3Dao dao;
+
+    private ContentIndexer indexer;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new StorageProperties();
+        properties.getContentSearch().setMaxSize(DataSize.ofBytes(8));
+        indexer = new ContentIndexer(dao, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexer.close();
+    }
+
+    @Test
+    @DisplayName("Индексируется только начало файла, символы NUL заменяются пробелами")
+    void index_LargeFile_IndexesFirstMaxSizeBytes() {
+        // given
+        byte[] head = "abc\0defg".getBytes(StandardCharsets.UTF_8);
+        when(dao.getObject(PATH, 0, 8)).thenReturn(new GetObjectResponse(Headers.of(), "bucket", null, PATH,
+                new ByteArrayInputStream(head)));
+
+        // when
+        indexer.index(PATH, 1024, "etag-1");
+
+        // then
+        verify(dao).indexContent(PATH, "etag-1", "abc defg");
+    }
+
+    @Test
+    @DisplayName("Текстовый документ определяется по расширению или по типу содержимого text/*")
+    void isTextDocument_KnownExtensionOrTextContentType_ReturnsTrue() {
+        assertThat(indexer.isTextDocument(PATH, "application/octet-stream")).isTrue();
+        assertThat(indexer.isTextDocument("user-1-files/README", "text/plain")).isTrue();
+        assertThat(indexer.isTextDocument("user-1-files/photo.jpg", "image/jpeg")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Бинарные и пустые файлы не читаются из хранилища")
+    void submit_BinaryOrEmptyFile_SkipsIndexing() {
+        // when
+        indexer.submit("user-1-files/photo.jpg", "image/jpeg", 1024, "etag-1");
+        indexer.submit(PATH, "text/markdown", 0, "etag-2");
+
+        // then
+        verifyNoInteractions(dao);
+    }
+}
@@ -0,0 +1,280 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.model.FileDownload.ByteRange;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.utils.ArchiveDiskCache;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelDeflater;
+import com.github.ar4ik4ik.cloudstorage.utils.ParallelPrefetcher;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DirectoryDownloadStrategyTest {
+
+    private static final String ROOT = "user-1-files/photos/";
+
+    @Mock
+    private S3Dao dao;
+
+    private final ParallelPrefetcher prefetcher = new ParallelPrefetcher("test", 2, 2);
+
+    private final ParallelDeflater deflater = new ParallelDeflater("test-deflate", 2);
+
+    @TempDir
+    private Path cacheDirectory;
+
+    private StorageProperties storageProperties;
+
+    private DirectoryDownloadStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new StorageProperties();
+        storageProperties.getDownload().setPrefetchBufferSize(DataSize.ofBytes(100));
+        strategy = new DirectoryDownloadStrategy(dao, prefetcher, deflater, storageProperties,
+                new ArchiveDiskCache(false, cacheDirectory, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.close();
+        deflater.close();
+    }
+
+    @Test
+    @DisplayName("Сжатые форматы кладутся в архив без сжатия, остальные файлы сжимаются")
+    void download_MixedContent_SelectsCompressionPerEntry() throws Exception {
+        // given
+        byte[] text = "text ".repeat(100).getBytes(StandardCharsets.UTF_8);
+        byte[] photo = "jpeg bytes".getBytes(StandardCharsets.UTF_8);
+        byte[] video = "mp4 bytes ".repeat(20).getBytes(StandardCharsets.UTF_8);
+        when(dao.streamObjectsByPath(ROOT)).thenReturn(Stream.of(
+                object("album/", 0),
+                object("album/photo.JPG", photo.length),
+                object("notes.txt", text.length),
+                object("video.mp4", video.length)));
+        when(dao.getObject(ROOT + "album/photo.JPG")).thenReturn(response("album/photo.JPG", photo));
+        when(dao.getObject(ROOT + "notes.txt")).thenReturn(response("notes.txt", text));
+        when(dao.getObject(ROOT + "video.mp4")).thenReturn(response("video.mp4", video));
+        var outputStream = new ByteArrayOutputStream();
+
+        // when
+        strategy.download(ROOT).writeTo(outputStream);
+
+        // then
+        Map<String, ZipEntry> entries = new HashMap<>();
+        Map<String, byte[]> contents = new HashMap<>();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                contents.put(entry.getName(), zip.readAllBytes());
+                entries.put(entry.getName(), entry);
+            }
+        }
+        assertThat(entries.get("album/").getMethod()).isEqualTo(ZipEntry.STORED);
+        assertThat(entries.get("album/photo.JPG").getMethod()).isEqualTo(ZipEntry.STORED);
+        assertThat(entries.get("notes.txt").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(entries.get("notes.txt").getCompressedSize()).isLessThan(text.length);
+        // Крупный объект не буферизуется, поэтому пишется через DEFLATE без сжатия
+        assertThat(entries.get("video.mp4").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(entries.get("video.mp4").getCompressedSize()).isGreaterThanOrEqualTo(video.length);
+        assertThat(contents.get("album/photo.JPG")).isEqualTo(photo);
+        assertThat(contents.get("notes.txt")).isEqualTo(text);
+        assertThat(contents.get("video.mp4")).isEqualTo(video);
+    }
+
+    @Test
+    @DisplayName("Маркер скачиваемой папки не попадает в архив записью с пустым именем")
+    void download_FolderMarker_SkipsMarkerEntry() throws Exception {
+        // given
+        byte[] text = "text".getBytes(StandardCharsets.UTF_8);
+        when(dao.streamObjectsByPath(ROOT)).thenReturn(Stream.of(
+                object("", 0),
+                object("notes.txt", text.length)));
+        when(dao.getObject(ROOT + "notes.txt")).thenReturn(response("notes.txt", text));
+        var outputStream = new ByteArrayOutputStream();
+
+        // when
+        strategy.download(ROOT).writeTo(outputStream);
+
+        // then
+        List<String> names = new ArrayList<>();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        assertThat(names).containsExactly("notes.txt");
+    }
+
+    @Test
+    @DisplayName("Крупные объекты не открываются заранее: одновременно открыт только записываемый в архив")
+    void download_LargeObjects_OpensEachWhenReached() throws Exception {
+        // given
+        byte[] content = "large bytes ".repeat(20).getBytes(StandardCharsets.UTF_8);
+        when(dao.streamObjectsByPath(ROOT)).thenReturn(Stream.of(
+                object("a.bin", content.length),
+                object("b.bin", content.length),
+                object("c.bin", content.length)));
+        AtomicInteger openStreams = new AtomicInteger();
+        AtomicInteger maxOpenStreams = new AtomicInteger();
+        when(dao.getObject(anyString())).thenAnswer(invocation -> {
+            maxOpenStreams.accumulateAndGet(openStreams.incrementAndGet(), Math::max);
+            return new GetObjectResponse(Headers.of(), "bucket", null, invocation.getArgument(0),
+                    new ByteArrayInputStream(content) {
+                        @Override
+                        public void close() {
+                            openStreams.decrementAndGet();
+                        }
+                    });
+        });
+
+        // when
+        strategy.download(ROOT).writeTo(new ByteArrayOutputStream());
+
+        // then
+        verify(dao, times(3)).getObject(anyString());
+        assertThat(maxOpenStreams).hasValue(1);
+        assertThat(openStreams).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Архив без сжатия отдается частями")
+    void downloadStoredArchive_ByRanges_ProducesSameArchiveAsWhole() throws Exception {
+        // given
+        byte[] photo = "jpeg bytes".getBytes(StandardCharsets.UTF_8);
+        byte[] text = "text ".repeat(100).getBytes(StandardCharsets.UTF_8);
+        when(dao.streamObjectsByPath(ROOT)).thenReturn(Stream.of(
+                object("", 0),
+                object("album/", 0),
+                new StorageObject(ROOT + "album/photo.jpg", photo.length, null, null, crc32(photo)),
+                new StorageObject(ROOT + "notes.txt", text.length, null, null, crc32(text))));
+        Map<String, byte[]> objects = Map.of(ROOT + "album/photo.jpg", photo, ROOT + "notes.txt", text);
+        when(dao.getObject(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            byte[] content = objects.get(invocation.<String>getArgument(0));
+            int offset = invocation.<Long>getArgument(1).intValue();
+            int length = invocation.<Long>getArgument(2).intValue();
+            return new GetObjectResponse(Headers.of(), "bucket", null, invocation.getArgument(0),
+                    new ByteArrayInputStream(content, offset, length));
+        });
+
+        // when
+        var layout = strategy.planStoredArchive(ROOT).orElseThrow();
+        long middle = layout.size() / 2;
+        var outputStream = new ByteArrayOutputStream();
+        strategy.download(layout, new ByteRange(0, middle - 1)).writeTo(outputStream);
+        strategy.download(layout, new ByteRange(middle, layout.size() - 1)).writeTo(outputStream);
+
+        // then
+        assertThat(outputStream.size()).isEqualTo(layout.size());
+        verify(dao, never()).computeCrc32(anyString());
+        Map<String, byte[]> contents = new HashMap<>();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+                contents.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        assertThat(contents).containsOnlyKeys("album/", "album/photo.jpg", "notes.txt");
+        assertThat(contents.get("album/photo.jpg")).isEqualTo(photo);
+        assertThat(contents.get("notes.txt")).isEqualTo(text);
+    }
+
+    @Test
+    @DisplayName("Без CRC хотя бы одного файла разметка не строится и объекты не перечитываются")
+    void planStoredArchive_MissingCrc_ReturnsEmpty() {
+        // given
+        when(dao.streamObjectsByPath(ROOT)).thenReturn(Stream.of(
+                object("", 0),
+                new StorageObject(ROOT + "photo.jpg", 10, null, null, null),
+                new StorageObject(ROOT + "notes.txt", 10, null, null, 42L)));
+
+        // when
+        var layout = strategy.planStoredArchive(ROOT);
+
+        // then
+        assertThat(layout).isEmpty();
+        verify(dao, never()).computeCrc32(anyString());
+    }
+
+    @Test
+    @DisplayName("Повторное скачивание неизменившейся папки отдается из дискового кэша, изменение папки сбрасывает кэш")
+    void download_WithArchiveCache_ServesRepeatedDownloadFromDisk() throws Exception {
+        // given
+        var cachingStrategy = new DirectoryDownloadStrategy(dao, prefetcher, deflater, storageProperties,
+                new ArchiveDiskCache(true, cacheDirectory, DataSize.ofMegabytes(1).toBytes()));
+        byte[] text = "text ".repeat(100).getBytes(StandardCharsets.UTF_8);
+        var notes = new StorageObject(ROOT + "notes.txt", text.length, "etag-1", null);
+        var changedNotes = new StorageObject(ROOT + "notes.txt", text.length, "etag-2", null);
+        when(dao.streamObjectsByPath(ROOT))
+                .thenAnswer(invocation -> Stream.of(notes))
+                .thenAnswer(invocation -> Stream.of(notes))
+                .thenAnswer(invocation -> Stream.of(changedNotes));
+        when(dao.getObject(ROOT + "notes.txt")).thenAnswer(invocation -> response("notes.txt", text));
+
+        // when
+        var first = new ByteArrayOutputStream();
+        cachingStrategy.download(ROOT).writeTo(first);
+        var cached = new ByteArrayOutputStream();
+        cachingStrategy.download(ROOT).writeTo(cached);
+        verify(dao, times(1)).getObject(ROOT + "notes.txt");
+        cachingStrategy.download(ROOT).writeTo(new ByteArrayOutputStream());
+
+        // then
+        assertThat(cached.toByteArray()).isEqualTo(first.toByteArray());
+        verify(dao, times(2)).getObject(ROOT + "notes.txt");
+        // Листинг папки читается один раз на скачивание
+        verify(dao, times(3)).streamObjectsByPath(ROOT);
+        // Архив прежней версии папки удален при сохранении нового
+        try (var files = Files.list(cacheDirectory)) {
+            assertThat(files.filter(file -> file.toString().endsWith(".zip"))).hasSize(1);
+        }
+    }
+
+    private StorageObject object(String name, long size) {
+        return new StorageObject(ROOT + name, size, null, null);
+    }
+
+    private static long crc32(byte[] content) {
+        var crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private GetObjectResponse response(String name, byte[] content) {
+        return new GetObjectResponse(Headers.of(), "bucket", null, ROOT + name, new ByteArrayInputStream(content));
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.model.FileDownload.ByteRange;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileDownloadStrategyTest {
+
+    private static final String PATH = "user-1-files/file.txt";
+    private static final String CONTENT = "0123456789";
+
+    @Mock
+    private S3Dao dao;
+
+    @InjectMocks
+    private FileDownloadStrategy strategy;
+
+    @Test
+    @DisplayName("Несколько диапазонов отдаются как multipart/byteranges с отдельным ranged-запросом на каждый")
+    void download_MultipleRanges_WritesMultipartByteranges() throws Exception {
+        // given
+        when(dao.getObject(PATH, 0, 2)).thenReturn(response(0, 2));
+        when(dao.getObject(PATH, 7, 3)).thenReturn(response(7, 3));
+        var outputStream = new ByteArrayOutputStream();
+
+        // when
+        strategy.download(PATH, List.of(new ByteRange(0, 1), new ByteRange(7, 9)), CONTENT.length(), "boundary")
+                .writeTo(outputStream);
+
+        // then
+        assertThat(outputStream.toString(StandardCharsets.US_ASCII)).isEqualTo("""
+                --boundary\r
+                Content-Type: application/octet-stream\r
+                Content-Range: bytes 0-1/10\r
+                \r
+                01\r
+                --boundary\r
+                Content-Type: application/octet-stream\r
+                Content-Range: bytes 7-9/10\r
+                \r
+                789\r
+                --boundary--\r
+                """);
+        verify(dao, never()).getObject(PATH);
+    }
+
+    private GetObjectResponse response(int offset, int length) {
+        return new GetObjectResponse(Headers.of(), "bucket", null, PATH,
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.US_ASCII), offset, length));
+    }
+}
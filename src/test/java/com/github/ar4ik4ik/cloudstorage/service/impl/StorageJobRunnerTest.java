@@ -0,0 +1,117 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.StorageJob;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.repository.StorageJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.github.ar4ik4ik.cloudstorage.model.StorageJob.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StorageJobRunnerTest {
+
+    private static final String SOURCE = "user-1-files/folder/";
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Mock
+    private StorageJobRepository jobRepository;
+
+    private StorageJobRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        var storageProperties = new StorageProperties();
+        storageProperties.getJobs().setProgressInterval(Duration.ZERO);
+        runner = new StorageJobRunner(jobRepository, storageProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.close();
+    }
+
+    @Test
+    @DisplayName("Операция сохраняется в очереди, после выполнения записываются прогресс и успешный статус")
+    void submit_SuccessfulOperation_RecordsProgressAndSucceeds() {
+        // when
+        var job = runner.submit(StorageJob.Type.DELETE, SOURCE, null, progress -> progress.add(3, 300));
+
+        // then
+        assertThat(job.status()).isEqualTo(QUEUED);
+        assertThat(job.owner()).isEqualTo("user-1-files");
+        verify(jobRepository).save(eq(job), any());
+        verify(jobRepository, timeout(TIMEOUT_MILLIS)).updateStatus(eq(job.id()), eq(SUCCEEDED), isNull(), any());
+        verify(jobRepository).incrementProgress(job.id(), 3, 300);
+    }
+
+    @Test
+    @DisplayName("Запрос отмены прерывает операцию на ближайшей записи прогресса")
+    void submit_CancelRequested_StopsOperationAndMarksCancelled() {
+        // given
+        when(jobRepository.isCancelRequested(anyString())).thenReturn(false, true);
+
+        // when
+        var job = runner.submit(StorageJob.Type.MOVE, SOURCE, "user-1-files/target/", progress -> {
+            progress.add(1, 10);
+            throw new AssertionError("Operation must be interrupted by cancellation");
+        });
+
+        // then
+        verify(jobRepository, timeout(TIMEOUT_MILLIS)).updateStatus(eq(job.id()), eq(CANCELLED), isNull(), any());
+        verify(jobRepository, never()).updateStatus(eq(job.id()), eq(SUCCEEDED), any(), any());
+    }
+
+    @Test
+    @DisplayName("Ошибка операции сохраняется в статусе")
+    void submit_FailingOperation_MarksFailedWithMessage() {
+        // when
+        var job = runner.submit(StorageJob.Type.DELETE, SOURCE, null, progress -> {
+            throw new StorageException("Failed to delete 1 of 2 objects");
+        });
+
+        // then
+        verify(jobRepository, timeout(TIMEOUT_MILLIS))
+                .updateStatus(eq(job.id()), eq(FAILED), eq("Failed to delete 1 of 2 objects"), any());
+    }
+
+    @Test
+    @DisplayName("Операции, прерванные остановкой, помечаются неуспешными")
+    void close_RunningAndQueuedJobs_MarksFailed() throws Exception {
+        // given
+        var started = new CountDownLatch(2);
+        Consumer<JobProgress> blocking = progress -> {
+            started.countDown();
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                throw new StorageException(e);
+            }
+        };
+        var running = runner.submit(StorageJob.Type.DELETE, SOURCE, null, blocking);
+        runner.submit(StorageJob.Type.DELETE, SOURCE, null, blocking);
+        var queued = runner.submit(StorageJob.Type.DELETE, SOURCE, null, blocking);
+        assertThat(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+
+        // when
+        runner.close();
+
+        // then
+        verify(jobRepository).updateStatus(eq(running.id()), eq(FAILED), any(), any());
+        verify(jobRepository).updateStatus(eq(queued.id()), eq(FAILED), eq("Interrupted by server shutdown"), any());
+    }
+}
@@ -4,7 +4,11 @@ import com.github.ar4ik4ik.cloudstorage.TestcontainersConfiguration;
 import com.github.ar4ik4ik.cloudstorage.dao.impl.MinioDaoImpl;
 import com.github.ar4ik4ik.cloudstorage.exception.ObjectAlreadyExistException;
 import com.github.ar4ik4ik.cloudstorage.exception.ObjectNotFoundException;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.model.dto.DirectoryPageDto;
+import com.github.ar4ik4ik.cloudstorage.model.dto.PresignedUrlDto;
 import com.github.ar4ik4ik.cloudstorage.model.dto.ResourceInfoResponseDto;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,9 +20,14 @@ import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -36,6 +45,7 @@ import static org.assertj.core.api.Assertions.*;
 @ActiveProfiles("test")
 @SpringBootTest
 @Import(TestcontainersConfiguration.class)
+@TestPropertySource(properties = "storage.index.enabled=true")
 class StorageServiceTest {
 
     @Autowired
@@ -43,6 +53,9 @@ class StorageServiceTest {
 
     @Autowired
     private MinioDaoImpl s3Dao;
+
+    @Autowired
+    private StorageProperties storageProperties;
     private String baseUserUploadPath;
 
     @BeforeEach
@@ -82,6 +95,28 @@ class StorageServiceTest {
                 .containsExactlyInAnyOrder("Spring/", "Шорткаты IDEA.md");
     }
 
+    @Test
+    @DisplayName("Постраничное получение содержимого папки возвращает все ресурсы без повторов")
+    void getDirectoryPage_PageThroughDirectory_ReturnsAllResourcesOnce() {
+        // given
+        List<String> expectedNames = storageService.getDirectoryInfo(baseUserUploadPath).stream()
+                .map(ResourceInfoResponseDto::name)
+                .toList();
+        List<String> pagedNames = new ArrayList<>();
+        String cursor = null;
+
+        // when
+        do {
+            DirectoryPageDto page = storageService.getDirectoryPage(baseUserUploadPath, cursor, 2);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(2);
+            page.items().forEach(item -> pagedNames.add(item.name()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        // then
+        assertThat(pagedNames).containsExactlyInAnyOrderElementsOf(expectedNames);
+    }
+
     @Test
     @DisplayName("Базовая проверка загрузки файла")
     void uploadResource_UploadSimpleTxtFile_Success() {
@@ -106,6 +141,21 @@ class StorageServiceTest {
         assertThat(directoryInfo.stream().map(ResourceInfoResponseDto::name)).contains(newFileName);
     }
 
+    @Test
+    @DisplayName("Загрузка отменяется целиком, если хотя бы один из файлов уже существует")
+    void uploadResource_OneOfFilesAlreadyExists_ThrowsObjectAlreadyExistExceptionAndUploadsNothing() {
+        // given
+        MockMultipartFile newFile = new MockMultipartFile(
+                "files", "Java/newDocument.txt", "text/plain", "New test file".getBytes(StandardCharsets.UTF_8));
+        MockMultipartFile existingFile = new MockMultipartFile(
+                "files", "Java/Шорткаты IDEA.md", "text/plain", "Duplicate".getBytes(StandardCharsets.UTF_8));
+
+        // then
+        assertThatThrownBy(() -> storageService.uploadResource(new MultipartFile[]{newFile, existingFile}, baseUserUploadPath))
+                .isInstanceOf(ObjectAlreadyExistException.class);
+        assertThat(s3Dao.isObjectExists(baseUserUploadPath + "Java/newDocument.txt")).isFalse();
+    }
+
     @Test
     @DisplayName("Успешное удаление существующего файла")
     void deleteResource_ExistFile_Success() {
@@ -134,6 +184,47 @@ class StorageServiceTest {
         assertThat(s3Dao.isObjectExists(fileToDelete)).isFalse();
     }
 
+    @Test
+    @DisplayName("Размер папки и число файлов учитывают все поддерево и уменьшаются при удалении вложенной папки")
+    void getResourceInfo_Directory_ReturnsSubtreeUsage() {
+        // given
+        String directory = baseUserUploadPath + "Java/";
+        String nestedDirectory = directory + "Spring/Boot/";
+        List<StorageObject> files = s3Dao.getListObjectsByPath(directory, true).stream()
+                .filter(object -> !object.objectName().endsWith("/"))
+                .toList();
+        List<StorageObject> nestedFiles = files.stream()
+                .filter(object -> object.objectName().startsWith(nestedDirectory))
+                .toList();
+
+        // when
+        ResourceInfoResponseDto before = storageService.getResourceInfo(directory);
+        storageService.deleteResource(nestedDirectory);
+        ResourceInfoResponseDto after = storageService.getResourceInfo(directory);
+
+        // then
+        assertThat(before.objectCount()).isEqualTo(files.size());
+        assertThat(before.size()).isEqualTo(files.stream().mapToLong(StorageObject::size).sum());
+        assertThat(after.objectCount()).isEqualTo(files.size() - nestedFiles.size());
+        assertThat(after.size()).isEqualTo(before.size() - nestedFiles.stream().mapToLong(StorageObject::size).sum());
+    }
+
+    @Test
+    @DisplayName("Поиск по содержимому при выключенном поиске отклоняется, а не возвращает пустой список")
+    void searchResourcesByContent_ContentSearchDisabled_ThrowIllegalArgumentException() {
+        // given
+        storageProperties.getContentSearch().setEnabled(false);
+
+        // then
+        try {
+            assertThatThrownBy(() -> storageService.searchResourcesByContent("text", baseUserUploadPath, 10))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Content search is not enabled");
+        } finally {
+            storageProperties.getContentSearch().setEnabled(true);
+        }
+    }
+
     @Test
     @DisplayName("Ошибка при удалении несуществующего ресурса")
     void deleteResource_MissingResource_ThrowObjectNotFoundException() {
@@ -189,7 +280,7 @@ class StorageServiceTest {
 
         // when
         List<ResourceInfoResponseDto> searchQueryResult = storageService.searchResourcesByQuery(
-                searchQuery, baseUserUploadPath
+                searchQuery, baseUserUploadPath, 50
         );
 
         // then
@@ -206,7 +297,7 @@ class StorageServiceTest {
 
         // when
         List<ResourceInfoResponseDto> searchQueryResult = storageService.searchResourcesByQuery(
-                searchQuery, baseUserUploadPath
+                searchQuery, baseUserUploadPath, 50
         );
 
         // then
@@ -214,6 +305,39 @@ class StorageServiceTest {
                 .contains(existingResource);
     }
 
+    @Test
+    @DisplayName("Поиск возвращает не больше limit результатов, начиная с имен, которые начинаются с запроса")
+    void searchResourcesByQuery_Limit_ReturnsPrefixMatchesFirst() {
+        // given
+        String searchQuery = "тесты";
+
+        // when
+        List<ResourceInfoResponseDto> searchQueryResult = storageService.searchResourcesByQuery(
+                searchQuery, baseUserUploadPath, 1
+        );
+
+        // then
+        assertThat(searchQueryResult).extracting(ResourceInfoResponseDto::name)
+                .containsExactly("ТЕСТЫ.md");
+    }
+
+    @Test
+    @DisplayName("Потоковый поиск отдает найденные ресурсы и останавливается после limit результатов")
+    void streamSearchResults_Limit_StopsAfterLimit() {
+        // given
+        String searchQuery = ".md";
+
+        // when
+        List<ResourceInfoResponseDto> searchQueryResult;
+        try (var results = storageService.streamSearchResults(searchQuery, baseUserUploadPath, 2)) {
+            searchQueryResult = results.toList();
+        }
+
+        // then
+        assertThat(searchQueryResult).hasSize(2)
+                .allSatisfy(resource -> assertThat(resource.name()).endsWithIgnoringCase(".md"));
+    }
+
     @Test
     @DisplayName("Ошибка при перемещении несуществующего ресурса")
     void moveResource_MissingResource_ThrowsObjectNotFoundException() {
@@ -293,6 +417,50 @@ class StorageServiceTest {
         assertThat(responseDtoAfterFileMoving.name()).isEqualTo(newName);
     }
 
+    @Test
+    @DisplayName("Файл, загруженный по подписанной ссылке, появляется в хранилище после подтверждения")
+    void completePresignedUpload_FileUploadedByUrl_ResourceExists() throws Exception {
+        // given
+        String targetLocation = baseUserUploadPath + "Java/presigned.txt";
+        byte[] content = "presigned content".getBytes(StandardCharsets.UTF_8);
+        PresignedUrlDto upload = storageService.createPresignedUpload(targetLocation);
+
+        // when
+        HttpResponse<Void> putResponse = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(upload.url()))
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        ResourceInfoResponseDto uploaded = storageService.completePresignedUpload(targetLocation, upload.uploadId());
+
+        // then
+        assertThat(putResponse.statusCode()).isEqualTo(200);
+        assertThat(uploaded.size()).isEqualTo(content.length);
+        assertThat(storageService.getResourceInfo(targetLocation).name()).isEqualTo("presigned.txt");
+        assertThatThrownBy(() -> storageService.createPresignedUpload(targetLocation))
+                .isInstanceOf(ObjectAlreadyExistException.class);
+    }
+
+    @Test
+    @DisplayName("Повторная загрузка по уже подтвержденной ссылке не меняет файл")
+    void completePresignedUpload_UrlReusedAfterCompletion_FileUnchanged() throws Exception {
+        // given
+        String targetLocation = baseUserUploadPath + "Java/presigned.txt";
+        byte[] content = "presigned content".getBytes(StandardCharsets.UTF_8);
+        PresignedUrlDto upload = storageService.createPresignedUpload(targetLocation);
+        var httpClient = HttpClient.newHttpClient();
+        httpClient.send(HttpRequest.newBuilder(URI.create(upload.url()))
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        storageService.completePresignedUpload(targetLocation, upload.uploadId());
+
+        // when
+        httpClient.send(HttpRequest.newBuilder(URI.create(upload.url()))
+                .PUT(HttpRequest.BodyPublishers.ofByteArray("overwritten".getBytes(StandardCharsets.UTF_8)))
+                .build(), HttpResponse.BodyHandlers.discarding());
+
+        // then
+        assertThat(storageService.getResourceInfo(targetLocation).size()).isEqualTo(content.length);
+    }
+
     private List<MultipartFile> createMockMultipartFilesFromFolder(String folderResourcePath, String formFieldName) throws IOException {
         Path rootFolderPath = new ClassPathResource(folderResourcePath).getFile().toPath();
         List<MultipartFile> mockFiles = new ArrayList<>();
@@ -0,0 +1,114 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.luben.zstd.ZstdInputStream;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TarDownloadStrategyTest {
+
+    private static final String ROOT = "user-1-files/photos/";
+
+    @Mock
+    private S3Dao dao;
+
+    private TarDownloadStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        strategy = new TarDownloadStrategy(dao, new StorageProperties());
+    }
+
+    @Test
+    @DisplayName("Папка отдается как tar с каталогами и содержимым файлов")
+    void download_Folder_WritesTarEntries() throws Exception {
+        // given
+        byte[] photo = "jpeg bytes".getBytes(StandardCharsets.UTF_8);
+        givenFolder(photo);
+        var outputStream = new ByteArrayOutputStream();
+
+        // when
+        strategy.download(ROOT).writeTo(outputStream);
+
+        // then
+        var entries = readTar(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(entries).containsOnlyKeys("album/", "album/фото.jpg");
+        assertThat(entries.get("album/фото.jpg")).isEqualTo(photo);
+    }
+
+    @Test
+    @DisplayName("В формате tar.zst поток tar сжимается zstd")
+    void downloadCompressed_Folder_WritesZstdCompressedTar() throws Exception {
+        // given
+        byte[] photo = "jpeg bytes".getBytes(StandardCharsets.UTF_8);
+        givenFolder(photo);
+        var outputStream = new ByteArrayOutputStream();
+
+        // when
+        strategy.downloadCompressed(ROOT).writeTo(outputStream);
+
+        // then
+        var entries = readTar(new ZstdInputStream(new ByteArrayInputStream(outputStream.toByteArray())));
+        assertThat(entries).containsOnlyKeys("album/", "album/фото.jpg");
+        assertThat(entries.get("album/фото.jpg")).isEqualTo(photo);
+    }
+
+    @Test
+    @DisplayName("Ошибка чтения объекта прерывает ответ, а не завершает архив")
+    void download_ObjectReadFails_ThrowsIOException() {
+        // given
+        when(dao.streamObjectsByPath(ROOT)).thenReturn(Stream.of(
+                new StorageObject(ROOT + "album/фото.jpg", 10, "etag", ZonedDateTime.now())));
+        when(dao.getObject(ROOT + "album/фото.jpg")).thenThrow(new StorageException("connection reset"));
+
+        // then
+        assertThatThrownBy(() -> strategy.download(ROOT).writeTo(new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class)
+                .hasCauseInstanceOf(StorageException.class);
+    }
+
+    private void givenFolder(byte[] photo) {
+        when(dao.streamObjectsByPath(ROOT)).thenReturn(Stream.of(
+                new StorageObject(ROOT, 0, null, null),
+                new StorageObject(ROOT + "album/", 0, null, ZonedDateTime.now()),
+                new StorageObject(ROOT + "album/фото.jpg", photo.length, "etag", ZonedDateTime.now())));
+        when(dao.getObject(ROOT + "album/фото.jpg")).thenReturn(new GetObjectResponse(Headers.of(), "bucket", null,
+                ROOT + "album/фото.jpg", new ByteArrayInputStream(photo)));
+    }
+
+    private static Map<String, byte[]> readTar(InputStream inputStream) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (var tar = new TarArchiveInputStream(inputStream, StandardCharsets.UTF_8.name())) {
+            for (TarArchiveEntry entry = tar.getNextEntry(); entry != null; entry = tar.getNextEntry()) {
+                entries.put(entry.getName(), tar.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.ar4ik4ik.cloudstorage.service.impl;
+
+import com.github.ar4ik4ik.cloudstorage.dao.S3Dao;
+import com.github.ar4ik4ik.cloudstorage.exception.ObjectNotFoundException;
+import com.github.ar4ik4ik.cloudstorage.mapper.ResourceMapper;
+import com.github.ar4ik4ik.cloudstorage.model.MultipartUploadHandle;
+import com.github.ar4ik4ik.cloudstorage.model.UploadSession;
+import com.github.ar4ik4ik.cloudstorage.model.dto.UploadSessionDto;
+import com.github.ar4ik4ik.cloudstorage.props.StorageProperties;
+import com.github.ar4ik4ik.cloudstorage.repository.UploadSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadSessionServiceTest {
+
+    private static final String OWNER = "user-1-files";
+    private static final String SESSION_ID = "session-id";
+    private static final long CHUNK_SIZE = 10;
+
+    @Mock
+    private S3Dao dao;
+
+    @Mock
+    private UploadSessionRepository sessionRepository;
+
+    @Mock
+    private ResourceMapper mapper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private UploadSessionServiceImpl service;
+
+    private final UploadSession session = UploadSession.builder()
+            .id(SESSION_ID)
+            .owner(OWNER)
+            .path(OWNER + "/video.mp4")
+            .contentType("video/mp4")
+            .size(35)
+            .chunkSize(CHUNK_SIZE)
+            .upload(new MultipartUploadHandle(OWNER + "/video.mp4", "upload-id"))
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        service = new UploadSessionServiceImpl(dao, sessionRepository, mapper, new StorageProperties(), eventPublisher);
+        lenient().when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(session));
+    }
+
+    @Test
+    @DisplayName("Размер части сессии не меньше минимального размера части S3, даже если в настройках указан меньший")
+    void createSession_PartSizeBelowS3Minimum_UsesMinimumChunkSize() {
+        // given
+        var storageProperties = new StorageProperties();
+        storageProperties.getUpload().setPartSize(DataSize.ofMegabytes(1));
+        service = new UploadSessionServiceImpl(dao, sessionRepository, mapper, storageProperties, eventPublisher);
+        when(dao.isObjectExists(OWNER + "/video.mp4")).thenReturn(false);
+        when(dao.isObjectExists(OWNER + "/")).thenReturn(true);
+        when(dao.createMultipartUpload(OWNER + "/video.mp4", "video/mp4"))
+                .thenReturn(new MultipartUploadHandle(OWNER + "/video.mp4", "upload-id"));
+
+        // when
+        UploadSessionDto dto = service.createSession(OWNER, "video.mp4", "video/mp4", 12L * 1024 * 1024);
+
+        // then
+        assertThat(dto.chunkSize()).isEqualTo(5L * 1024 * 1024);
+        verify(sessionRepository).save(argThat(saved -> saved.chunkSize() == 5L * 1024 * 1024), any());
+    }
+
+    @Test
+    @DisplayName("Сессия для файла больше максимального размера не создается")
+    void createSession_SizeAboveMaximum_ThrowsIllegalArgumentException() {
+        // given
+        var storageProperties = new StorageProperties();
+        storageProperties.getUpload().setMaxFileSize(DataSize.ofMegabytes(10));
+        service = new UploadSessionServiceImpl(dao, sessionRepository, mapper, storageProperties, eventPublisher);
+
+        // then
+        assertThatThrownBy(() -> service.createSession(OWNER, "video.mp4", "video/mp4", 11L * 1024 * 1024))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("maximum");
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    @DisplayName("Полученные подряд части объединяются в один диапазон байт")
+    void getSession_ReceivedParts_ReturnsMergedRanges() {
+        // given
+        when(sessionRepository.findParts(SESSION_ID)).thenReturn(Map.of(1, "e1", 2, "e2", 4, "e4"));
+
+        // when
+        UploadSessionDto dto = service.getSession(OWNER, SESSION_ID);
+
+        // then
+        assertThat(dto.path()).isEqualTo("video.mp4");
+        assertThat(dto.receivedRanges()).containsExactly(
+                new UploadSessionDto.ReceivedRange(0, 20),
+                new UploadSessionDto.ReceivedRange(30, 35));
+    }
+
+    @Test
+    @DisplayName("Часть, не совпадающая с границами частей, отклоняется без обращения к хранилищу")
+    void uploadChunk_MisalignedOffset_ThrowsIllegalArgumentException() {
+        // then
+        assertThatThrownBy(() -> service.uploadChunk(OWNER, SESSION_ID, 5, new ByteArrayInputStream(new byte[10]), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.uploadChunk(OWNER, SESSION_ID, 30, new ByteArrayInputStream(new byte[10]), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    @DisplayName("Последняя часть загружается как часть S3 с соответствующим номером")
+    void uploadChunk_LastChunk_UploadsPartAndStoresEtag() {
+        // given
+        var data = new ByteArrayInputStream(new byte[5]);
+        when(dao.uploadPart(session.upload(), 4, data, 5)).thenReturn("e4");
+
+        // when
+        service.uploadChunk(OWNER, SESSION_ID, 30, data, 5);
+
+        // then
+        verify(sessionRepository).savePart(eq(session), eq(4), eq("e4"), any());
+    }
+
+    @Test
+    @DisplayName("Завершение загрузки с недостающими частями отклоняется")
+    void completeSession_MissingParts_ThrowsIllegalArgumentException() {
+        // given
+        when(sessionRepository.findParts(SESSION_ID)).thenReturn(Map.of(1, "e1", 2, "e2"));
+
+        // then
+        assertThatThrownBy(() -> service.completeSession(OWNER, SESSION_ID))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(dao, never()).completeMultipartUpload(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Сессия другого пользователя недоступна")
+    void getSession_AnotherOwner_ThrowsObjectNotFoundException() {
+        // then
+        assertThatThrownBy(() -> service.getSession("user-2-files", SESSION_ID))
+                .isInstanceOf(ObjectNotFoundException.class);
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArchiveDiskCacheTest {
+
+    private static final long MAXIMUM_SIZE = 1024 * 1024;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("При запуске удаляются только архивы прошлого запуска, чужие файлы каталога остаются")
+    void new_DirectoryWithForeignFiles_RemovesOnlyOwnArchives() throws Exception {
+        // given
+        Path staleArchive = Files.writeString(directory.resolve("archive-fingerprint-1.zip"), "zip");
+        Path staleTemp = Files.writeString(directory.resolve("archive-123.tmp"), "zip");
+        Path foreign = Files.writeString(directory.resolve("report.pdf"), "pdf");
+
+        // when
+        new ArchiveDiskCache(true, directory, MAXIMUM_SIZE);
+
+        // then
+        assertThat(staleArchive).doesNotExist();
+        assertThat(staleTemp).doesNotExist();
+        assertThat(foreign).exists();
+    }
+
+    @Test
+    @DisplayName("Новая версия папки вытесняет архив прежней версии")
+    void commit_NewFingerprintOfFolder_RemovesPreviousArchive() throws Exception {
+        // given
+        var cache = new ArchiveDiskCache(true, directory, MAXIMUM_SIZE);
+        commit(cache, "docs/", "v1", "first");
+
+        // when
+        commit(cache, "docs/", "v2", "second");
+
+        // then
+        var out = new ByteArrayOutputStream();
+        assertThat(cache.transferTo("v1", new ByteArrayOutputStream())).isFalse();
+        assertThat(cache.transferTo("v2", out)).isTrue();
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("second");
+        try (var files = Files.list(directory)) {
+            assertThat(files).hasSize(1);
+        }
+    }
+
+    private static void commit(ArchiveDiskCache cache, String folder, String fingerprint, String content) throws Exception {
+        var archive = cache.newArchive(folder);
+        archive.write(content.getBytes(StandardCharsets.UTF_8));
+        archive.commit(fingerprint);
+    }
+}
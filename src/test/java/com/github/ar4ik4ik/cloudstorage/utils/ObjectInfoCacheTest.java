@@ -0,0 +1,113 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import com.github.ar4ik4ik.cloudstorage.model.StorageObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ObjectInfoCacheTest {
+
+    private static final String FILE_PATH = "user-1-files/folder/file.txt";
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<String, Optional<StorageObject>> loader = path -> {
+        loads.incrementAndGet();
+        return Optional.of(new StorageObject(path, 10, "etag", null));
+    };
+
+    @Test
+    @DisplayName("Повторный запрос метаданных обслуживается из кэша, включая отсутствие объекта")
+    void get_RepeatedRequests_LoadsOnce() {
+        // given
+        var cache = new ObjectInfoCache(true, Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+        AtomicInteger missingLoads = new AtomicInteger();
+
+        // when
+        cache.get(FILE_PATH, loader);
+        var cached = cache.get(FILE_PATH, loader);
+        cache.get("missing.txt", path -> {
+            missingLoads.incrementAndGet();
+            return Optional.empty();
+        });
+        var missing = cache.get("missing.txt", path -> {
+            missingLoads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        // then
+        assertThat(cached).isPresent();
+        assertThat(loads).hasValue(1);
+        assertThat(missing).isEmpty();
+        assertThat(missingLoads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Инвалидация по префиксу удаляет записи только внутри папки")
+    void invalidatePrefix_FolderPrefix_RemovesOnlyNestedEntries() {
+        // given
+        var cache = new ObjectInfoCache(true, Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+        cache.get(FILE_PATH, loader);
+        cache.get("user-1-files/folder2/file.txt", loader);
+
+        // when
+        cache.invalidatePrefix("user-1-files/folder/");
+        cache.get(FILE_PATH, loader);
+        cache.get("user-1-files/folder2/file.txt", loader);
+
+        // then
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("Инвалидация во время загрузки не оставляет в кэше устаревший результат")
+    void get_InvalidatedDuringLoad_DoesNotCacheStaleResult() {
+        // given
+        var cache = new ObjectInfoCache(true, Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+
+        // when
+        cache.get(FILE_PATH, path -> {
+            cache.invalidate(path);
+            return Optional.empty();
+        });
+        var reloaded = cache.get(FILE_PATH, loader);
+
+        // then
+        assertThat(reloaded).isPresent();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Отсутствие объекта хранится в кэше только отдельный короткий срок")
+    void get_NegativeTtlElapsed_ReloadsMissingObject() {
+        // given
+        var cache = new ObjectInfoCache(true, Duration.ofMinutes(1), Duration.ZERO, 100);
+        cache.get(FILE_PATH, path -> Optional.empty());
+
+        // when
+        var reloaded = cache.get(FILE_PATH, loader);
+
+        // then
+        assertThat(reloaded).isPresent();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Выключенный кэш всегда обращается к хранилищу")
+    void get_CacheDisabled_AlwaysLoads() {
+        // given
+        var cache = new ObjectInfoCache(false, Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+
+        // when
+        cache.get(FILE_PATH, loader);
+        cache.get(FILE_PATH, loader);
+
+        // then
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelDeflaterTest {
+
+    private final ParallelDeflater deflater = new ParallelDeflater("test", 4);
+
+    @AfterEach
+    void tearDown() {
+        deflater.close();
+    }
+
+    @Test
+    @DisplayName("Блоки, сжатые параллельно, образуют один поток deflate с исходными данными")
+    void deflate_LargeInput_ProducesSingleValidDeflateStream() throws Exception {
+        // given
+        byte[] data = logLikeData(3 * 1024 * 1024 + 123);
+        var output = new ByteArrayOutputStream();
+
+        // when
+        var result = deflater.deflate(new ByteArrayInputStream(data), output, Deflater.DEFAULT_COMPRESSION, data.length);
+
+        // then
+        assertThat(result.size()).isEqualTo(data.length);
+        assertThat(result.crc()).isEqualTo(crc(data));
+        assertThat(output.size()).isLessThan(data.length / 2);
+        assertThat(inflate(output.toByteArray(), data.length)).isEqualTo(data);
+    }
+
+    @Test
+    @DisplayName("Небольшие данные сжимаются в вызывающем потоке")
+    void deflate_SmallInput_ProducesValidDeflateStream() throws Exception {
+        // given
+        byte[] data = logLikeData(10_000);
+        var output = new ByteArrayOutputStream();
+
+        // when
+        var result = deflater.deflate(new ByteArrayInputStream(data), output, Deflater.NO_COMPRESSION, data.length);
+
+        // then
+        assertThat(result.crc()).isEqualTo(crc(data));
+        assertThat(inflate(output.toByteArray(), data.length)).isEqualTo(data);
+    }
+
+    private static byte[] logLikeData(int size) {
+        var random = new Random(42);
+        var builder = new StringBuilder();
+        while (builder.length() < size) {
+            builder.append("2025-10-18 12:00:").append(random.nextInt(60))
+                    .append(" INFO request id=").append(random.nextInt(100_000)).append(" completed\n");
+        }
+        return builder.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static long crc(byte[] data) {
+        var crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private static byte[] inflate(byte[] compressed, int size) throws Exception {
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] result = new byte[size];
+            int inflated = 0;
+            while (!inflater.finished()) {
+                inflated += inflater.inflate(result, inflated, result.length - inflated);
+            }
+            assertThat(inflated).isEqualTo(size);
+            return result;
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelOperationRunnerTest {
+
+    private static final int PARALLELISM = 4;
+
+    private ParallelOperationRunner runner = new ParallelOperationRunner("test", PARALLELISM, Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        runner.close();
+    }
+
+    @Test
+    @DisplayName("Все задачи выполняются, одновременно выполняется не больше заданного числа задач")
+    void runAll_ManyTasks_RunsAllWithBoundedConcurrency() {
+        // given
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        List<Runnable> tasks = IntStream.range(0, 50)
+                .<Runnable>mapToObj(i -> () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(5);
+                    running.decrementAndGet();
+                    completed.incrementAndGet();
+                })
+                .toList();
+
+        // when
+        runner.runAll(tasks.iterator());
+
+        // then
+        assertThat(completed.get()).isEqualTo(50);
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(PARALLELISM);
+    }
+
+    @Test
+    @DisplayName("Ошибка задачи пробрасывается вызывающему коду")
+    void runAll_TaskFails_ThrowsTaskException() {
+        // given
+        List<Runnable> tasks = List.of(
+                () -> {},
+                () -> { throw new StorageException("copy failed"); },
+                () -> {});
+
+        // then
+        assertThatThrownBy(() -> runner.runAll(tasks.iterator()))
+                .isInstanceOf(StorageException.class)
+                .hasMessage("copy failed");
+    }
+
+    @Test
+    @DisplayName("Превышение дедлайна прерывает операцию")
+    void runAll_DeadlineExceeded_ThrowsStorageException() {
+        // given
+        runner.close();
+        runner = new ParallelOperationRunner("test", 1, Duration.ofMillis(50));
+        List<Runnable> tasks = List.of(() -> sleep(500), () -> sleep(500));
+
+        // then
+        assertThatThrownBy(() -> runner.runAll(tasks.iterator()))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("deadline");
+    }
+
+    @Test
+    @DisplayName("Операция со своим дедлайном не прерывается дедлайном запросов")
+    void runAll_WithTimeout_UsesOperationDeadline() {
+        // given
+        runner.close();
+        runner = new ParallelOperationRunner("test", 1, Duration.ofMillis(50));
+        AtomicInteger completed = new AtomicInteger();
+        List<Runnable> tasks = List.of(() -> sleep(100), completed::incrementAndGet);
+
+        // when
+        ParallelOperationRunner.withTimeout(Duration.ofSeconds(5), () -> runner.runAll(tasks.iterator()));
+
+        // then
+        assertThat(completed.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("После превышения дедлайна вызов дожидается завершения прерванных задач")
+    void runAll_DeadlineExceeded_WaitsForInFlightTasks() {
+        // given
+        runner.close();
+        runner = new ParallelOperationRunner("test", 2, Duration.ofMillis(50));
+        AtomicInteger finished = new AtomicInteger();
+        Runnable uninterruptible = () -> {
+            long end = System.nanoTime() + Duration.ofMillis(300).toNanos();
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            finished.incrementAndGet();
+        };
+        List<Runnable> tasks = List.of(uninterruptible, uninterruptible);
+
+        // then
+        assertThatThrownBy(() -> runner.runAll(tasks.iterator()))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("deadline");
+        assertThat(finished.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Время ожидания в очереди за задачами других вызовов не входит в дедлайн")
+    void runAll_QueuedBehindOtherCall_DeadlineStartsWhenTaskStarts() throws Exception {
+        // given
+        runner.close();
+        runner = new ParallelOperationRunner("test", 1, Duration.ofMillis(400));
+        CountDownLatch otherStarted = new CountDownLatch(1);
+        Thread other = Thread.ofPlatform().start(() -> runner.runAll(List.<Runnable>of(() -> {
+            otherStarted.countDown();
+            sleep(300);
+        }).iterator()));
+        otherStarted.await();
+        AtomicInteger completed = new AtomicInteger();
+        List<Runnable> tasks = List.of(() -> {
+            sleep(200);
+            completed.incrementAndGet();
+        });
+
+        // when
+        runner.runAll(tasks.iterator());
+        other.join();
+
+        // then
+        assertThat(completed.get()).isEqualTo(1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import com.github.ar4ik4ik.cloudstorage.exception.StorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelPrefetcherTest {
+
+    private static final int WINDOW = 3;
+
+    private final ParallelPrefetcher prefetcher = new ParallelPrefetcher("test", 4, WINDOW);
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.close();
+    }
+
+    @Test
+    @DisplayName("Элементы возвращаются в исходном порядке, а вперед загружается не больше окна")
+    void prefetch_ManyItems_KeepsOrderAndBoundedWindow() {
+        // given
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        List<Integer> result = new ArrayList<>();
+
+        // when
+        try (var prefetch = prefetcher.prefetch(IntStream.range(0, 20).iterator(), item -> {
+            maxAhead.accumulateAndGet(loaded.incrementAndGet() - consumed.get(), Math::max);
+            sleep(item % 3);
+            return item;
+        }, item -> {})) {
+            while (prefetch.hasNext()) {
+                result.add(prefetch.next());
+                consumed.incrementAndGet();
+            }
+        }
+
+        // then
+        assertThat(result).containsExactlyElementsOf(IntStream.range(0, 20).boxed().toList());
+        assertThat(maxAhead.get()).isLessThanOrEqualTo(WINDOW + 1);
+    }
+
+    @Test
+    @DisplayName("Загруженные, но не полученные потребителем элементы освобождаются при закрытии")
+    void prefetch_ClosedEarly_DiscardsLoadedItems() {
+        // given
+        Set<Integer> discarded = ConcurrentHashMap.newKeySet();
+
+        // when
+        try (var prefetch = prefetcher.prefetch(IntStream.range(0, 10).iterator(), item -> item, discarded::add)) {
+            prefetch.next();
+            sleep(50);
+        }
+
+        // then
+        assertThat(discarded).containsExactlyInAnyOrder(1, 2, 3);
+    }
+
+    @Test
+    @DisplayName("Ошибка загрузки пробрасывается при получении элемента")
+    void prefetch_LoaderFails_ThrowsLoaderException() {
+        // given
+        var prefetch = prefetcher.prefetch(List.of(1, 2).iterator(), item -> {
+            if (item == 2) {
+                throw new StorageException("get failed");
+            }
+            return item;
+        }, item -> {});
+
+        // then
+        assertThat(prefetch.next()).isEqualTo(1);
+        assertThatThrownBy(prefetch::next)
+                .isInstanceOf(StorageException.class)
+                .hasMessage("get failed");
+        prefetch.close();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
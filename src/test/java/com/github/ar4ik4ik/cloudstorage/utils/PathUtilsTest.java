@@ -0,0 +1,38 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PathUtilsTest {
+
+    @Test
+    @DisplayName("Предками файла являются все папки от корневой до родительской")
+    void getAncestorPaths_File_ReturnsAllFoldersFromRoot() {
+        // when / then
+        assertThat(PathUtils.getAncestorPaths("user-1-files/docs/2025/report.pdf"))
+                .containsExactly("user-1-files/", "user-1-files/docs/", "user-1-files/docs/2025/");
+    }
+
+    @Test
+    @DisplayName("Папка не входит в собственных предков, у корневой папки предков нет")
+    void getAncestorPaths_Folder_ExcludesItself() {
+        // when / then
+        assertThat(PathUtils.getAncestorPaths("user-1-files/docs/")).containsExactly("user-1-files/");
+        assertThat(PathUtils.getAncestorPaths("user-1-files/")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Верхняя граница префикса отсекает соседние пути, для пустого префикса в диапазон попадают все пути")
+    void getPrefixUpperBound_Prefix_ReturnsExclusiveBound() {
+        // when
+        String upperBound = PathUtils.getPrefixUpperBound("user-1-files/docs/");
+
+        // then
+        assertThat("user-1-files/docs/report.pdf").isLessThan(upperBound);
+        assertThat("user-1-files/docs0").isGreaterThanOrEqualTo(upperBound);
+        assertThat(PathUtils.getPrefixUpperBound("")).isEqualTo(PathUtils.MAX_PATH);
+        assertThat("user-1-files/").isLessThan(PathUtils.getPrefixUpperBound(""));
+    }
+}
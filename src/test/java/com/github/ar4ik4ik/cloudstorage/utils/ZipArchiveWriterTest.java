@@ -0,0 +1,119 @@
+package com.github.ar4ik4ik.cloudstorage.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ZipArchiveWriterTest {
+
+    private final ParallelDeflater deflater = new ParallelDeflater("test", 2);
+
+    @TempDir
+    private Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        deflater.close();
+    }
+
+    @Test
+    @DisplayName("Архив со STORED и DEFLATED записями читается стандартным ZipFile")
+    void writeEntries_StoredAndDeflated_ReadableByZipFile() throws Exception {
+        // given
+        Path archivePath = tempDir.resolve("archive.zip");
+        byte[] photo = "jpeg bytes".getBytes(StandardCharsets.UTF_8);
+        byte[] text = "Заметки ".repeat(100_000).getBytes(StandardCharsets.UTF_8);
+
+        // when
+        try (var writer = new ZipArchiveWriter(new FileOutputStream(archivePath.toFile()))) {
+            writer.writeStored("Фото/", new byte[0], null);
+            writer.writeStored("Фото/photo.jpg", photo, ZonedDateTime.now());
+            writer.writeDeflated("Фото/notes.txt", ZonedDateTime.now(), text.length,
+                    out -> deflater.deflate(new ByteArrayInputStream(text), out, Deflater.DEFAULT_COMPRESSION, text.length));
+        }
+
+        // then
+        try (var zipFile = new ZipFile(archivePath.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(3);
+            assertThat(zipFile.getEntry("Фото/").isDirectory()).isTrue();
+            ZipEntry photoEntry = zipFile.getEntry("Фото/photo.jpg");
+            assertThat(photoEntry.getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(read(zipFile, photoEntry)).isEqualTo(photo);
+            ZipEntry textEntry = zipFile.getEntry("Фото/notes.txt");
+            assertThat(textEntry.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(textEntry.getSize()).isEqualTo(text.length);
+            assertThat(textEntry.getCompressedSize()).isLessThan(text.length);
+            assertThat(read(zipFile, textEntry)).isEqualTo(text);
+        }
+    }
+
+    @Test
+    @DisplayName("Запись размером чуть меньше 4 ГБ объявляется как Zip64 с запасом на накладные расходы deflate")
+    void writeDeflated_SizeNearZip32Limit_DeclaresZip64() throws Exception {
+        // given
+        Path archivePath = tempDir.resolve("archive.zip");
+        byte[] text = "text ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+        // when
+        try (var writer = new ZipArchiveWriter(new FileOutputStream(archivePath.toFile()))) {
+            writer.writeDeflated("video.mp4", ZonedDateTime.now(), 0xFFFF_0000L,
+                    out -> deflater.deflate(new ByteArrayInputStream(text), out, Deflater.NO_COMPRESSION, text.length));
+        }
+
+        // then
+        byte[] archive = Files.readAllBytes(archivePath);
+        // Версия 4.5 в локальном заголовке означает запись в формате Zip64
+        assertThat(archive[4]).isEqualTo((byte) 45);
+        // Потоковый читатель определяет формат дескриптора по полю Zip64 локального заголовка
+        try (var zip = new ZipArchiveInputStream(new ByteArrayInputStream(archive))) {
+            assertThat(zip.getNextEntry().getName()).isEqualTo("video.mp4");
+            assertThat(zip.readAllBytes()).isEqualTo(text);
+            assertThat(zip.getNextEntry()).isNull();
+        }
+        try (var zipFile = new ZipFile(archivePath.toFile())) {
+            assertThat(read(zipFile, zipFile.getEntry("video.mp4"))).isEqualTo(text);
+        }
+    }
+
+    @Test
+    @DisplayName("Архив с количеством записей больше 65535 пишется в формате Zip64")
+    void finish_TooManyEntriesForZip32_WritesZip64EndRecords() throws Exception {
+        // given
+        Path archivePath = tempDir.resolve("many.zip");
+        int entriesCount = 70_000;
+
+        // when
+        try (var writer = new ZipArchiveWriter(new FileOutputStream(archivePath.toFile()))) {
+            for (int i = 0; i < entriesCount; i++) {
+                writer.writeStored("d" + i + "/", new byte[0], null);
+            }
+        }
+
+        // then
+        try (var zipFile = new ZipFile(archivePath.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(entriesCount);
+            assertThat(zipFile.getEntry("d69999/")).isNotNull();
+        }
+    }
+
+    private static byte[] read(ZipFile zipFile, ZipEntry entry) throws Exception {
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            return inputStream.readAllBytes();
+        }
+    }
+}